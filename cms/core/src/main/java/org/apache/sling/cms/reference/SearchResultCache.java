@@ -0,0 +1,231 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.cms.reference;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.apache.sling.api.SlingConstants;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Modified;
+import org.osgi.service.event.Event;
+import org.osgi.service.event.EventConstants;
+import org.osgi.service.event.EventHandler;
+import org.osgi.service.metatype.annotations.Designate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Caches the paths found by a search, keyed by the user, the base path and the
+ * search term. Results expire after the configured time to live and are
+ * invalidated when a resource at, above or below their base path is added,
+ * changed or removed.
+ */
+@Component(service = { SearchResultCache.class, EventHandler.class }, property = {
+		EventConstants.EVENT_TOPIC + "=" + SlingConstants.TOPIC_RESOURCE_ADDED,
+		EventConstants.EVENT_TOPIC + "=" + SlingConstants.TOPIC_RESOURCE_CHANGED,
+		EventConstants.EVENT_TOPIC + "=" + SlingConstants.TOPIC_RESOURCE_REMOVED })
+@Designate(ocd = SearchResultCacheConfig.class)
+public class SearchResultCache implements EventHandler {
+
+	private static final Logger log = LoggerFactory.getLogger(SearchResultCache.class);
+
+	private final AtomicLong hits = new AtomicLong();
+
+	private final AtomicLong misses = new AtomicLong();
+
+	private final AtomicLong invalidations = new AtomicLong();
+
+	private final Map<Key, Entry> entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+			return size() > maxEntries;
+		}
+	};
+
+	private int maxEntries;
+
+	private long timeToLive;
+
+	/*
+	 * Incremented with every invalidation, so that results of a search which ran
+	 * concurrently with a change are not cached
+	 */
+	private long generation;
+
+	@Activate
+	@Modified
+	public void activate(SearchResultCacheConfig config) {
+		synchronized (this) {
+			maxEntries = config.maxEntries();
+			timeToLive = TimeUnit.SECONDS.toMillis(config.timeToLive());
+			generation++;
+			entries.clear();
+		}
+		log.debug("Caching up to {} searches for {} seconds", config.maxEntries(), config.timeToLive());
+	}
+
+	/**
+	 * Provides the cached paths found by a search, running the search if there
+	 * are none.
+	 *
+	 * @param resolver the resource resolver of the user searching
+	 * @param basePath the path under which is searched
+	 * @param term     the search term
+	 * @param search   runs the search, providing the distinct paths found
+	 * @return the paths found
+	 */
+	public List<String> getResults(ResourceResolver resolver, String basePath, String term,
+			Supplier<List<String>> search) {
+		Key key = new Key(resolver.getUserID(), basePath, term);
+		long started;
+		synchronized (this) {
+			Entry entry = entries.get(key);
+			if (entry != null && entry.expires > System.currentTimeMillis()) {
+				hits.incrementAndGet();
+				log.debug("Using cached results for {}, hit rate {}", key, getHitRate());
+				return entry.paths;
+			}
+			started = generation;
+		}
+		misses.incrementAndGet();
+		log.debug("Searching for {}, hit rate {}", key, getHitRate());
+		List<String> paths = Collections.unmodifiableList(search.get());
+		synchronized (this) {
+			if (started == generation) {
+				entries.put(key, new Entry(paths, System.currentTimeMillis() + timeToLive));
+			}
+		}
+		return paths;
+	}
+
+	@Override
+	public void handleEvent(Event event) {
+		invalidate((String) event.getProperty(SlingConstants.PROPERTY_PATH));
+	}
+
+	/**
+	 * Removes the results of every search whose base path is at, above or below
+	 * the changed path.
+	 *
+	 * @param path the changed path, or null to remove all results
+	 */
+	public synchronized void invalidate(String path) {
+		generation++;
+		int size = entries.size();
+		if (path == null) {
+			entries.clear();
+		} else {
+			entries.keySet().removeIf(key -> isSameOrDescendant(path, key.basePath)
+					|| isSameOrDescendant(key.basePath, path));
+		}
+		if (entries.size() < size) {
+			invalidations.addAndGet(size - entries.size());
+			log.debug("Invalidated {} cached searches for change at {}", size - entries.size(), path);
+		}
+	}
+
+	public long getHitCount() {
+		return hits.get();
+	}
+
+	public long getMissCount() {
+		return misses.get();
+	}
+
+	public long getInvalidationCount() {
+		return invalidations.get();
+	}
+
+	/**
+	 * @return the share of searches answered from the cache, between 0 and 1
+	 */
+	public double getHitRate() {
+		long h = hits.get();
+		long total = h + misses.get();
+		return total == 0 ? 0 : (double) h / total;
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	private static boolean isSameOrDescendant(String path, String ancestor) {
+		if (ancestor == null) {
+			return true;
+		}
+		return path.equals(ancestor) || ancestor.equals("/")
+				|| (path.startsWith(ancestor) && path.charAt(ancestor.length()) == '/');
+	}
+
+	private static final class Entry {
+
+		private final List<String> paths;
+
+		private final long expires;
+
+		private Entry(List<String> paths, long expires) {
+			this.paths = paths;
+			this.expires = expires;
+		}
+	}
+
+	private static final class Key {
+
+		private final String userId;
+
+		private final String basePath;
+
+		private final String term;
+
+		private Key(String userId, String basePath, String term) {
+			this.userId = userId;
+			this.basePath = basePath;
+			this.term = term;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return Objects.equals(userId, other.userId) && Objects.equals(basePath, other.basePath)
+					&& Objects.equals(term, other.term);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(userId, basePath, term);
+		}
+
+		@Override
+		public String toString() {
+			return "[user=" + userId + ", basePath=" + basePath + ", term=" + term + "]";
+		}
+	}
+}
@@ -16,14 +16,13 @@
  */
 package org.apache.sling.cms.reference.models;
 
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
-import java.util.*;
+import java.util.List;
 
 import javax.annotation.PostConstruct;
 import javax.jcr.query.Query;
 
-import org.apache.commons.lang.StringUtils;
 import org.apache.sling.api.SlingHttpServletRequest;
 import org.apache.sling.api.resource.Resource;
 import org.apache.sling.models.annotations.Model;
@@ -40,44 +39,36 @@ public class ItemList {
 
 	private static final Logger log = LoggerFactory.getLogger(List.class);
 
-	private int count;
-
-	private int end;
-
 	@RequestAttribute
 	private String limit;
 
-	private int page;
-
-	private Integer[] pages;
+	private Pagination pagination;
 
 	@RequestAttribute
 	private String query;
 
 	private SlingHttpServletRequest request;
 
-	private List<Resource> items = new ArrayList<Resource>();
-
-	private int start;
+	private List<Resource> items = Collections.emptyList();
 
 	public ItemList(SlingHttpServletRequest request) {
 		this.request = request;
 	}
 
 	public int getCount() {
-		return count;
+		return pagination.getCount();
 	}
 
 	public int getCurrentPage() {
-		return page + 1;
+		return pagination.getCurrentPage();
 	}
 
 	public int getEnd() {
-		return end;
+		return pagination.getEnd();
 	}
 
 	public Integer[] getPages() {
-		return pages;
+		return pagination.getPages();
 	}
 
 	public String getQuery() {
@@ -89,7 +80,7 @@ public class ItemList {
 	}
 
 	public int getStart() {
-		return start;
+		return pagination.getStart();
 	}
 
 	@PostConstruct
@@ -97,65 +88,21 @@ public class ItemList {
 
 		log.trace("init");
 
-		Set<String> distinct = new HashSet<String>();
-
 		if (request.getRequestPathInfo().getSuffix() != null) {
 			query = query.replace("{SUFFIX}", request.getRequestPathInfo().getSuffix());
 		}
 		log.debug("Listing results of: {}", query);
 
 		Iterator<Resource> res = request.getResourceResolver().findResources(query, Query.JCR_SQL2);
-		while (res.hasNext()) {
-			Resource result = res.next();
-			if (!distinct.contains(result.getPath())) {
-				items.add(result);
-				distinct.add(result.getPath());
-			}
-		}
-		count = items.size();
-		log.debug("Found {} results", count);
-
-		if (StringUtils.isNotBlank(request.getParameter("page")) && request.getParameter("page").matches("\\d+")) {
-			page = Integer.parseInt(request.getParameter("page"), 10) - 1;
-			log.debug("Using page {}", page);
-		} else {
-			page = 0;
-			log.debug("Page {} not specified or not valid", request.getParameter("page"));
-		}
-
-		int limit = Integer.parseInt(this.limit, 10);
-		if (page * limit >= count) {
-			start = count;
-		} else {
-			start = page * limit;
-		}
-		log.debug("Using start {}", start);
-
-		if ((page * limit) + limit >= count) {
-			end = count;
-		} else {
-			end = (page * limit) + limit;
-		}
-		log.debug("Using end {}", end);
-		items = items.subList(start, end);
-
-		List<Integer> pgs = new ArrayList<Integer>();
-		int max = ((int) Math.ceil((double) count / limit)) + 1;
-		for (int i = 1; i < max; i++) {
-			pgs.add(i);
-		}
-		pages = pgs.toArray(new Integer[pgs.size()]);
-		log.debug("Loaded pages {}", Arrays.toString(pages));
+		pagination = new Pagination(request, Integer.parseInt(limit, 10));
+		items = pagination.paginate(res);
 	}
 
 	public boolean isFirst() {
-		return page == 0;
+		return pagination.isFirst();
 	}
 
 	public boolean isLast() {
-		if (pages.length > 0) {
-			return page + 1 == pages[pages.length - 1];
-		}
-		return true;
+		return pagination.isLast();
 	}
 }
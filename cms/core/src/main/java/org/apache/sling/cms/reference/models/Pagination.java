@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.cms.reference.models;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Pages through the distinct results of a query, keeping only the resources on
+ * the requested page.
+ */
+class Pagination {
+
+	private static final Logger log = LoggerFactory.getLogger(Pagination.class);
+
+	public static final String PAGE_PARAMETER = "page";
+
+	private int count;
+
+	private int end;
+
+	private final int limit;
+
+	private final int page;
+
+	private Integer[] pages = new Integer[0];
+
+	private int start;
+
+	public Pagination(SlingHttpServletRequest request, int limit) {
+		this.limit = limit;
+		String param = request.getParameter(PAGE_PARAMETER);
+		if (StringUtils.isNotBlank(param) && param.matches("\\d+")) {
+			page = Math.max(Integer.parseInt(param, 10) - 1, 0);
+			log.debug("Using page {}", page);
+		} else {
+			page = 0;
+			log.debug("Page {} not specified or not valid", param);
+		}
+	}
+
+	/**
+	 * Consumes the results, skipping duplicate paths, and collects the
+	 * resources on the current page. The remaining results are only counted.
+	 *
+	 * @param results the query results
+	 * @return the resources on the current page
+	 */
+	public List<Resource> paginate(Iterator<Resource> results) {
+		long offset = (long) page * limit;
+		List<Resource> items = new ArrayList<Resource>();
+		Set<String> distinct = new HashSet<String>();
+		int index = 0;
+		while (results.hasNext()) {
+			Resource result = results.next();
+			if (distinct.add(result.getPath())) {
+				if (index >= offset && items.size() < limit) {
+					items.add(result);
+				}
+				index++;
+			}
+		}
+		return complete(index, items);
+	}
+
+	/**
+	 * Resolves the resources on the current page of the distinct paths found
+	 * by a query. Paths which can no longer be resolved are left out.
+	 *
+	 * @param paths    the distinct paths found
+	 * @param resolver the resource resolver to retrieve the resources with
+	 * @return the resources on the current page
+	 */
+	public List<Resource> paginate(List<String> paths, ResourceResolver resolver) {
+		int from = (int) Math.min((long) page * limit, paths.size());
+		int to = (int) Math.min((long) from + limit, paths.size());
+		List<Resource> items = new ArrayList<Resource>();
+		for (String path : paths.subList(from, to)) {
+			Resource resource = resolver.getResource(path);
+			if (resource != null) {
+				items.add(resource);
+			}
+		}
+		return complete(paths.size(), items);
+	}
+
+	/**
+	 * Provides the distinct paths of the query results, in the order they were
+	 * found.
+	 *
+	 * @param results the query results
+	 * @return the distinct paths
+	 */
+	public static List<String> distinctPaths(Iterator<Resource> results) {
+		Set<String> distinct = new LinkedHashSet<String>();
+		while (results.hasNext()) {
+			distinct.add(results.next().getPath());
+		}
+		return new ArrayList<String>(distinct);
+	}
+
+	private List<Resource> complete(int count, List<Resource> items) {
+		this.count = count;
+		log.debug("Found {} results", count);
+
+		start = (int) Math.min((long) page * limit, count);
+		log.debug("Using start {}", start);
+		end = start + items.size();
+		log.debug("Using end {}", end);
+
+		List<Integer> pgs = new ArrayList<Integer>();
+		int max = ((int) Math.ceil((double) count / limit)) + 1;
+		for (int i = 1; i < max; i++) {
+			pgs.add(i);
+		}
+		pages = pgs.toArray(new Integer[pgs.size()]);
+		log.debug("Loaded pages {}", Arrays.toString(pages));
+		return items;
+	}
+
+	public int getCount() {
+		return count;
+	}
+
+	public int getCurrentPage() {
+		return page + 1;
+	}
+
+	public int getEnd() {
+		return end;
+	}
+
+	public Integer[] getPages() {
+		return pages;
+	}
+
+	public int getStart() {
+		return start;
+	}
+
+	public boolean isFirst() {
+		return page == 0;
+	}
+
+	public boolean isLast() {
+		if (pages.length > 0) {
+			return page + 1 == pages[pages.length - 1];
+		}
+		return true;
+	}
+}
@@ -16,18 +16,21 @@
  */
 package org.apache.sling.cms.reference.models;
 
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
-import java.util.*;
+import java.util.List;
 
 import javax.annotation.PostConstruct;
 import javax.jcr.query.Query;
 
-import org.apache.commons.lang.StringUtils;
 import org.apache.jackrabbit.util.Text;
 import org.apache.sling.api.SlingHttpServletRequest;
 import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.cms.reference.SearchResultCache;
 import org.apache.sling.models.annotations.Model;
+import org.apache.sling.models.annotations.injectorspecific.InjectionStrategy;
+import org.apache.sling.models.annotations.injectorspecific.OSGiService;
 import org.apache.sling.models.annotations.injectorspecific.ValueMapValue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -46,41 +49,36 @@ public class Search {
 	@ValueMapValue
 	private String basePath;
 
-	private int count;
-
-	private int end;
-
 	@ValueMapValue
 	private int limit;
 
-	private int page;
-
-	private Integer[] pages;
+	private Pagination pagination;
 
 	private SlingHttpServletRequest request;
 
-	private List<Resource> results = new ArrayList<Resource>();
+	@OSGiService(injectionStrategy = InjectionStrategy.OPTIONAL)
+	private SearchResultCache searchResultCache;
 
-	private int start;
+	private List<Resource> results = Collections.emptyList();
 
 	public Search(SlingHttpServletRequest request) {
 		this.request = request;
 	}
 
 	public int getCount() {
-		return count;
+		return pagination.getCount();
 	}
 
 	public int getCurrentPage() {
-		return page + 1;
+		return pagination.getCurrentPage();
 	}
 
 	public int getEnd() {
-		return end;
+		return pagination.getEnd();
 	}
 
 	public Integer[] getPages() {
-		return pages;
+		return pagination.getPages();
 	}
 
 	public List<Resource> getResults() {
@@ -88,7 +86,7 @@ public class Search {
 	}
 
 	public int getStart() {
-		return start;
+		return pagination.getStart();
 	}
 
 	public String getTerm() {
@@ -98,64 +96,28 @@ public class Search {
 	@PostConstruct
 	public void init() {
 
-		Set<String> distinct = new HashSet<String>();
-
 		String term = Text.escapeIllegalXpathSearchChars(request.getParameter(TERM_PARAMETER)).replaceAll("'", "''");
 
 		String query = "SELECT parent.* FROM [sling:Page] AS parent INNER JOIN [nt:base] AS child ON ISDESCENDANTNODE(child,parent) WHERE  (parent.[jcr:content/hideInSitemap] IS NULL OR parent.[jcr:content/hideInSitemap] <> true) AND ISDESCENDANTNODE(parent, '"
 				+ basePath + "') AND CONTAINS(child.*, '" + term + "')";
 		log.debug("Searching for pages with {} under {} with query: {}", term, basePath, query);
-		Iterator<Resource> res = request.getResourceResolver().findResources(query, Query.JCR_SQL2);
-		while (res.hasNext()) {
-			Resource result = res.next();
-			if (!distinct.contains(result.getPath())) {
-				results.add(result);
-				distinct.add(result.getPath());
-			}
-		}
-		count = results.size();
-		log.debug("Found {} results", count);
-
-		if (StringUtils.isNotBlank(request.getParameter("page")) && request.getParameter("page").matches("\\d+")) {
-			page = Integer.parseInt(request.getParameter("page"), 10) - 1;
-			log.debug("Using page {}", page);
+		ResourceResolver resolver = request.getResourceResolver();
+		pagination = new Pagination(request, limit);
+		if (searchResultCache != null) {
+			List<String> paths = searchResultCache.getResults(resolver, basePath, term,
+					() -> Pagination.distinctPaths(resolver.findResources(query, Query.JCR_SQL2)));
+			results = pagination.paginate(paths, resolver);
 		} else {
-			page = 0;
-			log.debug("Page {} not specified or not valid", request.getParameter("page"));
+			Iterator<Resource> res = resolver.findResources(query, Query.JCR_SQL2);
+			results = pagination.paginate(res);
 		}
-
-		if (page * limit >= count) {
-			start = count;
-		} else {
-			start = page * limit;
-		}
-		log.debug("Using start {}", start);
-
-		if ((page * limit) + limit >= count) {
-			end = count;
-		} else {
-			end = (page * limit) + limit;
-		}
-		log.debug("Using end {}", end);
-		results = results.subList(start, end);
-
-		List<Integer> pgs = new ArrayList<Integer>();
-		int max = ((int) Math.ceil((double) count / limit)) + 1;
-		for (int i = 1; i < max; i++) {
-			pgs.add(i);
-		}
-		pages = pgs.toArray(new Integer[pgs.size()]);
-		log.debug("Loaded pages {}", Arrays.toString(pages));
 	}
 
 	public boolean isFirst() {
-		return page == 0;
+		return pagination.isFirst();
 	}
 
 	public boolean isLast() {
-		if (pages.length > 0) {
-			return page + 1 == pages[pages.length - 1];
-		}
-		return true;
+		return pagination.isLast();
 	}
 }
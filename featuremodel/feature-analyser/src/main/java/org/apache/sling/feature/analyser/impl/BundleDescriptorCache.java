@@ -0,0 +1,339 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.feature.analyser.impl;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.Attributes;
+import java.util.jar.Manifest;
+
+import org.apache.sling.feature.Artifact;
+import org.apache.sling.feature.OSGiCapability;
+import org.apache.sling.feature.OSGiRequirement;
+import org.apache.sling.feature.analyser.BundleDescriptor;
+import org.apache.sling.feature.support.util.FileUtil;
+import org.apache.sling.feature.support.util.PackageInfo;
+import org.osgi.framework.Version;
+import org.osgi.resource.Capability;
+import org.osgi.resource.Requirement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A cache for the information extracted from the manifest of a bundle.
+ * The information is kept in a compact binary file per artifact in a
+ * sub directory of the artifact cache directory. A cached entry is only
+ * used if the size and the last modification time of the bundle file
+ * are unchanged, so warm runs neither open the bundle nor parse its
+ * manifest.
+ */
+public class BundleDescriptorCache {
+
+    /** The name of the directory within the artifact cache directory. */
+    private static final String DIRECTORY_NAME = "bundle-descriptors";
+
+    /** Identifies the file format, increase it when the format changes. */
+    private static final int FORMAT = 0x53464201;
+
+    private static final byte TYPE_STRING = 0;
+    private static final byte TYPE_LONG = 1;
+    private static final byte TYPE_DOUBLE = 2;
+    private static final byte TYPE_VERSION = 3;
+    private static final byte TYPE_LIST = 4;
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private final File directory;
+
+    /**
+     * Create a new cache
+     * @param cacheDirectory The artifact cache directory. If {@code null},
+     *        nothing is cached.
+     */
+    public BundleDescriptorCache(final File cacheDirectory) {
+        this.directory = cacheDirectory == null ? null : new File(cacheDirectory, DIRECTORY_NAME);
+    }
+
+    /**
+     * Get the descriptor for a bundle, analyzing the bundle only if
+     * there is no valid cached information.
+     *
+     * @param artifact The bundle artifact
+     * @param file The bundle file
+     * @param startLevel The start level of the bundle
+     * @return The locked bundle descriptor
+     * @throws IOException If the bundle can't be analyzed
+     */
+    public BundleDescriptor getBundleDescriptor(final Artifact artifact,
+            final File file,
+            final int startLevel) throws IOException {
+        if ( this.directory == null ) {
+            return new BundleDescriptorImpl(artifact, file, startLevel);
+        }
+        final File cacheFile = new File(this.directory, artifact.getId().toMvnPath() + ".bin");
+        if ( cacheFile.isFile() ) {
+            try {
+                final BundleDescriptor desc = read(cacheFile, artifact, file, startLevel);
+                if ( desc != null ) {
+                    logger.debug("Using cached descriptor for {}", artifact.getId());
+                    return desc;
+                }
+            } catch ( final IOException | RuntimeException e) {
+                logger.warn("Ignoring unreadable bundle descriptor " + cacheFile, e);
+            }
+        }
+        final BundleDescriptorImpl desc = new BundleDescriptorImpl(artifact, file, startLevel);
+        write(cacheFile, desc, file);
+        return desc;
+    }
+
+    private BundleDescriptor read(final File cacheFile,
+            final Artifact artifact,
+            final File file,
+            final int startLevel) throws IOException {
+        try ( final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile))) ) {
+            final Input input = new Input(in);
+            if ( in.readInt() != FORMAT
+                 || !artifact.getId().toMvnId().equals(input.readString())
+                 || in.readLong() != file.length()
+                 || in.readLong() != file.lastModified() ) {
+                return null;
+            }
+            final Manifest manifest = new Manifest();
+            final int count = in.readInt();
+            for(int i = 0; i < count; i++) {
+                manifest.getMainAttributes().putValue(input.readString(), input.readString());
+            }
+            final BundleDescriptorImpl desc = new BundleDescriptorImpl(artifact, file, startLevel, manifest);
+            input.readPackages(desc.getExportedPackages());
+            input.readPackages(desc.getImportedPackages());
+            input.readPackages(desc.getDynamicImportedPackages());
+            final int caps = in.readInt();
+            for(int i = 0; i < caps; i++) {
+                desc.getCapabilities().add(new OSGiCapability(input.readString(), input.readAttributes(), input.readDirectives()));
+            }
+            final int reqs = in.readInt();
+            for(int i = 0; i < reqs; i++) {
+                desc.getRequirements().add(new OSGiRequirement(input.readString(), input.readAttributes(), input.readDirectives()));
+            }
+            desc.lock();
+            return desc;
+        }
+    }
+
+    private void write(final File cacheFile, final BundleDescriptor desc, final File file) {
+        try {
+            FileUtil.writeAtomically(cacheFile, tmp -> {
+                try ( final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp))) ) {
+                    final Output output = new Output(out);
+                    out.writeInt(FORMAT);
+                    output.writeString(desc.getArtifact().getId().toMvnId());
+                    out.writeLong(file.length());
+                    out.writeLong(file.lastModified());
+                    final Attributes attrs = desc.getManifest().getMainAttributes();
+                    out.writeInt(attrs.size());
+                    for(final Map.Entry<Object, Object> entry : attrs.entrySet()) {
+                        output.writeString(entry.getKey().toString());
+                        output.writeString(entry.getValue().toString());
+                    }
+                    output.writePackages(desc.getExportedPackages());
+                    output.writePackages(desc.getImportedPackages());
+                    output.writePackages(desc.getDynamicImportedPackages());
+                    out.writeInt(desc.getCapabilities().size());
+                    for(final Capability cap : desc.getCapabilities()) {
+                        output.writeString(cap.getNamespace());
+                        output.writeAttributes(cap.getAttributes());
+                        output.writeDirectives(cap.getDirectives());
+                    }
+                    out.writeInt(desc.getRequirements().size());
+                    for(final Requirement req : desc.getRequirements()) {
+                        output.writeString(req.getNamespace());
+                        output.writeAttributes(req.getAttributes());
+                        output.writeDirectives(req.getDirectives());
+                    }
+                }
+            });
+            logger.debug("Stored descriptor for {} in {}", desc.getArtifact().getId(), cacheFile);
+        } catch ( final IOException e) {
+            logger.warn("Unable to store bundle descriptor for " + desc.getArtifact().getId() + " in " + cacheFile, e);
+        }
+    }
+
+    /**
+     * Writes strings only once per file, repeated strings like attribute
+     * names and namespaces are written as a reference to the first occurrence.
+     */
+    private static final class Output {
+
+        private final DataOutputStream out;
+
+        private final Map<String, Integer> strings = new HashMap<>();
+
+        Output(final DataOutputStream out) {
+            this.out = out;
+        }
+
+        void writeString(final String value) throws IOException {
+            if ( value == null ) {
+                out.writeInt(-2);
+                return;
+            }
+            final Integer index = strings.get(value);
+            if ( index != null ) {
+                out.writeInt(index);
+                return;
+            }
+            strings.put(value, strings.size());
+            // not using writeUTF as manifest headers may exceed its 64k limit
+            final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(-1);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        void writePackages(final Collection<PackageInfo> packages) throws IOException {
+            out.writeInt(packages.size());
+            for(final PackageInfo info : packages) {
+                writeString(info.getName());
+                writeString(info.getVersion());
+                out.writeBoolean(info.isOptional());
+            }
+        }
+
+        void writeDirectives(final Map<String, String> directives) throws IOException {
+            out.writeInt(directives.size());
+            for(final Map.Entry<String, String> entry : directives.entrySet()) {
+                writeString(entry.getKey());
+                writeString(entry.getValue());
+            }
+        }
+
+        void writeAttributes(final Map<String, Object> attributes) throws IOException {
+            out.writeInt(attributes.size());
+            for(final Map.Entry<String, Object> entry : attributes.entrySet()) {
+                writeString(entry.getKey());
+                writeValue(entry.getValue());
+            }
+        }
+
+        private void writeValue(final Object value) throws IOException {
+            if ( value instanceof String ) {
+                out.writeByte(TYPE_STRING);
+                writeString((String)value);
+            } else if ( value instanceof Long ) {
+                out.writeByte(TYPE_LONG);
+                out.writeLong((Long)value);
+            } else if ( value instanceof Double ) {
+                out.writeByte(TYPE_DOUBLE);
+                out.writeDouble((Double)value);
+            } else if ( value instanceof Version ) {
+                out.writeByte(TYPE_VERSION);
+                writeString(value.toString());
+            } else if ( value instanceof List ) {
+                out.writeByte(TYPE_LIST);
+                final List<?> list = (List<?>)value;
+                out.writeInt(list.size());
+                for(final Object element : list) {
+                    writeValue(element);
+                }
+            } else {
+                throw new IOException("Unsupported attribute type " + (value == null ? null : value.getClass().getName()));
+            }
+        }
+    }
+
+    private static final class Input {
+
+        private final DataInputStream in;
+
+        private final List<String> strings = new ArrayList<>();
+
+        Input(final DataInputStream in) {
+            this.in = in;
+        }
+
+        String readString() throws IOException {
+            final int index = in.readInt();
+            if ( index == -2 ) {
+                return null;
+            }
+            if ( index >= 0 ) {
+                return strings.get(index);
+            }
+            final byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            final String value = new String(bytes, StandardCharsets.UTF_8);
+            strings.add(value);
+            return value;
+        }
+
+        void readPackages(final Collection<PackageInfo> packages) throws IOException {
+            final int count = in.readInt();
+            for(int i = 0; i < count; i++) {
+                packages.add(new PackageInfo(readString(), readString(), in.readBoolean()));
+            }
+        }
+
+        Map<String, String> readDirectives() throws IOException {
+            final int count = in.readInt();
+            final Map<String, String> directives = new LinkedHashMap<>();
+            for(int i = 0; i < count; i++) {
+                directives.put(readString(), readString());
+            }
+            return directives;
+        }
+
+        Map<String, Object> readAttributes() throws IOException {
+            final int count = in.readInt();
+            final Map<String, Object> attributes = new LinkedHashMap<>();
+            for(int i = 0; i < count; i++) {
+                attributes.put(readString(), readValue());
+            }
+            return attributes;
+        }
+
+        private Object readValue() throws IOException {
+            final byte type = in.readByte();
+            switch ( type ) {
+                case TYPE_STRING : return readString();
+                case TYPE_LONG : return in.readLong();
+                case TYPE_DOUBLE : return in.readDouble();
+                case TYPE_VERSION : return Version.parseVersion(readString());
+                case TYPE_LIST : final int size = in.readInt();
+                                 final List<Object> list = new ArrayList<>(size);
+                                 for(int i = 0; i < size; i++) {
+                                     list.add(readValue());
+                                 }
+                                 return list;
+                default : throw new IOException("Unknown attribute type " + type);
+            }
+        }
+    }
+}
@@ -69,6 +69,22 @@ public class BundleDescriptorImpl
         this.lock();
     }
 
+    /**
+     * Create a descriptor for a bundle whose manifest has been analyzed before.
+     * The descriptor is not locked, the caller adds the packages,
+     * requirements and capabilities before locking it.
+     */
+    BundleDescriptorImpl(final Artifact a,
+            final File file,
+            final int startLevel,
+            final Manifest manifest) throws IOException {
+        this.artifact = a;
+        this.artifactFile = file;
+        this.startLevel = startLevel;
+        this.manifest = manifest;
+        this.readBundleName();
+    }
+
     public BundleDescriptorImpl(final Artifact artifact,
             final Set<PackageInfo> pcks,
             final Set<Requirement> reqs,
@@ -129,6 +145,21 @@ public class BundleDescriptorImpl
     }
 
     protected void analyze() throws IOException {
+        this.readBundleName();
+
+        this.getExportedPackages().addAll(ManifestUtil.extractExportedPackages(this.manifest));
+        this.getImportedPackages().addAll(ManifestUtil.extractImportedPackages(this.manifest));
+        this.getDynamicImportedPackages().addAll(ManifestUtil.extractDynamicImportedPackages(this.manifest));
+        try {
+            ManifestParser parser = new ManifestParser(this.manifest);
+            this.getCapabilities().addAll(ManifestUtil.extractCapabilities(parser));
+            this.getRequirements().addAll(ManifestUtil.extractRequirements(parser));
+        } catch (Exception ex) {
+            throw new IOException(ex);
+        }
+    }
+
+    private void readBundleName() throws IOException {
         final String name = this.manifest.getMainAttributes().getValue(Constants.BUNDLE_SYMBOLICNAME);
         if ( name != null ) {
             final String version = this.manifest.getMainAttributes().getValue(Constants.BUNDLE_VERSION);
@@ -141,17 +172,6 @@ public class BundleDescriptorImpl
             if (newBundleName != null) {
                 this.symbolicName = newBundleName;
             }
-
-            this.getExportedPackages().addAll(ManifestUtil.extractExportedPackages(this.manifest));
-            this.getImportedPackages().addAll(ManifestUtil.extractImportedPackages(this.manifest));
-            this.getDynamicImportedPackages().addAll(ManifestUtil.extractDynamicImportedPackages(this.manifest));
-            try {
-                ManifestParser parser = new ManifestParser(this.manifest);
-                this.getCapabilities().addAll(ManifestUtil.extractCapabilities(parser));
-                this.getRequirements().addAll(ManifestUtil.extractRequirements(parser));
-            } catch (Exception ex) {
-                throw new IOException(ex);
-            }
         } else {
             throw new IOException("Unable to get bundle symbolic name from artifact " + getArtifact().getId().toMvnId());
         }
@@ -34,10 +34,11 @@ import org.apache.sling.feature.analyser.BundleDescriptor;
 import org.apache.sling.feature.analyser.ContainerDescriptor;
 import org.apache.sling.feature.analyser.FeatureDescriptor;
 import org.apache.sling.feature.analyser.impl.ApplicationDescriptorImpl;
-import org.apache.sling.feature.analyser.impl.BundleDescriptorImpl;
+import org.apache.sling.feature.analyser.impl.BundleDescriptorCache;
 import org.apache.sling.feature.analyser.impl.FeatureDescriptorImpl;
 import org.apache.sling.feature.scanner.ExtensionScanner;
 import org.apache.sling.feature.scanner.FrameworkScanner;
+import org.apache.sling.feature.support.ArtifactHandler;
 import org.apache.sling.feature.support.ArtifactManager;
 import org.apache.sling.feature.support.ArtifactManagerConfig;
 
@@ -57,6 +58,8 @@ public class Scanner {
 
     private final ArtifactManager artifactManager;
 
+    private final BundleDescriptorCache bundleDescriptorCache;
+
     private final List<ExtensionScanner> extensionScanners;
 
     private final List<FrameworkScanner> frameworkScanners;
@@ -75,6 +78,7 @@ public class Scanner {
             final List<FrameworkScanner> frameworkScanners)
     throws IOException {
         this.artifactManager = ArtifactManager.getArtifactManager(amConfig);
+        this.bundleDescriptorCache = new BundleDescriptorCache(this.artifactManager.getCacheDirectory());
         this.extensionScanners = extensionScanners == null ? getServices(ExtensionScanner.class) : extensionScanners;
         this.frameworkScanners = frameworkScanners == null ? getServices(FrameworkScanner.class) : frameworkScanners;
     }
@@ -114,12 +118,16 @@ public class Scanner {
      * @throws IOException If something goes wrong or the provided artifact is not a bundle.
      */
     public BundleDescriptor scan(final Artifact bundle, final int startLevel) throws IOException {
-        final File file = artifactManager.getArtifactHandler(bundle.getId().toMvnUrl()).getFile();
+        return scan(bundle, artifactManager.getArtifactHandler(bundle.getId().toMvnUrl()), startLevel);
+    }
+
+    private BundleDescriptor scan(final Artifact bundle, final ArtifactHandler handler, final int startLevel) throws IOException {
+        final File file = handler.getFile();
         if ( file == null ) {
             throw new IOException("Unable to find file for " + bundle.getId());
         }
 
-        return new BundleDescriptorImpl(bundle, file, startLevel);
+        return this.bundleDescriptorCache.getBundleDescriptor(bundle, file, startLevel);
     }
 
     /**
@@ -130,9 +138,16 @@ public class Scanner {
      */
     private void getBundleInfos(final Bundles bundles, final ContainerDescriptor desc)
     throws IOException {
+        // fetch all bundles at once
+        final List<String> urls = new ArrayList<>();
+        for(final Artifact bundle : bundles) {
+            urls.add(bundle.getId().toMvnUrl());
+        }
+        final Map<String, ArtifactHandler> handlers = artifactManager.getArtifactHandlers(urls);
+
         for(final Map.Entry<Integer, List<Artifact>> entry : bundles.getBundlesByStartOrder().entrySet()) {
             for(final Artifact bundle : entry.getValue() ) {
-                final BundleDescriptor bundleDesc = scan(bundle, entry.getKey());
+                final BundleDescriptor bundleDesc = scan(bundle, handlers.get(bundle.getId().toMvnUrl()), entry.getKey());
                 desc.getBundleDescriptors().add(bundleDesc);
             }
         }
@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.feature.analyser.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import org.apache.sling.feature.Artifact;
+import org.apache.sling.feature.ArtifactId;
+import org.apache.sling.feature.analyser.BundleDescriptor;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BundleDescriptorCacheTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void testCachedDescriptor() throws Exception {
+        final File bundle = createBundle();
+        final Artifact artifact = new Artifact(ArtifactId.parse("g/a/1.0.0"));
+        final BundleDescriptorCache cache = new BundleDescriptorCache(tmp.newFolder("cache"));
+
+        final BundleDescriptor expected = new BundleDescriptorImpl(artifact, bundle, 5);
+        final BundleDescriptor first = cache.getBundleDescriptor(artifact, bundle, 5);
+        assertDescriptor(expected, first);
+
+        // replace the bundle without changing size and modification time
+        final long lastModified = bundle.lastModified();
+        final byte[] garbage = new byte[(int) bundle.length()];
+        try ( final OutputStream os = new FileOutputStream(bundle) ) {
+            os.write(garbage);
+        }
+        bundle.setLastModified(lastModified);
+
+        final BundleDescriptor cached = cache.getBundleDescriptor(artifact, bundle, 7);
+        assertNotSame(first, cached);
+        assertDescriptor(expected, cached);
+        assertEquals(7, cached.getBundleStartLevel());
+        assertTrue(cached.isLocked());
+
+        // a modified bundle is analyzed again
+        bundle.setLastModified(lastModified - 10000);
+        try {
+            cache.getBundleDescriptor(artifact, bundle, 5);
+            fail("Expected the modified bundle to be analyzed");
+        } catch ( final IOException expectedException) {
+            // the replaced bundle is not a jar
+        }
+    }
+
+    @Test
+    public void testRenamedBundle() throws Exception {
+        final File bundle = createBundle();
+        final BundleDescriptorCache cache = new BundleDescriptorCache(tmp.newFolder("cache"));
+        cache.getBundleDescriptor(new Artifact(ArtifactId.parse("g/a/1.0.0")), bundle, 0);
+
+        final Artifact renamed = new Artifact(ArtifactId.parse("g/a/1.0.0"));
+        renamed.getMetadata().put("bundle:rename-bsn", "renamed");
+        assertEquals("renamed", cache.getBundleDescriptor(renamed, bundle, 0).getBundleSymbolicName());
+    }
+
+    @Test
+    public void testNoCacheDirectory() throws Exception {
+        final File bundle = createBundle();
+        final Artifact artifact = new Artifact(ArtifactId.parse("g/a/1.0.0"));
+        assertDescriptor(new BundleDescriptorImpl(artifact, bundle, 0),
+                new BundleDescriptorCache(null).getBundleDescriptor(artifact, bundle, 0));
+    }
+
+    private void assertDescriptor(final BundleDescriptor expected, final BundleDescriptor actual) {
+        assertEquals(expected.getBundleSymbolicName(), actual.getBundleSymbolicName());
+        assertEquals(expected.getBundleVersion(), actual.getBundleVersion());
+        assertEquals(expected.getExportedPackages(), actual.getExportedPackages());
+        assertEquals(expected.getImportedPackages(), actual.getImportedPackages());
+        assertEquals(expected.getDynamicImportedPackages(), actual.getDynamicImportedPackages());
+        assertEquals(expected.getCapabilities(), actual.getCapabilities());
+        assertEquals(expected.getRequirements(), actual.getRequirements());
+        assertEquals(expected.getManifest().getMainAttributes(), actual.getManifest().getMainAttributes());
+    }
+
+    private File createBundle() throws IOException {
+        final Manifest manifest = new Manifest();
+        final Attributes attrs = manifest.getMainAttributes();
+        attrs.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        attrs.putValue("Bundle-ManifestVersion", "2");
+        attrs.putValue("Bundle-SymbolicName", "org.example.bundle;singleton:=true");
+        attrs.putValue("Bundle-Version", "1.2.3");
+        attrs.putValue("Export-Package", "org.example.api;version=\"1.1\",org.example.spi;uses:=\"org.example.api\"");
+        attrs.putValue("Import-Package", "org.osgi.framework;version=\"[1.8,2)\",org.example.opt;resolution:=optional");
+        attrs.putValue("DynamicImport-Package", "org.example.dyn.*");
+        attrs.putValue("Provide-Capability", "org.example.cap;org.example.cap=foo;"
+                + "size:Long=42;ratio:Double=\"0.5\";version:Version=\"2.0\";names:List<String>=\"a,b\";"
+                + "versions:List<Version>=\"1.0,2.0\"");
+        attrs.putValue("Require-Capability", "osgi.ee;filter:=\"(&(osgi.ee=JavaSE)(version=1.8))\"");
+        attrs.putValue("Sling-Initial-Content", "SLING-INF/content;path:=/content/example");
+        final char[] padding = new char[70000];
+        Arrays.fill(padding, 'x');
+        attrs.putValue("X-Long-Header", new String(padding));
+
+        final File file = tmp.newFile("bundle.jar");
+        try ( final JarOutputStream os = new JarOutputStream(new FileOutputStream(file), manifest) ) {
+            // manifest only
+        }
+        return file;
+    }
+}
@@ -46,6 +46,8 @@ import java.nio.file.Path;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import javax.json.Json;
 import javax.json.JsonStructure;
@@ -135,6 +137,28 @@ public class ApplicationBuilderTest {
         }
     }
 
+    @Test
+    public void testParallelAssembly() throws Exception {
+        ArtifactManager am = ArtifactManager.getArtifactManager(new ArtifactManagerConfig());
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            String sequential = writeApplication(ApplicationBuilder.assemble(null,
+                    new BuilderContext(new TestFeatureProvider()), null, readFeatures(am)));
+            String parallel = writeApplication(ApplicationBuilder.assemble(null,
+                    new BuilderContext(new TestFeatureProvider()).setExecutor(executor), null, readFeatures(am)));
+
+            // The application JSON must be the same, byte for byte
+            assertEquals(sequential, parallel);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Feature[] readFeatures(final ArtifactManager am) throws Exception {
+        return new Feature[] {readFeature("/featureA.json", am), readFeature("/featureB.json", am),
+                readFeature("/featureC.json", am), readFeature("/featureD.json", am)};
+    }
+
     // Turn JSON into pretty-formatted canoncical JSON that should be comparable using String compare
     private void canonicalize(String expected, StringWriter expectedWriter, String actual, StringWriter actualWriter) {
         JsonStructure es = Json.createReader(new StringReader(expected)).read();
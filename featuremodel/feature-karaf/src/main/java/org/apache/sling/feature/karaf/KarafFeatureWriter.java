@@ -25,6 +25,7 @@ import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.io.Writer;
 import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -99,9 +100,16 @@ public class KarafFeatureWriter {
 
                 jos.closeEntry();
 
+                // fetch all bundles at once
+                final List<String> urls = new ArrayList<>();
+                for(final Artifact artifact : feature.getBundles()) {
+                    urls.add(artifact.getId().toMvnUrl());
+                }
+                final Map<String, ArtifactHandler> handlers = artifactManager.getArtifactHandlers(urls);
+
                 for(final Map.Entry<Integer, List<Artifact>> entry : feature.getBundles().getBundlesByStartOrder().entrySet()) {
                     for(final Artifact artifact : entry.getValue()) {
-                        final ArtifactHandler handler = artifactManager.getArtifactHandler(artifact.getId().toMvnUrl());
+                        final ArtifactHandler handler = handlers.get(artifact.getId().toMvnUrl());
 
                         addEntry(jos, artifact, handler.getFile());
                     }
@@ -20,6 +20,7 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -94,9 +95,25 @@ public class FeatureProcessor {
     public static void prepareLauncher(final LauncherConfig config,
             final ArtifactManager artifactManager,
             final Application app) throws Exception {
+        // fetch all artifacts at once
+        final List<String> urls = new ArrayList<>();
+        for(final Artifact a : app.getBundles()) {
+            urls.add(":" + a.getId().toMvnPath());
+        }
+        if ( config.getStartupMode() != StartupMode.PURE ) {
+            for(final Extension ext : app.getExtensions()) {
+                if ( ext.getType() == ExtensionType.ARTIFACTS ) {
+                    for(final Artifact a : ext.getArtifacts() ) {
+                        urls.add(":" + a.getId().toMvnPath());
+                    }
+                }
+            }
+        }
+        final Map<String, ArtifactHandler> handlers = artifactManager.getArtifactHandlers(urls);
+
         for(final Map.Entry<Integer, List<Artifact>> entry : app.getBundles().getBundlesByStartOrder().entrySet()) {
             for(final Artifact a : entry.getValue()) {
-                final ArtifactHandler handler = artifactManager.getArtifactHandler(":" + a.getId().toMvnPath());
+                final ArtifactHandler handler = handlers.get(":" + a.getId().toMvnPath());
                 final File artifactFile = handler.getFile();
 
                 config.getInstallation().addBundle(entry.getKey(), artifactFile);
@@ -109,7 +126,7 @@ public class FeatureProcessor {
                     if ( config.getStartupMode() == StartupMode.PURE ) {
                         throw new Exception("Artifacts other than bundle are not supported by framework launcher.");
                     }
-                    final ArtifactHandler handler = artifactManager.getArtifactHandler(":" + a.getId().toMvnPath());
+                    final ArtifactHandler handler = handlers.get(":" + a.getId().toMvnPath());
                     config.getInstallation().addInstallableArtifact(handler.getFile());
                 }
             } else {
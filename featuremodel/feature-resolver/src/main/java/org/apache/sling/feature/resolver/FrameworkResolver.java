@@ -21,23 +21,21 @@ import org.apache.sling.feature.ArtifactId;
 import org.apache.sling.feature.Feature;
 import org.apache.sling.feature.FeatureResource;
 import org.apache.sling.feature.analyser.BundleDescriptor;
-import org.apache.sling.feature.analyser.impl.BundleDescriptorImpl;
+import org.apache.sling.feature.analyser.impl.BundleDescriptorCache;
 import org.apache.sling.feature.process.FeatureResolver;
 import org.apache.sling.feature.resolver.impl.BundleResourceImpl;
+import org.apache.sling.feature.resolver.impl.CapabilityIndex;
+import org.apache.sling.feature.resolver.impl.DependencyGraph;
 import org.apache.sling.feature.resolver.impl.FeatureResourceImpl;
 import org.apache.sling.feature.resolver.impl.ResolveContextImpl;
+import org.apache.sling.feature.resolver.impl.ResolverFramework;
 import org.apache.sling.feature.support.ArtifactManager;
-import org.osgi.framework.BundleContext;
-import org.osgi.framework.BundleException;
-import org.osgi.framework.Constants;
-import org.osgi.framework.ServiceReference;
-import org.osgi.framework.launch.Framework;
-import org.osgi.framework.launch.FrameworkFactory;
+import org.osgi.framework.Filter;
+import org.osgi.framework.FrameworkUtil;
+import org.osgi.framework.InvalidSyntaxException;
 import org.osgi.framework.namespace.BundleNamespace;
 import org.osgi.framework.namespace.HostNamespace;
 import org.osgi.framework.namespace.IdentityNamespace;
-import org.osgi.framework.namespace.PackageNamespace;
-import org.osgi.framework.wiring.BundleRevision;
 import org.osgi.resource.Capability;
 import org.osgi.resource.Requirement;
 import org.osgi.resource.Resource;
@@ -49,91 +47,63 @@ import java.io.File;
 import java.io.IOException;
 import java.util.Collections;
 import java.util.HashMap;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.ServiceLoader;
 import java.util.Set;
 
 public class FrameworkResolver implements FeatureResolver {
     private final ArtifactManager artifactManager;
+    private final BundleDescriptorCache bundleDescriptorCache;
+    private final ResolverFramework framework;
     private final Resolver resolver;
     private final FeatureResource frameworkResource;
-    private final Framework framework;
-    private String tempDirToBeDeleted = null;
+    private final boolean singlePass;
 
+    /**
+     * Constructor, using a framework with its storage in a temporary directory.
+     * @param am The artifact manager to obtain the bundles with.
+     */
     public FrameworkResolver(ArtifactManager am) {
-        this(am, getTempDirProps());
-
-        // Since we create the temp dir, the close() method needs to delete it.
-        tempDirToBeDeleted = framework.getBundleContext().getProperty(Constants.FRAMEWORK_STORAGE);
+        this(am, null, false);
     }
 
-    private static Map<String, String> getTempDirProps() {
-        try {
-            String temp = Files.createTempDirectory("frameworkresolver").toFile().getAbsolutePath();
-            return Collections.singletonMap(Constants.FRAMEWORK_STORAGE, temp);
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
+    public FrameworkResolver(ArtifactManager am, Map<String, String> frameworkProperties) {
+        this(am, frameworkProperties, false);
     }
 
-    public FrameworkResolver(ArtifactManager am, Map<String, String> frameworkProperties) {
+    /**
+     * Constructor.
+     * The framework providing the resolver is shared with the other resolvers
+     * using the same framework properties. It is kept running for a while after the
+     * last of them is closed, so that resolvers created one after another share it too.
+     * @param am The artifact manager to obtain the bundles with.
+     * @param frameworkProperties The properties of the framework providing the resolver,
+     * or {@code null} to use a framework with its storage in a temporary directory.
+     * @param singlePass If {@code true}, all resources are resolved with a single resolver call
+     * and ordered by the dependencies between them. Otherwise every resource is resolved separately.
+     */
+    public FrameworkResolver(ArtifactManager am, Map<String, String> frameworkProperties, boolean singlePass) {
         artifactManager = am;
+        bundleDescriptorCache = new BundleDescriptorCache(am.getCacheDirectory());
+        this.singlePass = singlePass;
 
-        Resolver r = null;
-        // Launch an OSGi framework and obtain its resolver
-        try {
-            FrameworkFactory fwf = ServiceLoader.load(FrameworkFactory.class).iterator().next();
-            framework = fwf.newFramework(frameworkProperties);
-            framework.init();
-            framework.start();
-            BundleContext ctx = framework.getBundleContext();
-
-            // Create a resource representing the framework
-            Map<String, List<Capability>> capabilities = new HashMap<>();
-            BundleRevision br = framework.adapt(BundleRevision.class);
-            capabilities.put(PackageNamespace.PACKAGE_NAMESPACE, br.getCapabilities(PackageNamespace.PACKAGE_NAMESPACE));
-            capabilities.put(BundleNamespace.BUNDLE_NAMESPACE, br.getCapabilities(BundleNamespace.BUNDLE_NAMESPACE));
-            capabilities.put(IdentityNamespace.IDENTITY_NAMESPACE, br.getCapabilities(IdentityNamespace.IDENTITY_NAMESPACE));
-            frameworkResource = new BundleResourceImpl(framework.getSymbolicName(), framework.getVersion(), null, null,
-                    capabilities, Collections.emptyMap());
-
-            int i=0;
-            while (i < 20) {
-                ServiceReference<Resolver> ref = ctx.getServiceReference(Resolver.class);
-                if (ref != null) {
-                    r = ctx.getService(ref);
-                    break;
-                }
-
-                // The service isn't there yet, let's wait a little and try again
-                Thread.sleep(500);
-                i++;
-            }
-        } catch (BundleException | InterruptedException e) {
-            throw new RuntimeException(e);
-        }
-        resolver = r;
+        framework = ResolverFramework.acquire(frameworkProperties);
+        resolver = framework.getResolver();
+        frameworkResource = framework.getFrameworkResource();
     }
 
+    private boolean closed;
+
     @Override
-    public void close() throws Exception {
-        framework.stop();
-
-        if (tempDirToBeDeleted != null) {
-            Files.walk(Paths.get(tempDirToBeDeleted))
-                .sorted(Comparator.reverseOrder())
-                .map(Path::toFile)
-                .forEach(File::delete);
+    public synchronized void close() throws Exception {
+        if (!closed) {
+            closed = true;
+            framework.release();
         }
     }
 
@@ -149,15 +119,18 @@ public class FrameworkResolver implements FeatureResolver {
     public List<FeatureResource> internalOrderResources(List<Feature> features) throws IOException {
         Map<Feature, FeatureResource> featureMap = new HashMap<>();
         Map<FeatureResource, Feature> resourceMap = new HashMap<>();
+        List<FeatureResource> resources = new ArrayList<>();
         for (Feature f : features) {
             FeatureResourceImpl fr = new FeatureResourceImpl(f);
             resourceMap.put(fr, f);
             featureMap.put(f, fr);
+            resources.add(fr);
 
             for (Artifact b : f.getBundles()) {
-                BundleDescriptor bd = getBundleDescriptor(artifactManager, b);
+                BundleDescriptor bd = getBundleDescriptor(b);
                 FeatureResource r = new BundleResourceImpl(bd, f);
                 resourceMap.put(r, f);
+                resources.add(r);
             }
         }
 
@@ -168,8 +141,13 @@ public class FrameworkResolver implements FeatureResolver {
 
         // Add these too
         Artifact lpa = new Artifact(ArtifactId.parse("org.apache.sling/org.apache.sling.launchpad.api/1.2.0"));
-        idVerMap.put("org.apache.sling.launchpad.api:1.2.0", new BundleResourceImpl(getBundleDescriptor(artifactManager, lpa), null));
-        idVerMap.put(framework.getSymbolicName() + ":" + framework.getVersion(), frameworkResource);
+        idVerMap.put("org.apache.sling.launchpad.api:1.2.0", new BundleResourceImpl(getBundleDescriptor(lpa), null));
+        idVerMap.put(frameworkResource.getId() + ":" + frameworkResource.getVersion(), frameworkResource);
+
+        CapabilityIndex index = new CapabilityIndex(idVerMap.values());
+        if (singlePass) {
+            return orderResourcesSinglePass(resources, featureMap, idVerMap, index);
+        }
 
         List<FeatureResource> orderedResources = new LinkedList<>();
         try {
@@ -178,7 +156,7 @@ public class FrameworkResolver implements FeatureResolver {
                     // Already handled
                     continue;
                 }
-                Map<Resource, List<Wire>> deps = resolver.resolve(new ResolveContextImpl(resource, idVerMap.values()));
+                Map<Resource, List<Wire>> deps = resolver.resolve(new ResolveContextImpl(resource, index));
 
                 for (Map.Entry<Resource, List<Wire>> entry : deps.entrySet()) {
                     if (resource.equals(entry.getKey()))
@@ -267,6 +245,88 @@ public class FrameworkResolver implements FeatureResolver {
         return orderedResources;
     }
 
+    /**
+     * Resolve all resources with a single resolver call and order them by
+     * the dependencies between them. A feature is ordered before its bundles,
+     * a provider before the resources wired to it and a fragment before its
+     * host, as selected by the filter of the host requirement. Resources
+     * depending on each other are ordered as they are provided.
+     */
+    private List<FeatureResource> orderResourcesSinglePass(List<FeatureResource> resources,
+            Map<Feature, FeatureResource> featureMap, Map<String, FeatureResource> idVerMap, CapabilityIndex index) {
+        DependencyGraph<FeatureResource> graph = new DependencyGraph<>();
+        for (FeatureResource resource : resources) {
+            graph.addNode(resource);
+
+            FeatureResource associatedFeature = featureMap.get(resource.getFeature());
+            if (associatedFeature != null) {
+                graph.addDependency(resource, associatedFeature);
+            }
+        }
+
+        Map<Resource, List<Wire>> wiring;
+        try {
+            wiring = resolver.resolve(new ResolveContextImpl(new ArrayList<Resource>(resources), index));
+        } catch (ResolutionException e) {
+            throw new RuntimeException(e);
+        }
+        for (Map.Entry<Resource, List<Wire>> entry : wiring.entrySet()) {
+            FeatureResource requirer = getFeatureResource(entry.getKey(), idVerMap);
+            if (requirer == null || requirer.equals(frameworkResource))
+                continue;
+
+            for (Wire w : entry.getValue()) {
+                if (HostNamespace.HOST_NAMESPACE.equals(w.getRequirement().getNamespace()))
+                    continue; // Fragments are ordered below
+
+                FeatureResource provider = getFeatureResource(w.getProvider(), idVerMap);
+                if (provider == null || provider.equals(frameworkResource))
+                    continue;
+
+                graph.addDependency(requirer, provider);
+            }
+        }
+
+        // Order the fragments before their hosts
+        for (FeatureResource resource : resources) {
+            for (Requirement req : resource.getRequirements(HostNamespace.HOST_NAMESPACE)) {
+                for (FeatureResource host : findHosts(req, resources)) {
+                    graph.addDependency(host, resource);
+                }
+            }
+        }
+
+        return graph.sort();
+    }
+
+    private static List<FeatureResource> findHosts(Requirement hostRequirement, List<FeatureResource> resources) {
+        String f = hostRequirement.getDirectives().get(HostNamespace.REQUIREMENT_FILTER_DIRECTIVE);
+        if (f == null)
+            return Collections.emptyList();
+
+        Filter filter;
+        try {
+            filter = FrameworkUtil.createFilter(f);
+        } catch (InvalidSyntaxException e) {
+            throw new RuntimeException("Invalid filter " + f + " in requirement " + hostRequirement);
+        }
+
+        List<FeatureResource> hosts = new ArrayList<>();
+        for (FeatureResource resource : resources) {
+            String bsn = getBundleSymbolicName(resource);
+            if (bsn == null)
+                continue;
+
+            Map<String, Object> attrs = new HashMap<>();
+            attrs.put(HostNamespace.HOST_NAMESPACE, bsn);
+            attrs.put(HostNamespace.CAPABILITY_BUNDLE_VERSION_ATTRIBUTE, resource.getVersion());
+            if (filter.matches(attrs)) {
+                hosts.add(resource);
+            }
+        }
+        return hosts;
+    }
+
     private FeatureResource getFeatureResource(Resource res, Map<String, FeatureResource> idVerMap) {
         if (res instanceof FeatureResource)
             return (FeatureResource) res;
@@ -301,12 +361,12 @@ public class FrameworkResolver implements FeatureResolver {
         return null;
     }
 
-    private static BundleDescriptor getBundleDescriptor(ArtifactManager artifactManager, Artifact b) throws IOException {
+    private BundleDescriptor getBundleDescriptor(Artifact b) throws IOException {
         final File file = artifactManager.getArtifactHandler(b.getId().toMvnUrl()).getFile();
         if ( file == null ) {
             throw new IOException("Unable to find file for " + b.getId());
         }
 
-        return new BundleDescriptorImpl(b, file, -1);
+        return bundleDescriptorCache.getBundleDescriptor(b, file, -1);
     }
 }
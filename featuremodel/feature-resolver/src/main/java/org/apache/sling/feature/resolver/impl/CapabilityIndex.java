@@ -0,0 +1,198 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.sling.feature.resolver.impl;
+
+import org.osgi.framework.Filter;
+import org.osgi.framework.FrameworkUtil;
+import org.osgi.framework.InvalidSyntaxException;
+import org.osgi.framework.namespace.BundleNamespace;
+import org.osgi.framework.namespace.HostNamespace;
+import org.osgi.framework.namespace.IdentityNamespace;
+import org.osgi.framework.namespace.PackageNamespace;
+import org.osgi.resource.Capability;
+import org.osgi.resource.Requirement;
+import org.osgi.resource.Resource;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An index of the capabilities of resources, by namespace and, for the
+ * package, bundle, host and identity namespaces, by the value of the
+ * namespace attribute. Requirements whose filter requires a value for the
+ * namespace attribute are only matched against the capabilities with this
+ * value. The parsed filters are cached.
+ */
+public class CapabilityIndex {
+    /** The namespaces whose capabilities are indexed by the namespace attribute. */
+    private static final Set<String> INDEXED_NAMESPACES = new HashSet<>(Arrays.asList(
+            PackageNamespace.PACKAGE_NAMESPACE,
+            BundleNamespace.BUNDLE_NAMESPACE,
+            HostNamespace.HOST_NAMESPACE,
+            IdentityNamespace.IDENTITY_NAMESPACE));
+
+    private final Map<String, List<Capability>> capabilities = new HashMap<>();
+    private final Map<String, Map<String, List<Capability>>> capabilitiesByValue = new HashMap<>();
+    private final Map<String, Filter> filters = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor.
+     * @param resources The resources whose capabilities are indexed.
+     */
+    public CapabilityIndex(Collection<? extends Resource> resources) {
+        for (Resource r : resources) {
+            for (Capability c : r.getCapabilities(null)) {
+                capabilities.computeIfAbsent(c.getNamespace(), k -> new ArrayList<>()).add(c);
+            }
+        }
+
+        for (String namespace : INDEXED_NAMESPACES) {
+            Map<String, List<Capability>> byValue = new HashMap<>();
+            for (Capability c : getCapabilities(namespace)) {
+                Object value = c.getAttributes().get(namespace);
+                if (!(value instanceof String)) {
+                    // Can't be looked up by value, so don't index the namespace
+                    byValue = null;
+                    break;
+                }
+                byValue.computeIfAbsent((String) value, k -> new ArrayList<>()).add(c);
+            }
+            if (byValue != null) {
+                capabilitiesByValue.put(namespace, byValue);
+            }
+        }
+    }
+
+    /**
+     * Find the capabilities matching a requirement.
+     * @param requirement The requirement.
+     * @return The matching capabilities, in the order of the resources and their capabilities.
+     */
+    public List<Capability> findProviders(Requirement requirement) {
+        String namespace = requirement.getNamespace();
+        String f = requirement.getDirectives().get("filter");
+        if (f == null) {
+            return new ArrayList<>(getCapabilities(namespace));
+        }
+
+        Filter filter = filters.get(f);
+        if (filter == null) {
+            try {
+                filter = FrameworkUtil.createFilter(f);
+            } catch (InvalidSyntaxException e) {
+                throw new RuntimeException("Invalid filter " + f + " in requirement " + requirement);
+            }
+            filters.put(f, filter);
+        }
+
+        List<Capability> candidates = getCapabilities(namespace);
+        Map<String, List<Capability>> byValue = capabilitiesByValue.get(namespace);
+        if (byValue != null) {
+            String value = getRequiredValue(f, namespace);
+            if (value != null) {
+                candidates = byValue.getOrDefault(value, Collections.emptyList());
+            }
+        }
+
+        List<Capability> providers = new ArrayList<>();
+        for (Capability c : candidates) {
+            if (filter.matches(c.getAttributes())) {
+                providers.add(c);
+            }
+        }
+        return providers;
+    }
+
+    private List<Capability> getCapabilities(String namespace) {
+        return capabilities.getOrDefault(namespace, Collections.emptyList());
+    }
+
+    /**
+     * Obtain the value a filter requires for an attribute. This is the case
+     * if the filter is an equality check of the attribute, or a conjunction
+     * containing such a check.
+     * @param filter The filter.
+     * @param attribute The attribute.
+     * @return The required value or {@code null} if the filter doesn't require one.
+     */
+    static String getRequiredValue(String filter, String attribute) {
+        String f = filter.trim();
+        if (f.startsWith("(&")) {
+            int start = 2;
+            while (start < f.length() && f.charAt(start) == '(') {
+                int end = findClosingParenthesis(f, start);
+                if (end < 0) {
+                    return null;
+                }
+                String value = getEqualityValue(f.substring(start, end + 1), attribute);
+                if (value != null) {
+                    return value;
+                }
+                start = end + 1;
+            }
+            return null;
+        }
+        return getEqualityValue(f, attribute);
+    }
+
+    private static String getEqualityValue(String item, String attribute) {
+        String prefix = "(" + attribute + "=";
+        if (!item.startsWith(prefix) || !item.endsWith(")")) {
+            return null;
+        }
+        String value = item.substring(prefix.length(), item.length() - 1);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                sb.append(value.charAt(++i));
+            } else if (c == '*' || c == '(' || c == ')') {
+                // A substring match or not a simple item
+                return null;
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static int findClosingParenthesis(String f, int start) {
+        int depth = 0;
+        for (int i = start; i < f.length(); i++) {
+            char c = f.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+                if (depth == 0) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+}
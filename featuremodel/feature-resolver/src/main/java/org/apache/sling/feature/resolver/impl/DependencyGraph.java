@@ -0,0 +1,201 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.sling.feature.resolver.impl;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * A directed graph of dependencies, which orders its nodes so that every node
+ * comes after the nodes it depends on.
+ *
+ * Nodes that depend on each other, directly or indirectly, form a strongly
+ * connected component. Such a cycle can't be ordered, so the nodes of a cycle
+ * are kept together and ordered by the order in which they were added. Nodes
+ * that don't depend on each other are also kept in the order in which they
+ * were added.
+ *
+ * @param <T> The type of the nodes.
+ */
+public class DependencyGraph<T> {
+    private final Map<T, Integer> indexes = new HashMap<>();
+    private final List<T> nodes = new ArrayList<>();
+    private final List<Set<Integer>> dependents = new ArrayList<>();
+
+    /**
+     * Add a node, if it hasn't been added yet.
+     * @param node The node.
+     */
+    public void addNode(T node) {
+        getIndex(node);
+    }
+
+    /**
+     * Add a dependency, adding the nodes if they haven't been added yet.
+     * A node depending on itself is ignored.
+     * @param node The node.
+     * @param dependency The node it depends on.
+     */
+    public void addDependency(T node, T dependency) {
+        int n = getIndex(node);
+        int d = getIndex(dependency);
+        if (n != d) {
+            dependents.get(d).add(n);
+        }
+    }
+
+    /**
+     * Order the nodes.
+     * @return All nodes, each after the nodes it depends on, unless they are part of a cycle.
+     */
+    public List<T> sort() {
+        int[] components = findComponents();
+        int componentCount = 0;
+        for (int c : components) {
+            componentCount = Math.max(componentCount, c + 1);
+        }
+
+        // The members of each component, in the order the nodes were added
+        List<List<Integer>> members = new ArrayList<>();
+        for (int c = 0; c < componentCount; c++) {
+            members.add(new ArrayList<>());
+        }
+        for (int i = 0; i < nodes.size(); i++) {
+            members.get(components[i]).add(i);
+        }
+
+        // The dependencies between components
+        List<Set<Integer>> componentDependents = new ArrayList<>();
+        for (int c = 0; c < componentCount; c++) {
+            componentDependents.add(new LinkedHashSet<>());
+        }
+        int[] dependencyCount = new int[componentCount];
+        for (int i = 0; i < nodes.size(); i++) {
+            for (int j : dependents.get(i)) {
+                if (components[i] != components[j] && componentDependents.get(components[i]).add(components[j])) {
+                    dependencyCount[components[j]]++;
+                }
+            }
+        }
+
+        // Of the components whose dependencies are ordered, take the one added first
+        PriorityQueue<Integer> ready = new PriorityQueue<>((a, b) -> members.get(a).get(0) - members.get(b).get(0));
+        for (int c = 0; c < componentCount; c++) {
+            if (dependencyCount[c] == 0) {
+                ready.add(c);
+            }
+        }
+        List<T> result = new ArrayList<>(nodes.size());
+        while (!ready.isEmpty()) {
+            int c = ready.poll();
+            for (int i : members.get(c)) {
+                result.add(nodes.get(i));
+            }
+            for (int d : componentDependents.get(c)) {
+                if (--dependencyCount[d] == 0) {
+                    ready.add(d);
+                }
+            }
+        }
+        return result;
+    }
+
+    private int getIndex(T node) {
+        Integer index = indexes.get(node);
+        if (index == null) {
+            index = nodes.size();
+            indexes.put(node, index);
+            nodes.add(node);
+            dependents.add(new LinkedHashSet<>());
+        }
+        return index;
+    }
+
+    /**
+     * Find the strongly connected components with Tarjan's algorithm,
+     * without recursion so that long dependency chains can be handled.
+     * @return The component of each node.
+     */
+    private int[] findComponents() {
+        int size = nodes.size();
+        int[] index = new int[size];
+        int[] lowLink = new int[size];
+        int[] components = new int[size];
+        boolean[] onStack = new boolean[size];
+        Arrays.fill(index, -1);
+
+        List<int[]> successors = new ArrayList<>();
+        for (Set<Integer> s : dependents) {
+            successors.add(s.stream().mapToInt(Integer::intValue).toArray());
+        }
+
+        Deque<Integer> stack = new ArrayDeque<>();
+        // The nodes being visited, with the position of the next successor to visit
+        Deque<int[]> visiting = new ArrayDeque<>();
+        int nextIndex = 0;
+        int nextComponent = 0;
+        for (int start = 0; start < size; start++) {
+            if (index[start] >= 0) {
+                continue;
+            }
+            visiting.push(new int[] {start, 0});
+            index[start] = lowLink[start] = nextIndex++;
+            stack.push(start);
+            onStack[start] = true;
+
+            while (!visiting.isEmpty()) {
+                int[] frame = visiting.peek();
+                int v = frame[0];
+                if (frame[1] < successors.get(v).length) {
+                    int w = successors.get(v)[frame[1]++];
+                    if (index[w] < 0) {
+                        index[w] = lowLink[w] = nextIndex++;
+                        stack.push(w);
+                        onStack[w] = true;
+                        visiting.push(new int[] {w, 0});
+                    } else if (onStack[w]) {
+                        lowLink[v] = Math.min(lowLink[v], index[w]);
+                    }
+                } else {
+                    visiting.pop();
+                    if (!visiting.isEmpty()) {
+                        int parent = visiting.peek()[0];
+                        lowLink[parent] = Math.min(lowLink[parent], lowLink[v]);
+                    }
+                    if (lowLink[v] == index[v]) {
+                        int w;
+                        do {
+                            w = stack.pop();
+                            onStack[w] = false;
+                            components[w] = nextComponent;
+                        } while (w != v);
+                        nextComponent++;
+                    }
+                }
+            }
+        }
+        return components;
+    }
+}
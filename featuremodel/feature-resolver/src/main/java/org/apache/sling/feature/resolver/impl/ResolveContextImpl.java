@@ -16,9 +16,6 @@
  */
 package org.apache.sling.feature.resolver.impl;
 
-import org.osgi.framework.Filter;
-import org.osgi.framework.FrameworkUtil;
-import org.osgi.framework.InvalidSyntaxException;
 import org.osgi.resource.Capability;
 import org.osgi.resource.Requirement;
 import org.osgi.resource.Resource;
@@ -26,7 +23,6 @@ import org.osgi.resource.Wiring;
 import org.osgi.service.resolver.HostedCapability;
 import org.osgi.service.resolver.ResolveContext;
 
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
@@ -36,8 +32,8 @@ import java.util.Map;
  * Implementation of the OSGi ResolveContext for use with the OSGi Resolver.
  */
 public class ResolveContextImpl extends ResolveContext {
-    private final Resource bundle;
-    private final Collection<? extends Resource> availableResources;
+    private final Collection<Resource> mandatoryResources;
+    private final CapabilityIndex capabilityIndex;
 
     /**
      * Constructor.
@@ -45,34 +41,36 @@ public class ResolveContextImpl extends ResolveContext {
      * @param available The available resources to provide dependencies.
      */
     public ResolveContextImpl(Resource mainResource, Collection<? extends Resource> available) {
-        bundle = mainResource;
-        availableResources = available;
+        this(mainResource, new CapabilityIndex(available));
+    }
+
+    /**
+     * Constructor.
+     * @param mainResource The main resource to resolve.
+     * @param index The index of the capabilities of the available resources.
+     */
+    public ResolveContextImpl(Resource mainResource, CapabilityIndex index) {
+        this(Collections.singleton(mainResource), index);
+    }
+
+    /**
+     * Constructor.
+     * @param mandatory The resources to resolve together.
+     * @param index The index of the capabilities of the available resources.
+     */
+    public ResolveContextImpl(Collection<Resource> mandatory, CapabilityIndex index) {
+        mandatoryResources = mandatory;
+        capabilityIndex = index;
     }
 
     @Override
     public Collection<Resource> getMandatoryResources() {
-        return Collections.singleton(bundle);
+        return mandatoryResources;
     }
 
     @Override
     public List<Capability> findProviders(Requirement requirement) {
-        List<Capability> providers = new ArrayList<>();
-
-        String f = requirement.getDirectives().get("filter");
-        try {
-            Filter filter = FrameworkUtil.createFilter(f);
-            for (Resource r : availableResources) {
-                for (Capability c : r.getCapabilities(requirement.getNamespace())) {
-                    if (filter.matches(c.getAttributes())) {
-                        providers.add(c);
-                    }
-                }
-            }
-        } catch (InvalidSyntaxException e) {
-            throw new RuntimeException("Invalid filter " + f + " in requirement " + requirement);
-        }
-
-        return providers;
+        return capabilityIndex.findProviders(requirement);
     }
 
     @Override
@@ -0,0 +1,232 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.sling.feature.resolver.impl;
+
+import org.apache.sling.feature.FeatureResource;
+import org.osgi.framework.BundleException;
+import org.osgi.framework.Constants;
+import org.osgi.framework.launch.Framework;
+import org.osgi.framework.launch.FrameworkFactory;
+import org.osgi.framework.namespace.BundleNamespace;
+import org.osgi.framework.namespace.IdentityNamespace;
+import org.osgi.framework.namespace.PackageNamespace;
+import org.osgi.framework.wiring.BundleRevision;
+import org.osgi.resource.Capability;
+import org.osgi.service.resolver.Resolver;
+import org.osgi.util.tracker.ServiceTracker;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An OSGi framework providing a resolver.
+ *
+ * Starting a framework takes long compared to resolving, so the frameworks
+ * are pooled: a framework acquired with the same properties is shared. When
+ * it is released as often as it was acquired, it keeps running for
+ * {@link #IDLE_TIMEOUT}, so that frameworks acquired one after another are
+ * started only once. Frameworks which are still running are stopped when
+ * the JVM shuts down.
+ */
+public class ResolverFramework {
+    /** The time to wait for the resolver service of a started framework. */
+    private static final long RESOLVER_TIMEOUT = TimeUnit.SECONDS.toMillis(10);
+
+    /** The time a released framework keeps running, to be acquired again. */
+    static final long IDLE_TIMEOUT = TimeUnit.SECONDS.toMillis(30);
+
+    private static final Map<Map<String, String>, ResolverFramework> pool = new HashMap<>();
+
+    /** Stops the idle frameworks, created with the first pooled framework, guarded by the class. */
+    private static ScheduledExecutorService idleStopper;
+
+    private final Framework framework;
+    private final ServiceTracker<Resolver, Resolver> tracker;
+    private final Resolver resolver;
+    private final FeatureResource frameworkResource;
+    private final String tempDirToBeDeleted;
+
+    /** The key of the framework in the pool, guarded by the class. */
+    private Map<String, String> poolKey;
+
+    /** The number of times the pooled framework is acquired, guarded by the class. */
+    private int references;
+
+    /** The scheduled stop of the released framework, guarded by the class. */
+    private ScheduledFuture<?> idleStop;
+
+    private ResolverFramework(Map<String, String> frameworkProperties, String tempDir) {
+        tempDirToBeDeleted = tempDir;
+        try {
+            FrameworkFactory fwf = ServiceLoader.load(FrameworkFactory.class).iterator().next();
+            framework = fwf.newFramework(frameworkProperties);
+            framework.init();
+            framework.start();
+
+            // Create a resource representing the framework
+            Map<String, List<Capability>> capabilities = new HashMap<>();
+            BundleRevision br = framework.adapt(BundleRevision.class);
+            capabilities.put(PackageNamespace.PACKAGE_NAMESPACE, br.getCapabilities(PackageNamespace.PACKAGE_NAMESPACE));
+            capabilities.put(BundleNamespace.BUNDLE_NAMESPACE, br.getCapabilities(BundleNamespace.BUNDLE_NAMESPACE));
+            capabilities.put(IdentityNamespace.IDENTITY_NAMESPACE, br.getCapabilities(IdentityNamespace.IDENTITY_NAMESPACE));
+            frameworkResource = new BundleResourceImpl(framework.getSymbolicName(), framework.getVersion(), null, null,
+                    capabilities, Collections.emptyMap());
+
+            // The framework registers the resolver service while starting, usually there is no need to wait
+            tracker = new ServiceTracker<>(framework.getBundleContext(), Resolver.class, null);
+            tracker.open();
+            resolver = tracker.waitForService(RESOLVER_TIMEOUT);
+        } catch (BundleException | InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Start a framework, which is not pooled.
+     * @param frameworkProperties The framework properties.
+     * @return The started framework, to be stopped with {@link #stop()}.
+     */
+    public static ResolverFramework start(Map<String, String> frameworkProperties) {
+        return new ResolverFramework(frameworkProperties, null);
+    }
+
+    /**
+     * Acquire a framework from the pool, starting it if there is none with
+     * the properties yet.
+     * @param frameworkProperties The framework properties or {@code null} to
+     * use a framework with its storage in a temporary directory.
+     * @return The framework, to be released with {@link #release()}.
+     */
+    public static synchronized ResolverFramework acquire(Map<String, String> frameworkProperties) {
+        ResolverFramework rf = pool.get(frameworkProperties);
+        if (rf != null && rf.idleStop != null) {
+            rf.idleStop.cancel(false);
+            rf.idleStop = null;
+        }
+        if (rf == null) {
+            if (idleStopper == null) {
+                idleStopper = Executors.newSingleThreadScheduledExecutor(r -> {
+                    Thread t = new Thread(r, "ResolverFramework idle stopper");
+                    t.setDaemon(true);
+                    return t;
+                });
+                Runtime.getRuntime().addShutdownHook(new Thread(ResolverFramework::stopPooled, "ResolverFramework shutdown"));
+            }
+            if (frameworkProperties == null) {
+                String temp = createTempDir();
+                rf = new ResolverFramework(Collections.singletonMap(Constants.FRAMEWORK_STORAGE, temp), temp);
+            } else {
+                rf = new ResolverFramework(frameworkProperties, null);
+            }
+            rf.poolKey = frameworkProperties == null ? null : new HashMap<>(frameworkProperties);
+            pool.put(rf.poolKey, rf);
+        }
+        rf.references++;
+        return rf;
+    }
+
+    /**
+     * Release a framework acquired from the pool. The framework is stopped
+     * after {@link #IDLE_TIMEOUT} if it is released as often as it was
+     * acquired and not acquired again meanwhile.
+     */
+    public void release() {
+        synchronized (ResolverFramework.class) {
+            if (references == 0 || --references > 0) {
+                return;
+            }
+            idleStop = idleStopper.schedule(this::stopIdle, IDLE_TIMEOUT, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void stopIdle() {
+        synchronized (ResolverFramework.class) {
+            if (references > 0 || pool.get(poolKey) != this) {
+                // acquired again or stopped on shutdown
+                return;
+            }
+            pool.remove(poolKey);
+            // stop while holding the lock, a framework acquired with the same
+            // properties must not be started on the storage of this one before
+            stopQuietly();
+        }
+    }
+
+    /**
+     * Stop all pooled frameworks, as the JVM shuts down.
+     */
+    private static synchronized void stopPooled() {
+        for (ResolverFramework rf : pool.values()) {
+            rf.stopQuietly();
+        }
+        pool.clear();
+    }
+
+    private void stopQuietly() {
+        try {
+            stop();
+        } catch (Exception e) {
+            // nobody uses the framework any more
+        }
+    }
+
+    /**
+     * Stop the framework and delete its storage if it's a temporary directory.
+     * @throws Exception If stopping fails.
+     */
+    public void stop() throws Exception {
+        tracker.close();
+        framework.stop();
+        framework.waitForStop(RESOLVER_TIMEOUT);
+
+        if (tempDirToBeDeleted != null) {
+            Files.walk(Paths.get(tempDirToBeDeleted))
+                .sorted(Comparator.reverseOrder())
+                .map(Path::toFile)
+                .forEach(File::delete);
+        }
+    }
+
+    public Resolver getResolver() {
+        return resolver;
+    }
+
+    public FeatureResource getFrameworkResource() {
+        return frameworkResource;
+    }
+
+    private static String createTempDir() {
+        try {
+            return Files.createTempDirectory("frameworkresolver").toFile().getAbsolutePath();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
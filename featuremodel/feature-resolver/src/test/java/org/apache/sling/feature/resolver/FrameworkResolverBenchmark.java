@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.sling.feature.resolver;
+
+import org.apache.sling.feature.resolver.impl.ResolverFramework;
+import org.apache.sling.feature.support.ArtifactManager;
+import org.apache.sling.feature.support.ArtifactManagerConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.osgi.framework.Constants;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the cost of starting the framework providing the resolver with
+ * the cost of creating, using and closing resolvers one after another, which
+ * share the pooled framework.
+ *
+ * Run with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.openjdk.jmh.Main -Dexec.args=FrameworkResolverBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FrameworkResolverBenchmark {
+    private Path tempDir;
+    private Map<String, String> frameworkProperties;
+    private Map<String, String> startProperties;
+    private ArtifactManager artifactManager;
+
+    @Setup
+    public void setup() throws Exception {
+        tempDir = Files.createTempDirectory(getClass().getSimpleName());
+        frameworkProperties = createProperties("pooled");
+        // the framework started by the benchmark must not use the storage of the pooled one
+        startProperties = createProperties("started");
+        artifactManager = ArtifactManager.getArtifactManager(new ArtifactManagerConfig());
+    }
+
+    private Map<String, String> createProperties(String storage) {
+        Map<String, String> properties = new HashMap<>();
+        properties.put(Constants.FRAMEWORK_STORAGE, tempDir.resolve(storage).toFile().getAbsolutePath());
+        properties.put(Constants.FRAMEWORK_STORAGE_CLEAN, Constants.FRAMEWORK_STORAGE_CLEAN_ONFIRSTINIT);
+        return properties;
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        Files.walk(tempDir)
+            .sorted(Comparator.reverseOrder())
+            .map(Path::toFile)
+            .forEach(File::delete);
+    }
+
+    @Benchmark
+    public void startFramework() throws Exception {
+        ResolverFramework.start(startProperties).stop();
+    }
+
+    @Benchmark
+    public Object pooledFramework() throws Exception {
+        // the framework released by the previous invocation is still running
+        try (FrameworkResolver resolver = new FrameworkResolver(artifactManager, frameworkProperties)) {
+            return resolver.orderResources(Collections.emptyList());
+        }
+    }
+}
@@ -38,9 +38,12 @@ import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 
 public class FrameworkResolverTest {
     private Path tempDir;
@@ -134,6 +137,42 @@ public class FrameworkResolverTest {
         assertEquals(expectedResources.toString(), actualResources.toString());
     }
 
+    @Test
+    public void testOrderResourcesSinglePass() throws Exception {
+        ArtifactManager am = ArtifactManager.getArtifactManager(new ArtifactManagerConfig());
+
+        Feature f1 = readFeature("/feature1.json", am);
+        Feature f2 = readFeature("/feature2.json", am);
+        Feature f3 = readFeature("/feature3.json", am);
+
+        List<FeatureResource> expected;
+        try (FeatureResolver fr = new FrameworkResolver(am, getFrameworkProps())) {
+            expected = fr.orderResources(Arrays.asList(f1, f2, f3));
+        }
+        List<FeatureResource> actual;
+        try (FeatureResolver fr = new FrameworkResolver(am, getFrameworkProps(), true)) {
+            actual = fr.orderResources(Arrays.asList(f1, f2, f3));
+        }
+
+        // The same resources are ordered, with every feature before its bundles
+        assertEquals(new HashSet<>(expected), new HashSet<>(actual));
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < actual.size(); i++) {
+            FeatureResource r = actual.get(i);
+            if (isBundle(r))
+                continue;
+            for (int j = 0; j < i; j++) {
+                assertFalse(actual.get(j).getId() + " before its feature", actual.get(j).getFeature() == r.getFeature());
+            }
+        }
+    }
+
+    private static boolean isBundle(FeatureResource r) {
+        return IdentityNamespace.TYPE_BUNDLE.equals(
+                r.getCapabilities(IdentityNamespace.IDENTITY_NAMESPACE).iterator().next().
+                getAttributes().get(IdentityNamespace.CAPABILITY_TYPE_ATTRIBUTE));
+    }
+
     private Feature readFeature(final String res,
             final ArtifactManager artifactManager) throws Exception {
         URL url = getClass().getResource(res);
@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.sling.feature.resolver.impl;
+
+import org.apache.sling.feature.OSGiCapability;
+import org.apache.sling.feature.OSGiRequirement;
+import org.junit.Test;
+import org.osgi.framework.Filter;
+import org.osgi.framework.FrameworkUtil;
+import org.osgi.framework.Version;
+import org.osgi.framework.namespace.BundleNamespace;
+import org.osgi.framework.namespace.PackageNamespace;
+import org.osgi.resource.Capability;
+import org.osgi.resource.Requirement;
+import org.osgi.resource.Resource;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class CapabilityIndexTest {
+    @Test
+    public void testRequiredValue() {
+        assertEquals("org.foo", CapabilityIndex.getRequiredValue("(osgi.wiring.package=org.foo)", "osgi.wiring.package"));
+        assertEquals("org.foo", CapabilityIndex.getRequiredValue(
+                "(&(version>=1.0.0)(osgi.wiring.package=org.foo)(!(version>=2.0.0)))", "osgi.wiring.package"));
+        assertEquals("a(b)*", CapabilityIndex.getRequiredValue("(&(x=a\\(b\\)\\*))", "x"));
+        assertNull(CapabilityIndex.getRequiredValue("(osgi.wiring.package=org.*)", "osgi.wiring.package"));
+        assertNull(CapabilityIndex.getRequiredValue("(osgi.wiring.package>=org.foo)", "osgi.wiring.package"));
+        assertNull(CapabilityIndex.getRequiredValue("(|(osgi.wiring.package=a)(osgi.wiring.package=b))", "osgi.wiring.package"));
+        assertNull(CapabilityIndex.getRequiredValue("(!(osgi.wiring.package=a))", "osgi.wiring.package"));
+        assertNull(CapabilityIndex.getRequiredValue("(&(!(osgi.wiring.package=a)))", "osgi.wiring.package"));
+        assertNull(CapabilityIndex.getRequiredValue("(osgi.wiring.bundle=a)", "osgi.wiring.package"));
+    }
+
+    @Test
+    public void testSameProvidersAsScan() throws Exception {
+        List<Resource> resources = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            resources.add(new TestResource(
+                    packageCapability("org.p" + (i % 5), "1." + i),
+                    packageCapability("org.q" + i, "1"),
+                    bundleCapability("b" + (i % 3))));
+        }
+        CapabilityIndex index = new CapabilityIndex(resources);
+
+        String[][] requirements = {
+                {PackageNamespace.PACKAGE_NAMESPACE, "(osgi.wiring.package=org.p1)"},
+                {PackageNamespace.PACKAGE_NAMESPACE, "(&(osgi.wiring.package=org.p2)(version>=1.5.0)(!(version>=1.15.0)))"},
+                {PackageNamespace.PACKAGE_NAMESPACE, "(osgi.wiring.package=org.p*)"},
+                {PackageNamespace.PACKAGE_NAMESPACE, "(|(osgi.wiring.package=org.q3)(osgi.wiring.package=org.p4))"},
+                {PackageNamespace.PACKAGE_NAMESPACE, "(osgi.wiring.package=org.missing)"},
+                {PackageNamespace.PACKAGE_NAMESPACE, "(version>=1.10.0)"},
+                {BundleNamespace.BUNDLE_NAMESPACE, "(&(osgi.wiring.bundle=b2)(bundle-version>=0))"},
+                {"other", "(a=b)"}
+        };
+        for (String[] r : requirements) {
+            Requirement req = new OSGiRequirement(r[0], Collections.emptyMap(), Collections.singletonMap("filter", r[1]));
+            assertEquals(r[1], scan(resources, req), index.findProviders(req));
+        }
+    }
+
+    private static List<Capability> scan(List<Resource> resources, Requirement req) throws Exception {
+        Filter filter = FrameworkUtil.createFilter(req.getDirectives().get("filter"));
+        List<Capability> result = new ArrayList<>();
+        for (Resource r : resources) {
+            for (Capability c : r.getCapabilities(req.getNamespace())) {
+                if (filter.matches(c.getAttributes())) {
+                    result.add(c);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static Capability packageCapability(String pkg, String version) {
+        Map<String, Object> attrs = new HashMap<>();
+        attrs.put(PackageNamespace.PACKAGE_NAMESPACE, pkg);
+        attrs.put(PackageNamespace.CAPABILITY_VERSION_ATTRIBUTE, new Version(version));
+        return new OSGiCapability(PackageNamespace.PACKAGE_NAMESPACE, attrs, Collections.emptyMap());
+    }
+
+    private static Capability bundleCapability(String bsn) {
+        Map<String, Object> attrs = new HashMap<>();
+        attrs.put(BundleNamespace.BUNDLE_NAMESPACE, bsn);
+        attrs.put(BundleNamespace.CAPABILITY_BUNDLE_VERSION_ATTRIBUTE, new Version("1"));
+        return new OSGiCapability(BundleNamespace.BUNDLE_NAMESPACE, attrs, Collections.emptyMap());
+    }
+
+    private static class TestResource implements Resource {
+        private final List<Capability> capabilities;
+
+        TestResource(Capability... capabilities) {
+            this.capabilities = Arrays.asList(capabilities);
+        }
+
+        @Override
+        public List<Capability> getCapabilities(String namespace) {
+            List<Capability> result = new ArrayList<>();
+            for (Capability c : capabilities) {
+                if (namespace == null || namespace.equals(c.getNamespace())) {
+                    result.add(c);
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public List<Requirement> getRequirements(String namespace) {
+            return Collections.emptyList();
+        }
+    }
+}
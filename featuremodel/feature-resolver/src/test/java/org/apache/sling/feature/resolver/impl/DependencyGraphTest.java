@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.sling.feature.resolver.impl;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DependencyGraphTest {
+    @Test
+    public void testEmpty() {
+        assertEquals(Collections.emptyList(), new DependencyGraph<String>().sort());
+    }
+
+    @Test
+    public void testIndependentNodesKeepOrder() {
+        DependencyGraph<String> graph = new DependencyGraph<>();
+        graph.addNode("c");
+        graph.addNode("a");
+        graph.addNode("b");
+        graph.addNode("a");
+        assertEquals(Arrays.asList("c", "a", "b"), graph.sort());
+    }
+
+    @Test
+    public void testDependencies() {
+        DependencyGraph<String> graph = new DependencyGraph<>();
+        graph.addNode("a");
+        graph.addNode("b");
+        graph.addNode("c");
+        graph.addNode("d");
+        graph.addDependency("a", "c");
+        graph.addDependency("c", "d");
+        graph.addDependency("b", "b");
+        assertEquals(Arrays.asList("b", "d", "c", "a"), graph.sort());
+    }
+
+    @Test
+    public void testCycles() {
+        DependencyGraph<String> graph = new DependencyGraph<>();
+        graph.addNode("x");
+        // a -> b -> c -> a, and c depends on d, x depends on b
+        graph.addDependency("a", "b");
+        graph.addDependency("b", "c");
+        graph.addDependency("c", "a");
+        graph.addDependency("c", "d");
+        graph.addDependency("x", "b");
+        graph.addNode("e");
+        assertEquals(Arrays.asList("d", "a", "b", "c", "x", "e"), graph.sort());
+    }
+
+    @Test
+    public void testLongChain() {
+        DependencyGraph<Integer> graph = new DependencyGraph<>();
+        int size = 100000;
+        for (int i = 0; i < size; i++) {
+            graph.addDependency(i, i + 1);
+        }
+        // and a cycle over the whole chain
+        graph.addDependency(size, 0);
+        List<Integer> sorted = graph.sort();
+        assertEquals(size + 1, sorted.size());
+        for (int i = 0; i <= size; i++) {
+            assertEquals(i, sorted.get(i).intValue());
+        }
+
+        graph = new DependencyGraph<>();
+        for (int i = 0; i < size; i++) {
+            graph.addDependency(i, i + 1);
+        }
+        sorted = graph.sort();
+        assertTrue(sorted.get(0) == size);
+        assertTrue(sorted.get(size) == 0);
+    }
+}
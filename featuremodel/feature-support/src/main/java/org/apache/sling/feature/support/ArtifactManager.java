@@ -17,24 +17,42 @@
 package org.apache.sling.feature.support;
 
 import org.apache.sling.feature.ArtifactId;
+import org.apache.sling.feature.support.impl.DownloadUtil;
+import org.apache.sling.feature.support.impl.DownloadUtil.Result;
 import org.apache.sling.feature.support.spi.ArtifactProvider;
 import org.apache.sling.feature.support.spi.ArtifactProviderContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.net.MalformedURLException;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLConnection;
 import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.ServiceLoader;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * The artifact manager is the central service to get artifacts.
@@ -51,6 +69,21 @@ public class ArtifactManager {
     /** The configuration */
     private final ArtifactManagerConfig config;
 
+    /** The artifacts currently fetched from the repositories, by repository path. */
+    private final Map<String, CompletableFuture<ArtifactHandler>> inFlight = new ConcurrentHashMap<>();
+
+    /** The permits for concurrent requests, by repository url. */
+    private final Map<String, Semaphore> repositoryPermits = new ConcurrentHashMap<>();
+
+    /** The repositories known to miss artifacts and the repositories of groups. */
+    private final RepositoryCache repositoryCache;
+
+    /** The latest SNAPSHOT versions by metadata url, empty if there is none. */
+    private final Map<String, String> snapshotVersions = new ConcurrentHashMap<>();
+
+    /** The threads fetching several artifacts at once, created on first use. */
+    private ExecutorService executor;
+
     /**
      * Get an artifact manager based on the configuration
      * @param config The configuration
@@ -82,6 +115,7 @@ public class ArtifactManager {
     throws IOException {
         this.config = config;
         this.providers = providers;
+        this.repositoryCache = new RepositoryCache(config.getCacheDirectory(), config.getMissTimeToLive());
         try {
             for(final ArtifactProvider provider : this.providers.values()) {
                 provider.init(config);
@@ -96,12 +130,28 @@ public class ArtifactManager {
      * Shutdown the artifact manager.
      */
     public void shutdown() {
+        synchronized ( this ) {
+            if ( this.executor != null ) {
+                this.executor.shutdownNow();
+                this.executor = null;
+            }
+        }
+        this.repositoryCache.save();
         for(final ArtifactProvider provider : this.providers.values()) {
             provider.shutdown();
         }
         this.providers.clear();
     }
 
+    /**
+     * Get the directory where the artifacts and information derived
+     * from them are cached.
+     * @return The cache directory, might be {@code null}.
+     */
+    public File getCacheDirectory() {
+        return this.config.getCacheDirectory();
+    }
+
     private final File getArtifactFromProviders(final String url, final String relativeCachePath) throws IOException {
         final int pos = url.indexOf(":");
         final String scheme = url.substring(0, pos);
@@ -156,9 +206,91 @@ public class ArtifactManager {
             }
             return new ArtifactHandler(f.toURI().toString(), f);
         }
+        return getArtifactHandlerFromRepositories(url, path);
+    }
+
+    /**
+     * Get the handlers for several artifacts at once. The artifacts are fetched
+     * concurrently, limited by the number of threads and the number of connections
+     * per repository of the configuration.
+     * @param urls Artifact urls or relative paths, see {@link #getArtifactHandler(String)}.
+     * @return The handlers by url, in the order of the urls.
+     * @throws IOException If an artifact can't be found. The failures for further
+     *         artifacts are added as suppressed exceptions.
+     */
+    public Map<String, ArtifactHandler> getArtifactHandlers(final Collection<String> urls) throws IOException {
+        final Map<String, Future<ArtifactHandler>> futures = new LinkedHashMap<>();
+        for(final String url : urls) {
+            if ( !futures.containsKey(url) ) {
+                futures.put(url, getExecutor().submit(() -> getArtifactHandler(url)));
+            }
+        }
+        final Map<String, ArtifactHandler> result = new LinkedHashMap<>();
+        IOException failure = null;
+        for(final Map.Entry<String, Future<ArtifactHandler>> entry : futures.entrySet()) {
+            try {
+                result.put(entry.getKey(), await(entry.getValue()));
+            } catch ( final IOException e ) {
+                if ( failure == null ) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        this.repositoryCache.save();
+        if ( failure != null ) {
+            throw failure;
+        }
+        return result;
+    }
+
+    private synchronized ExecutorService getExecutor() {
+        if ( this.executor == null ) {
+            final int threads = Math.max(1, this.config.getThreads());
+            final AtomicInteger count = new AtomicInteger();
+            final ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 10, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(),
+                    r -> {
+                        final Thread t = new Thread(r, "artifact-manager-" + count.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    });
+            pool.allowCoreThreadTimeOut(true);
+            this.executor = pool;
+        }
+        return this.executor;
+    }
+
+    /**
+     * Get an artifact from the repositories. Concurrent requests for the same
+     * path wait for the first one instead of fetching the artifact again.
+     */
+    private ArtifactHandler getArtifactHandlerFromRepositories(final String url, final String path) throws IOException {
+        final CompletableFuture<ArtifactHandler> future = new CompletableFuture<>();
+        final CompletableFuture<ArtifactHandler> existing = this.inFlight.putIfAbsent(path, future);
+        if ( existing != null ) {
+            logger.debug("Waiting for concurrent request of {}", path);
+            return await(existing);
+        }
+        try {
+            final ArtifactHandler handler = queryRepositories(url, path);
+            future.complete(handler);
+            return handler;
+        } catch ( final Throwable t ) {
+            future.completeExceptionally(t);
+            throw t;
+        } finally {
+            this.inFlight.remove(path, future);
+        }
+    }
+
+    private ArtifactHandler queryRepositories(final String url, final String path) throws IOException {
         logger.debug("Querying repositories for {}", path);
 
-        for(final String repoUrl : this.config.getRepositoryUrls()) {
+        // failures of repositories which might have the artifact
+        IOException failure = null;
+        for(final String repoUrl : this.repositoryCache.getRepositoryUrls(this.config.getRepositoryUrls(), path)) {
             final StringBuilder builder = new StringBuilder();
             builder.append(repoUrl);
             builder.append('/');
@@ -176,12 +308,32 @@ public class ArtifactManager {
                 throw new IOException("No URL handler found for " + artifactUrl);
             }
 
-            logger.debug("Checking {} to get artifact from {}", handler, artifactUrl);
+            if ( this.repositoryCache.isMissing(repoUrl, path) ) {
+                logger.debug("Skipping {} which recently did not have {}", repoUrl, path);
+            } else {
+                logger.debug("Checking {} to get artifact from {}", handler, artifactUrl);
 
-            final File file = handler.getArtifact(artifactUrl, path);
-            if ( file != null ) {
-                logger.debug("Found artifact {}", artifactUrl);
-                return new ArtifactHandler(artifactUrl, file);
+                try {
+                    final File file = getArtifact(repoUrl, handler, artifactUrl, path);
+                    if ( file != null ) {
+                        logger.debug("Found artifact {}", artifactUrl);
+                        this.repositoryCache.addFound(repoUrl, path);
+                        return new ArtifactHandler(artifactUrl, file);
+                    }
+                    this.repositoryCache.addMissing(repoUrl, path);
+                } catch ( final IOException e) {
+                    if ( Thread.currentThread().isInterrupted() ) {
+                        // interrupted, unlike a timeout which is an InterruptedIOException as well
+                        throw e;
+                    }
+                    // not remembered as a miss, the repository might have the artifact
+                    logger.info("Unable to get artifact {} : {}", artifactUrl, e.getMessage());
+                    if ( failure == null ) {
+                        failure = e;
+                    } else {
+                        failure.addSuppressed(e);
+                    }
+                }
             }
 
             // check for SNAPSHOT
@@ -192,11 +344,7 @@ public class ArtifactManager {
                 // special snapshot handling
                 final String metadataUrl = artifactUrl.substring(0, lastSlash) + "/maven-metadata.xml";
                 try {
-                    final ArtifactHandler metadataHandler = this.getArtifactHandler(metadataUrl);
-
-                    final String contents = getFileContents(metadataHandler);
-
-                    final String latestVersion = getLatestSnapshot(contents);
+                    final String latestVersion = getLatestSnapshotVersion(metadataUrl);
                     if ( latestVersion != null ) {
                         final String name = artifactUrl.substring(lastSlash); // includes slash
                         final String fullURL = artifactUrl.substring(0, lastSlash) + name.replace("SNAPSHOT", latestVersion);
@@ -204,10 +352,11 @@ public class ArtifactManager {
                         while ( fullURL.charAt(pos2) == '/') {
                             pos2++;
                         }
-                        final File file2 = this.getArtifactFromProviders(fullURL, path);
+                        final File file2 = getArtifact(repoUrl, null, fullURL, path);
                         if ( file2 == null || !file2.exists()) {
                             throw new IOException("Artifact " + fullURL + " not found.");
                         }
+                        this.repositoryCache.addFound(repoUrl, path);
                         return new ArtifactHandler(artifactUrl, file2);
                     }
                 } catch ( final IOException ignore ) {
@@ -216,9 +365,80 @@ public class ArtifactManager {
             }
         }
 
+        if ( failure != null ) {
+            throw new IOException("Unable to get artifact " + url + " from any repository.", failure);
+        }
         throw new IOException("Artifact " + url + " not found in any repository.");
     }
 
+    /**
+     * Get the latest version of a SNAPSHOT, reading the metadata only once per run.
+     * @param metadataUrl The url of the metadata
+     * @return The latest version or {@code null}
+     * @throws IOException If the metadata can't be read
+     */
+    private String getLatestSnapshotVersion(final String metadataUrl) throws IOException {
+        String version = this.snapshotVersions.get(metadataUrl);
+        if ( version == null ) {
+            final ArtifactHandler metadataHandler = this.getArtifactHandler(metadataUrl);
+
+            final String contents = getFileContents(metadataHandler);
+
+            final String latestVersion = getLatestSnapshot(contents);
+            version = latestVersion == null ? "" : latestVersion;
+            this.snapshotVersions.put(metadataUrl, version);
+        }
+        return version.isEmpty() ? null : version;
+    }
+
+    /**
+     * Get an artifact, limiting the concurrent requests to the repository.
+     * @param provider The provider or {@code null} to select it by the url.
+     */
+    private File getArtifact(final String repoUrl,
+            final ArtifactProvider provider,
+            final String url,
+            final String path) throws IOException {
+        final int connections = this.config.getConnectionsPerRepository();
+        final Semaphore permits = connections > 0
+                ? this.repositoryPermits.computeIfAbsent(repoUrl, key -> new Semaphore(connections))
+                : null;
+        if ( permits != null ) {
+            try {
+                permits.acquire();
+            } catch ( final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for " + url);
+            }
+        }
+        try {
+            return provider != null ? provider.getArtifact(url, path) : this.getArtifactFromProviders(url, path);
+        } finally {
+            if ( permits != null ) {
+                permits.release();
+            }
+        }
+    }
+
+    private static ArtifactHandler await(final Future<ArtifactHandler> future) throws IOException {
+        try {
+            return future.get();
+        } catch ( final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for artifact");
+        } catch ( final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if ( cause instanceof IOException ) {
+                throw new IOException(cause.getMessage(), cause);
+            } else if ( cause instanceof RuntimeException ) {
+                throw (RuntimeException)cause;
+            } else if ( cause instanceof Error ) {
+                throw (Error)cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
     protected String getFileContents(final ArtifactHandler handler) throws IOException {
         final StringBuilder sb = new StringBuilder();
         for(final String line : Files.readAllLines(handler.getFile().toPath())) {
@@ -289,7 +509,7 @@ public class ArtifactManager {
         }
 
         @Override
-        public File getArtifact(final String url, final String relativeCachePath) {
+        public File getArtifact(final String url, final String relativeCachePath) throws IOException {
             logger.debug("Checking url to be local file {}", url);
             // check if this is already a local file
             try {
@@ -307,55 +527,75 @@ public class ArtifactManager {
                 // ignore
             }
             logger.debug("Checking remote url {}", url);
-            try {
-                // check for url
-                if ( url.indexOf(":") == -1 ) {
+            // check for url
+            if ( url.indexOf(":") == -1 ) {
+                return null;
+            }
+
+            final File cacheFile = DownloadUtil.getCacheFile(this.cacheDir, relativeCachePath);
+
+            if ( !cacheFile.exists() ) {
+                cacheFile.getParentFile().mkdirs();
+                final Result result = download(url, cacheFile);
+                if ( result == Result.NOT_FOUND ) {
                     return null;
                 }
+                if ( result == Result.DOWNLOADED ) {
+                    this.config.incDownloadedArtifacts();
+                } else {
+                    this.config.incCachedArtifacts();
+                }
+            } else {
+                this.config.incCachedArtifacts();
+            }
+            return cacheFile;
+        }
 
-                final String filePath = (this.cacheDir.getAbsolutePath() + File.separatorChar + relativeCachePath).replace('/', File.separatorChar);
-                final File cacheFile = new File(filePath);
-
-                if ( !cacheFile.exists() ) {
-                    cacheFile.getParentFile().mkdirs();
-                    final URL u = new URL(url);
-                    final URLConnection con = u.openConnection();
-                    con.connect();
+        /**
+         * Download an artifact into the cache. The artifact is written to a temporary
+         * file, verified against the checksum provided by the repository and then moved
+         * into place, so the cache never contains partial artifacts.
+         * @return {@code CACHED} if the artifact has been stored by someone else meanwhile.
+         */
+        private Result download(final String url, final File cacheFile) throws IOException {
+            final ArtifactProviderContext context = this.config;
+            return DownloadUtil.lockAndDownload(cacheFile, () -> {
+                if ( cacheFile.exists() ) {
+                    return Result.CACHED;
+                }
+                return DownloadUtil.retry(url, context, () -> fetch(url, cacheFile, context));
+            });
+        }
 
-                    final InputStream readIS = con.getInputStream();
+        private Result fetch(final String url, final File cacheFile, final ArtifactProviderContext context) throws IOException {
+            final File tmp = File.createTempFile(cacheFile.getName(), ".tmp", cacheFile.getParentFile());
+            try {
+                final MessageDigest sha1 = DownloadUtil.getDigest("SHA-1");
+                final MessageDigest md5 = DownloadUtil.getDigest("MD5");
+                final URLConnection con = DownloadUtil.openConnection(url, context);
+                final InputStream is;
+                try {
+                    is = con.getInputStream();
+                } catch ( final FileNotFoundException e) {
+                    // the artifact does not exist
+                    return Result.NOT_FOUND;
+                }
+                try ( final InputStream readIS = is;
+                      final OutputStream os = new FileOutputStream(tmp) ) {
                     final byte[] buffer = new byte[32768];
                     int l;
-                    OutputStream os = null;
-                    try {
-                        os = new FileOutputStream(cacheFile);
-                        while ( (l = readIS.read(buffer)) >= 0 ) {
-                            os.write(buffer, 0, l);
-                        }
-                    } finally {
-                        try {
-                            readIS.close();
-                        } catch ( final IOException ignore) {
-                            // ignore
-                        }
-                        if ( os != null ) {
-                            try {
-                                os.close();
-                            } catch ( final IOException ignore ) {
-                                // ignore
-
-                            }
-                        }
+                    while ( (l = readIS.read(buffer)) >= 0 ) {
+                        os.write(buffer, 0, l);
+                        sha1.update(buffer, 0, l);
+                        md5.update(buffer, 0, l);
                     }
-                    this.config.incDownloadedArtifacts();
-                } else {
-                    this.config.incCachedArtifacts();
                 }
-                return cacheFile;
-            } catch ( final Exception e) {
-                logger.info("Artifact not found in one repository", e);
-                // ignore for now
-                return null;
+                DownloadUtil.verify(url, sha1, md5, context);
+                Files.move(tmp.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                tmp.delete();
             }
+            return Result.DOWNLOADED;
         }
 
         @Override
@@ -21,6 +21,8 @@ import org.apache.sling.feature.support.spi.ArtifactProviderContext;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * This class holds the configuration of artifact manager.
@@ -33,11 +35,32 @@ public class ArtifactManagerConfig implements ArtifactProviderContext {
     /** The cache directory. */
     private volatile File cacheDirectory;
 
-    private volatile long cachedArtifacts;
+    /** The number of threads fetching artifacts concurrently. */
+    private volatile int threads = 8;
 
-    private volatile long downloadedArtifacts;
+    /** The maximum number of concurrent requests per repository. */
+    private volatile int connectionsPerRepository = 4;
 
-    private volatile long localArtifacts;
+    /** The time in milliseconds a repository not having an artifact is remembered. */
+    private volatile long missTimeToLive = TimeUnit.HOURS.toMillis(1);
+
+    /** The timeout in milliseconds for connecting to a remote repository. */
+    private volatile int connectTimeout = 10000;
+
+    /** The timeout in milliseconds for reading from a remote repository. */
+    private volatile int readTimeout = 60000;
+
+    /** The number of retries of a failed request. */
+    private volatile int retries = 3;
+
+    /** The time in milliseconds to wait before the first retry. */
+    private volatile long retryDelay = 500;
+
+    private final AtomicLong cachedArtifacts = new AtomicLong();
+
+    private final AtomicLong downloadedArtifacts = new AtomicLong();
+
+    private final AtomicLong localArtifacts = new AtomicLong();
 
     /**
      * Create a new configuration object.
@@ -97,30 +120,132 @@ public class ArtifactManagerConfig implements ArtifactProviderContext {
         this.cacheDirectory = dir;
     }
 
+    /**
+     * Get the number of threads used to fetch several artifacts concurrently.
+     * @return The number of threads.
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Set the number of threads used to fetch several artifacts concurrently.
+     * @param threads The number of threads, at least {@code 1}.
+     */
+    public void setThreads(final int threads) {
+        this.threads = threads;
+    }
+
+    /**
+     * Get the maximum number of concurrent requests to a single repository.
+     * @return The maximum number of requests, {@code 0} for no limit.
+     */
+    public int getConnectionsPerRepository() {
+        return connectionsPerRepository;
+    }
+
+    /**
+     * Set the maximum number of concurrent requests to a single repository.
+     * @param connections The maximum number of requests, {@code 0} for no limit.
+     */
+    public void setConnectionsPerRepository(final int connections) {
+        this.connectionsPerRepository = connections;
+    }
+
+    /**
+     * Get the time a repository not having an artifact is remembered.
+     * During this time, the repository is not asked for the artifact again.
+     * @return The time in milliseconds, {@code 0} if misses are not remembered.
+     */
+    public long getMissTimeToLive() {
+        return missTimeToLive;
+    }
+
+    /**
+     * Set the time a repository not having an artifact is remembered.
+     * @param missTimeToLive The time in milliseconds, {@code 0} to not remember misses.
+     */
+    public void setMissTimeToLive(final long missTimeToLive) {
+        this.missTimeToLive = missTimeToLive;
+    }
+
+    @Override
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    /**
+     * Set the timeout for connecting to a remote repository.
+     * @param connectTimeout The timeout in milliseconds, {@code 0} for no timeout.
+     */
+    public void setConnectTimeout(final int connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    @Override
+    public int getReadTimeout() {
+        return readTimeout;
+    }
+
+    /**
+     * Set the timeout for reading from a remote repository.
+     * @param readTimeout The timeout in milliseconds, {@code 0} for no timeout.
+     */
+    public void setReadTimeout(final int readTimeout) {
+        this.readTimeout = readTimeout;
+    }
+
+    @Override
+    public int getRetries() {
+        return retries;
+    }
+
+    /**
+     * Set the number of times a failed request to a remote repository is retried.
+     * @param retries The number of retries, {@code 0} to not retry.
+     */
+    public void setRetries(final int retries) {
+        this.retries = retries;
+    }
+
+    @Override
+    public long getRetryDelay() {
+        return retryDelay;
+    }
+
+    /**
+     * Set the time to wait before retrying a failed request. The time
+     * is doubled for every further retry.
+     * @param retryDelay The time in milliseconds.
+     */
+    public void setRetryDelay(final long retryDelay) {
+        this.retryDelay = retryDelay;
+    }
+
     @Override
     public void incCachedArtifacts() {
-        this.cachedArtifacts++;
+        this.cachedArtifacts.incrementAndGet();
     }
 
     @Override
     public void incDownloadedArtifacts() {
-        this.downloadedArtifacts++;
+        this.downloadedArtifacts.incrementAndGet();
     }
 
     @Override
     public void incLocalArtifacts() {
-        this.localArtifacts++;
+        this.localArtifacts.incrementAndGet();
     }
 
     public long getCachedArtifacts() {
-        return this.cachedArtifacts;
+        return this.cachedArtifacts.get();
     }
 
     public long getDownloadedArtifacts() {
-        return this.downloadedArtifacts;
+        return this.downloadedArtifacts.get();
     }
 
     public long getLocalArtifacts() {
-        return this.localArtifacts;
+        return this.localArtifacts.get();
     }
 }
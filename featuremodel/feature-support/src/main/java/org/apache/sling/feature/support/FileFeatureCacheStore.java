@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.sling.feature.support;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import javax.json.JsonException;
+
+import org.apache.sling.feature.ArtifactId;
+import org.apache.sling.feature.Feature;
+import org.apache.sling.feature.process.FeatureCacheStore;
+import org.apache.sling.feature.support.json.FeatureJSONReader;
+import org.apache.sling.feature.support.json.FeatureJSONReader.SubstituteVariables;
+import org.apache.sling.feature.support.json.FeatureJSONWriter;
+import org.apache.sling.feature.support.util.FileUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A feature cache store keeping the assembled features as JSON files
+ * in a directory.
+ */
+public class FileFeatureCacheStore implements FeatureCacheStore {
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private final File directory;
+
+    /**
+     * Create a new store
+     * @param directory The directory for the assembled features, created if missing
+     */
+    public FileFeatureCacheStore(final File directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    public Feature load(final ArtifactId id, final String hash) {
+        final File file = getFile(id, hash);
+        if ( !file.isFile() ) {
+            return null;
+        }
+        try ( final Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8) ) {
+            final Feature feature = FeatureJSONReader.read(reader, id, null, SubstituteVariables.NONE);
+            logger.debug("Loaded assembled feature {} from {}", id, file);
+            return feature;
+        } catch ( final IOException | JsonException e) {
+            logger.warn("Ignoring unreadable assembled feature " + file, e);
+            return null;
+        }
+    }
+
+    @Override
+    public void store(final ArtifactId id, final String hash, final Feature feature) {
+        final File file = getFile(id, hash);
+        try {
+            FileUtil.writeAtomically(file, tmp -> {
+                try ( final Writer writer = Files.newBufferedWriter(tmp.toPath(), StandardCharsets.UTF_8) ) {
+                    FeatureJSONWriter.write(writer, feature);
+                }
+            });
+            logger.debug("Stored assembled feature {} in {}", id, file);
+        } catch ( final IOException e) {
+            logger.warn("Unable to store assembled feature " + id + " in " + file, e);
+        }
+    }
+
+    private File getFile(final ArtifactId id, final String hash) {
+        final String path = id.toMvnPath();
+        return new File(this.directory, path.substring(0, path.lastIndexOf('/') + 1) + hash + ".json");
+    }
+}
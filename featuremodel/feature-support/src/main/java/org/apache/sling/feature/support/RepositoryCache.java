@@ -0,0 +1,225 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.sling.feature.support;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.sling.feature.support.util.FileUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Remembers which remote repositories don't have an artifact and which
+ * repository provided the artifacts of a group. Lookups skip repositories
+ * known to miss an artifact and try the repository of the group first.
+ * Local file repositories are cheap to check and are neither skipped nor
+ * reordered.
+ * The information is kept in a file in the cache directory, so it is
+ * shared between runs. If several processes share the cache directory,
+ * the last one saving wins.
+ */
+class RepositoryCache {
+
+    /** The name of the file in the cache directory. */
+    private static final String FILE_NAME = ".repositories";
+
+    private static final String MISS = "miss";
+
+    private static final String GROUP = "group";
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    /** The file or {@code null}. */
+    private final File file;
+
+    /** The time in milliseconds a miss is remembered. */
+    private final long missTimeToLive;
+
+    /** The expiry of the misses, by repository url and path. */
+    private final Map<String, Long> misses = new ConcurrentHashMap<>();
+
+    /** The repository urls, by group path. */
+    private final Map<String, String> groups = new ConcurrentHashMap<>();
+
+    private volatile boolean changed;
+
+    /**
+     * Create a new cache
+     * @param cacheDirectory The cache directory or {@code null} to keep the information in memory only.
+     * @param missTimeToLive The time in milliseconds a miss is remembered, {@code 0} to not remember misses.
+     */
+    RepositoryCache(final File cacheDirectory, final long missTimeToLive) {
+        this.file = cacheDirectory == null ? null : new File(cacheDirectory, FILE_NAME);
+        this.missTimeToLive = missTimeToLive;
+        if ( this.file != null && this.file.isFile() ) {
+            load();
+        }
+    }
+
+    /**
+     * Get the repositories to query for an artifact, starting with the
+     * local repositories followed by the one which provided the group before.
+     * @param repositoryUrls The configured repository urls
+     * @param path The repository path of the artifact
+     * @return The repository urls in the order to query them
+     */
+    List<String> getRepositoryUrls(final String[] repositoryUrls, final String path) {
+        final List<String> result = new ArrayList<>(repositoryUrls.length);
+        final String groupPath = getGroupPath(path);
+        final String preferred = groupPath == null ? null : this.groups.get(groupPath);
+        for(final String repoUrl : repositoryUrls) {
+            if ( !isRemote(repoUrl) ) {
+                result.add(repoUrl);
+            }
+        }
+        for(final String repoUrl : repositoryUrls) {
+            if ( repoUrl.equals(preferred) ) {
+                result.add(repoUrl);
+            }
+        }
+        for(final String repoUrl : repositoryUrls) {
+            if ( isRemote(repoUrl) && !repoUrl.equals(preferred) ) {
+                result.add(repoUrl);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Check whether a repository is known to miss an artifact
+     * @param repoUrl The repository url
+     * @param path The repository path of the artifact
+     * @return {@code true} if the repository missed the artifact recently
+     */
+    boolean isMissing(final String repoUrl, final String path) {
+        final String key = repoUrl + '\t' + path;
+        final Long expiry = this.misses.get(key);
+        if ( expiry == null ) {
+            return false;
+        }
+        if ( expiry < System.currentTimeMillis() ) {
+            this.misses.remove(key, expiry);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Remember that a repository doesn't have an artifact
+     * @param repoUrl The repository url
+     * @param path The repository path of the artifact
+     */
+    void addMissing(final String repoUrl, final String path) {
+        if ( this.missTimeToLive > 0 && isRemote(repoUrl) ) {
+            this.misses.put(repoUrl + '\t' + path, System.currentTimeMillis() + this.missTimeToLive);
+            this.changed = true;
+        }
+    }
+
+    /**
+     * Remember that a repository provided an artifact
+     * @param repoUrl The repository url
+     * @param path The repository path of the artifact
+     */
+    void addFound(final String repoUrl, final String path) {
+        final String groupPath = getGroupPath(path);
+        if ( groupPath != null && isRemote(repoUrl) && !repoUrl.equals(this.groups.put(groupPath, repoUrl)) ) {
+            this.changed = true;
+        }
+        if ( this.misses.remove(repoUrl + '\t' + path) != null ) {
+            this.changed = true;
+        }
+    }
+
+    /**
+     * Save the information to the cache directory, if it changed.
+     */
+    void save() {
+        if ( this.file == null || !this.changed ) {
+            return;
+        }
+        this.changed = false;
+        try {
+            final long now = System.currentTimeMillis();
+            FileUtil.writeAtomically(this.file, tmp -> {
+                try ( final Writer writer = Files.newBufferedWriter(tmp.toPath(), StandardCharsets.UTF_8) ) {
+                    for(final Map.Entry<String, String> entry : this.groups.entrySet()) {
+                        writer.write(GROUP + '\t' + entry.getKey() + '\t' + entry.getValue() + '\n');
+                    }
+                    for(final Map.Entry<String, Long> entry : this.misses.entrySet()) {
+                        if ( entry.getValue() >= now ) {
+                            writer.write(MISS + '\t' + entry.getValue() + '\t' + entry.getKey() + '\n');
+                        }
+                    }
+                }
+            });
+        } catch ( final IOException e) {
+            logger.warn("Unable to store repository information in " + this.file, e);
+        }
+    }
+
+    private void load() {
+        final long now = System.currentTimeMillis();
+        try ( final BufferedReader reader = Files.newBufferedReader(this.file.toPath(), StandardCharsets.UTF_8) ) {
+            String line;
+            while ( (line = reader.readLine()) != null ) {
+                final String[] parts = line.split("\t");
+                if ( parts.length == 3 && GROUP.equals(parts[0]) ) {
+                    this.groups.put(parts[1], parts[2]);
+                } else if ( parts.length == 4 && MISS.equals(parts[0]) && this.missTimeToLive > 0 ) {
+                    final long expiry = Long.parseLong(parts[1]);
+                    if ( expiry >= now ) {
+                        this.misses.put(parts[2] + '\t' + parts[3], expiry);
+                    }
+                }
+            }
+        } catch ( final IOException | NumberFormatException e) {
+            logger.warn("Ignoring unreadable repository information " + this.file, e);
+            this.groups.clear();
+            this.misses.clear();
+        }
+    }
+
+    private static boolean isRemote(final String repoUrl) {
+        return !repoUrl.startsWith("file:");
+    }
+
+    /**
+     * Get the group part of a repository path
+     * @param path The path, group/artifact/version/file
+     * @return The group part or {@code null}
+     */
+    private static String getGroupPath(final String path) {
+        int pos = path.length();
+        for(int i = 0; i < 3; i++) {
+            pos = path.lastIndexOf('/', pos - 1);
+            if ( pos <= 0 ) {
+                return null;
+            }
+        }
+        return path.substring(0, pos);
+    }
+}
@@ -0,0 +1,310 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.sling.feature.support.impl;
+
+import org.apache.sling.feature.support.spi.ArtifactProviderContext;
+import org.apache.sling.feature.support.util.LambdaUtil.Supplier_WithExceptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Downloading artifacts into the cache, shared by the artifact providers.
+ */
+public final class DownloadUtil {
+
+    /** The result of getting an artifact. */
+    public enum Result {
+        /** The artifact has been downloaded into the cache. */
+        DOWNLOADED,
+        /** The cached artifact is used. */
+        CACHED,
+        /** The artifact does not exist. */
+        NOT_FOUND
+    }
+
+    /** Serializes the downloads of this process, one lock per cache file being downloaded. */
+    private static final Map<File, Object> LOCKS = new ConcurrentHashMap<>();
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DownloadUtil.class);
+
+    private DownloadUtil() {
+        // no instances
+    }
+
+    /**
+     * Get the cache file for an artifact
+     * @param cacheDir The cache directory
+     * @param relativeCachePath The path of the artifact in the cache
+     * @return The cache file
+     */
+    public static File getCacheFile(final File cacheDir, final String relativeCachePath) {
+        return new File((cacheDir.getAbsolutePath() + File.separatorChar + relativeCachePath).replace('/', File.separatorChar));
+    }
+
+    /**
+     * Download a cache file while holding its lock. Threads of this process
+     * wait for each other, processes sharing the cache directory coordinate
+     * by a lock file next to the cache file.
+     * @param cacheFile The cache file
+     * @param download The download
+     * @return The result of the download
+     * @throws IOException If the lock can't be acquired or the download fails
+     */
+    public static Result lockAndDownload(final File cacheFile, final Supplier_WithExceptions<Result, IOException> download)
+    throws IOException {
+        // file locks are held by the process, so threads of this process need to wait here
+        while ( true ) {
+            final Object lock = LOCKS.computeIfAbsent(cacheFile, key -> new Object());
+            synchronized ( lock ) {
+                if ( LOCKS.get(cacheFile) != lock ) {
+                    // removed by the previous owner
+                    continue;
+                }
+                try ( final FileChannel lockChannel = FileChannel.open(new File(cacheFile.getPath() + ".lock").toPath(),
+                          StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                      final FileLock fileLock = lockChannel.lock() ) {
+                    return download.get();
+                } finally {
+                    LOCKS.remove(cacheFile, lock);
+                }
+            }
+        }
+    }
+
+    /**
+     * Run a request, retrying it with an increasing delay if it fails,
+     * unless the failure is a {@link PermanentFailureException}.
+     * @param url The url of the request
+     * @param config The context providing the number of retries and the delay
+     * @param request The request
+     * @return The result of the request
+     * @throws IOException If the last attempt fails
+     */
+    public static <T> T retry(final String url,
+            final ArtifactProviderContext config,
+            final Supplier_WithExceptions<T, IOException> request) throws IOException {
+        final int retries = Math.max(0, config.getRetries());
+        for(int attempt = 0; ; attempt++) {
+            try {
+                return request.get();
+            } catch ( final PermanentFailureException e) {
+                throw e;
+            } catch ( final IOException e) {
+                if ( attempt >= retries ) {
+                    throw e;
+                }
+                final long delay = config.getRetryDelay() << attempt;
+                LOGGER.debug("Retrying {} in {}ms after {}", url, delay, e.toString());
+                try {
+                    Thread.sleep(delay);
+                } catch ( final InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting to retry " + url);
+                }
+            }
+        }
+    }
+
+    /**
+     * Open a connection with the timeouts of the context.
+     * @param url The url
+     * @param config The context
+     * @return The connection
+     * @throws IOException If the connection can't be opened
+     */
+    public static URLConnection openConnection(final String url, final ArtifactProviderContext config) throws IOException {
+        final URLConnection con = new URL(url).openConnection();
+        con.setConnectTimeout(config.getConnectTimeout());
+        con.setReadTimeout(config.getReadTimeout());
+        con.setUseCaches(false);
+        return con;
+    }
+
+    /**
+     * Create the failure for an unexpected status of a response.
+     * Server errors and too many requests are worth retrying.
+     * @param url The url of the request
+     * @param status The status
+     * @return The failure
+     */
+    public static IOException createStatusException(final String url, final int status) {
+        final String msg = "Unable to get " + url + ": " + status;
+        if ( status >= 500 || status == 429 ) {
+            return new IOException(msg);
+        }
+        return new PermanentFailureException(msg);
+    }
+
+    /**
+     * Read the body of a response which is not used, so the connection can be reused.
+     * @param con The connection
+     */
+    public static void drain(final HttpURLConnection con) {
+        InputStream body = con.getErrorStream();
+        try {
+            if ( body == null ) {
+                body = con.getInputStream();
+            }
+            try ( final InputStream is = body ) {
+                final byte[] buffer = new byte[1024];
+                while ( is.read(buffer) >= 0 ) {
+                    // ignore
+                }
+            }
+        } catch ( final IOException ignore ) {
+            // the connection is not reused
+        }
+    }
+
+    /**
+     * Get a message digest
+     * @param algorithm The algorithm
+     * @return The digest
+     * @throws IOException If the algorithm is not available
+     */
+    public static MessageDigest getDigest(final String algorithm) throws IOException {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch ( final NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Verify downloaded content against the checksum provided by the repository,
+     * the SHA-1 checksum if available, otherwise the MD5 checksum.
+     * @param url The url of the artifact
+     * @param sha1 The SHA-1 digest of the content
+     * @param md5 The MD5 digest of the content
+     * @param config The context
+     * @throws ChecksumMismatchException If the content does not match the checksum
+     * @throws IOException If a checksum can't be read
+     */
+    public static void verify(final String url,
+            final MessageDigest sha1,
+            final MessageDigest md5,
+            final ArtifactProviderContext config) throws IOException {
+        String expected = getChecksum(url + ".sha1", config);
+        MessageDigest digest = sha1;
+        if ( expected == null ) {
+            expected = getChecksum(url + ".md5", config);
+            digest = md5;
+        }
+        if ( expected != null ) {
+            final String actual = toHex(digest.digest());
+            if ( !expected.equalsIgnoreCase(actual) ) {
+                throw new ChecksumMismatchException("Checksum mismatch for " + url + ": expected " + expected + " but got " + actual);
+            }
+        } else {
+            LOGGER.debug("No checksum available for {}", url);
+        }
+    }
+
+    /**
+     * Get a checksum from the repository, retrying failed requests like the
+     * requests for the artifact.
+     * @return The checksum or {@code null} if the repository does not provide it.
+     * @throws IOException If the checksum can't be read for any other reason.
+     */
+    private static String getChecksum(final String url, final ArtifactProviderContext config) throws IOException {
+        return retry(url, config, () -> {
+            final URLConnection con = openConnection(url, config);
+            try {
+                if ( con instanceof HttpURLConnection ) {
+                    final HttpURLConnection httpCon = (HttpURLConnection) con;
+                    final int status = httpCon.getResponseCode();
+                    if ( status == HttpURLConnection.HTTP_NOT_FOUND || status == HttpURLConnection.HTTP_GONE ) {
+                        drain(httpCon);
+                        return null;
+                    }
+                    if ( status != HttpURLConnection.HTTP_OK ) {
+                        drain(httpCon);
+                        throw createStatusException(url, status);
+                    }
+                }
+                try ( final InputStream is = con.getInputStream() ) {
+                    final byte[] buffer = new byte[1024];
+                    int length = 0;
+                    int l;
+                    while ( length < buffer.length && (l = is.read(buffer, length, buffer.length - length)) >= 0 ) {
+                        length += l;
+                    }
+                    // read the rest, so the connection can be reused
+                    while ( is.read() >= 0 ) {
+                        // ignore
+                    }
+                    // the checksum might be followed by the file name
+                    final String value = new String(buffer, 0, length, StandardCharsets.US_ASCII).trim();
+                    return value.isEmpty() ? null : value.split("\\s+")[0];
+                }
+            } catch ( final FileNotFoundException e) {
+                // the checksum does not exist
+                return null;
+            }
+        });
+    }
+
+    private static String toHex(final byte[] bytes) {
+        final StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for(final byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+            sb.append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * A failure which is not worth retrying.
+     */
+    public static class PermanentFailureException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        public PermanentFailureException(final String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Downloaded content which does not match the checksum of the repository.
+     */
+    public static final class ChecksumMismatchException extends PermanentFailureException {
+
+        private static final long serialVersionUID = 1L;
+
+        public ChecksumMismatchException(final String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,303 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.sling.feature.support.impl;
+
+import org.apache.sling.feature.support.impl.DownloadUtil.Result;
+import org.apache.sling.feature.support.spi.ArtifactProvider;
+import org.apache.sling.feature.support.spi.ArtifactProviderContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Artifact provider for http urls.
+ * <ul>
+ *   <li>Connections are kept alive and reused by the JDK as long as every
+ *       response is read completely.</li>
+ *   <li>Failed requests are retried with an increasing delay.</li>
+ *   <li>Artifacts are downloaded to a partial file next to the cached file.
+ *       If a download fails, the next attempt continues where it stopped by
+ *       requesting the remaining range.</li>
+ *   <li>Cached SNAPSHOT artifacts are revalidated once per provider using a
+ *       conditional request.</li>
+ * </ul>
+ * Downloads are verified against the checksum of the repository and moved
+ * into the cache atomically. Processes sharing the cache directory coordinate
+ * by a lock file next to the artifact.
+ */
+public class HttpArtifactProvider implements ArtifactProvider {
+
+    private static final String PROP_URL = "url";
+
+    private static final String PROP_ETAG = "etag";
+
+    private static final String PROP_LAST_MODIFIED = "last-modified";
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private final String protocol;
+
+    /** The SNAPSHOT urls which have been revalidated. */
+    private final Set<String> validated = ConcurrentHashMap.newKeySet();
+
+    private volatile File cacheDir;
+
+    private volatile ArtifactProviderContext config;
+
+    public HttpArtifactProvider() {
+        this("http");
+    }
+
+    protected HttpArtifactProvider(final String protocol) {
+        this.protocol = protocol;
+    }
+
+    @Override
+    public String getProtocol() {
+        return this.protocol;
+    }
+
+    @Override
+    public void init(final ArtifactProviderContext config) throws IOException {
+        this.cacheDir = config.getCacheDirectory();
+        this.config = config;
+    }
+
+    @Override
+    public void shutdown() {
+        this.config = null;
+        this.cacheDir = null;
+        this.validated.clear();
+    }
+
+    @Override
+    public File getArtifact(final String url, final String relativeCachePath) throws IOException {
+        logger.debug("Checking remote url {}", url);
+        final File cacheFile = DownloadUtil.getCacheFile(this.cacheDir, relativeCachePath);
+        final boolean snapshot = url.contains("-SNAPSHOT") || relativeCachePath.contains("-SNAPSHOT");
+
+        final boolean exists = cacheFile.exists();
+        final boolean revalidate = snapshot && this.validated.add(url);
+        if ( exists && !revalidate ) {
+            this.config.incCachedArtifacts();
+            return cacheFile;
+        }
+        try {
+            cacheFile.getParentFile().mkdirs();
+            final Result result = download(url, cacheFile, snapshot);
+            if ( result == Result.NOT_FOUND ) {
+                return null;
+            }
+            if ( result == Result.DOWNLOADED ) {
+                this.config.incDownloadedArtifacts();
+            } else {
+                this.config.incCachedArtifacts();
+            }
+            return cacheFile;
+        } catch ( final IOException e) {
+            if ( Thread.currentThread().isInterrupted() ) {
+                // interrupted, unlike a timeout which is an InterruptedIOException as well
+                throw e;
+            }
+            if ( exists ) {
+                logger.info("Unable to revalidate " + url + ", using cached artifact", e);
+                this.config.incCachedArtifacts();
+                return cacheFile;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Download an artifact into the cache, retrying failed attempts.
+     * @param snapshot Whether the artifact is a SNAPSHOT and an existing cached file should be revalidated.
+     */
+    private Result download(final String url, final File cacheFile, final boolean snapshot) throws IOException {
+        return DownloadUtil.lockAndDownload(cacheFile, () -> {
+            if ( cacheFile.exists() && !snapshot ) {
+                // stored by someone else meanwhile
+                return Result.CACHED;
+            }
+            return DownloadUtil.retry(url, this.config, () -> fetch(url, cacheFile, snapshot));
+        });
+    }
+
+    /**
+     * Make a single attempt to download an artifact. The data is appended to
+     * the partial file, if the repository supports range requests, and moved
+     * to the cached file once it is complete and verified.
+     */
+    private Result fetch(final String url, final File cacheFile, final boolean snapshot) throws IOException {
+        final File partFile = new File(cacheFile.getPath() + ".part");
+        final File infoFile = new File(cacheFile.getPath() + ".http");
+        final Properties info = readInfo(infoFile);
+        final boolean sameUrl = url.equals(info.getProperty(PROP_URL));
+        final String etag = sameUrl ? info.getProperty(PROP_ETAG) : null;
+        final String lastModified = sameUrl ? info.getProperty(PROP_LAST_MODIFIED) : null;
+
+        final HttpURLConnection con = (HttpURLConnection) DownloadUtil.openConnection(url, this.config);
+        long offset = 0;
+        if ( partFile.length() > 0 && (etag != null || lastModified != null) ) {
+            offset = partFile.length();
+            con.setRequestProperty("Range", "bytes=" + offset + "-");
+            // only get the range if the artifact did not change
+            con.setRequestProperty("If-Range", etag != null ? etag : lastModified);
+        } else if ( snapshot && cacheFile.exists() ) {
+            if ( etag != null ) {
+                con.setRequestProperty("If-None-Match", etag);
+            }
+            if ( lastModified != null ) {
+                con.setRequestProperty("If-Modified-Since", lastModified);
+            }
+        }
+
+        final int status = con.getResponseCode();
+        if ( status == HttpURLConnection.HTTP_NOT_MODIFIED && cacheFile.exists() ) {
+            DownloadUtil.drain(con);
+            logger.debug("Cached artifact {} is up to date", url);
+            return Result.CACHED;
+        }
+        if ( status == HttpURLConnection.HTTP_NOT_FOUND || status == HttpURLConnection.HTTP_GONE ) {
+            DownloadUtil.drain(con);
+            return Result.NOT_FOUND;
+        }
+        if ( status != HttpURLConnection.HTTP_OK && status != HttpURLConnection.HTTP_PARTIAL ) {
+            DownloadUtil.drain(con);
+            if ( status == 416 ) {
+                // the partial file is not usable
+                partFile.delete();
+                throw new IOException("Unable to get " + url + ": " + status);
+            }
+            throw DownloadUtil.createStatusException(url, status);
+        }
+
+        final boolean append = status == HttpURLConnection.HTTP_PARTIAL;
+        if ( append && (offset == 0 || !isContentRangeFrom(con, offset)) ) {
+            DownloadUtil.drain(con);
+            partFile.delete();
+            throw new IOException("Unexpected range " + con.getHeaderField("Content-Range") + " for " + url);
+        }
+        if ( !append ) {
+            writeInfo(infoFile, url, con.getHeaderField("ETag"), con.getHeaderField("Last-Modified"));
+        }
+
+        final MessageDigest sha1 = DownloadUtil.getDigest("SHA-1");
+        final MessageDigest md5 = DownloadUtil.getDigest("MD5");
+        final byte[] buffer = new byte[32768];
+        if ( append ) {
+            logger.debug("Resuming download of {} at {}", url, offset);
+            try ( final InputStream is = new FileInputStream(partFile) ) {
+                int l;
+                while ( (l = is.read(buffer)) >= 0 ) {
+                    sha1.update(buffer, 0, l);
+                    md5.update(buffer, 0, l);
+                }
+            }
+        }
+        final long length = con.getContentLengthLong();
+        long received = 0;
+        try ( final InputStream is = con.getInputStream();
+              final OutputStream os = new FileOutputStream(partFile, append) ) {
+            int l;
+            while ( (l = is.read(buffer)) >= 0 ) {
+                os.write(buffer, 0, l);
+                sha1.update(buffer, 0, l);
+                md5.update(buffer, 0, l);
+                received += l;
+            }
+        }
+        // a closed connection might look like the end of the content
+        if ( length >= 0 && received < length ) {
+            throw new IOException("Received " + received + " of " + length + " bytes from " + url);
+        }
+
+        try {
+            DownloadUtil.verify(url, sha1, md5, this.config);
+        } catch ( final DownloadUtil.ChecksumMismatchException e) {
+            partFile.delete();
+            infoFile.delete();
+            // a resumed download might have combined different versions, so try once more from the start
+            if ( append ) {
+                throw new IOException(e.getMessage(), e);
+            }
+            throw e;
+        }
+        Files.move(partFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        if ( !snapshot ) {
+            // released artifacts never change
+            infoFile.delete();
+        }
+        return Result.DOWNLOADED;
+    }
+
+    private static boolean isContentRangeFrom(final HttpURLConnection con, final long offset) {
+        // bytes <first>-<last>/<length>
+        final String range = con.getHeaderField("Content-Range");
+        return range != null && range.trim().startsWith("bytes " + offset + "-");
+    }
+
+    /**
+     * Read the validators of the last response for a cached artifact.
+     */
+    private Properties readInfo(final File infoFile) {
+        final Properties info = new Properties();
+        if ( infoFile.exists() ) {
+            try ( final InputStream is = new FileInputStream(infoFile) ) {
+                info.load(is);
+            } catch ( final IOException | IllegalArgumentException e) {
+                logger.debug("Ignoring unreadable file {}", infoFile);
+                info.clear();
+            }
+        }
+        return info;
+    }
+
+    private void writeInfo(final File infoFile, final String url, final String etag, final String lastModified) {
+        final Properties info = new Properties();
+        info.setProperty(PROP_URL, url);
+        if ( etag != null ) {
+            info.setProperty(PROP_ETAG, etag);
+        }
+        if ( lastModified != null ) {
+            info.setProperty(PROP_LAST_MODIFIED, lastModified);
+        }
+        try ( final OutputStream os = new FileOutputStream(infoFile) ) {
+            info.store(os, null);
+        } catch ( final IOException e) {
+            logger.debug("Unable to write {}", infoFile);
+            infoFile.delete();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return this.getClass().getSimpleName() + " (" + this.protocol + ")";
+    }
+}
@@ -49,7 +49,10 @@ public interface ArtifactProvider {
      * @param url Artifact url
      * @param relativeCachePath A relative path that can be used as a cache path
      *                          by the provider. The path does not start with a slash.
-     * @return A file if the artifact exists or {@code null}
+     * @return A file if the artifact exists or {@code null} if it does not exist
+     * @throws IOException If the artifact can't be provided for another reason,
+     *         for example if the repository is not reachable. Unlike an artifact
+     *         which does not exist, this is not remembered.
      */
-    File getArtifact(String url, String relativeCachePath);
+    File getArtifact(String url, String relativeCachePath) throws IOException;
 }
@@ -29,6 +29,43 @@ public interface ArtifactProviderContext {
      */
     File getCacheDirectory();
 
+    /**
+     * Get the timeout for connecting to a remote repository.
+     * @return The timeout in milliseconds, {@code 0} for no timeout.
+     * @since 1.1.0
+     */
+    default int getConnectTimeout() {
+        return 10000;
+    }
+
+    /**
+     * Get the timeout for reading from a remote repository.
+     * @return The timeout in milliseconds, {@code 0} for no timeout.
+     * @since 1.1.0
+     */
+    default int getReadTimeout() {
+        return 60000;
+    }
+
+    /**
+     * Get the number of times a failed request to a remote repository is retried.
+     * @return The number of retries.
+     * @since 1.1.0
+     */
+    default int getRetries() {
+        return 3;
+    }
+
+    /**
+     * Get the time to wait before retrying a failed request. The time
+     * is doubled for every further retry.
+     * @return The time in milliseconds.
+     * @since 1.1.0
+     */
+    default long getRetryDelay() {
+        return 500;
+    }
+
     /**
      * Inform about an artifact found in the cache.
      */
@@ -0,0 +1,51 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.feature.support.util;
+
+import org.apache.sling.feature.support.util.LambdaUtil.Consumer_WithExceptions;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+public final class FileUtil {
+
+    private FileUtil() {
+        // no instances
+    }
+
+    /**
+     * Write a file atomically. The content is written to a temporary file
+     * next to the file, which then replaces the file, so readers never see
+     * a partial file. If writing fails, the file is left unchanged.
+     * @param file The file
+     * @param writer Writes the content to the temporary file passed to it
+     * @throws IOException If the file can't be written
+     */
+    public static void writeAtomically(final File file, final Consumer_WithExceptions<File, IOException> writer)
+    throws IOException {
+        file.getParentFile().mkdirs();
+        final File tmp = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+        try {
+            writer.accept(tmp);
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            tmp.delete();
+        }
+    }
+}
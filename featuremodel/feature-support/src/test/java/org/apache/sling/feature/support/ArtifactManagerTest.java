@@ -16,21 +16,41 @@
  */
 package org.apache.sling.feature.support;
 
+import org.apache.sling.feature.ArtifactId;
 import org.apache.sling.feature.support.spi.ArtifactProvider;
+import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 public class ArtifactManagerTest {
 
+    @Rule
+    public final StubRepository repository = new StubRepository();
+
+    @Rule
+    public final TemporaryFolder tmp = new TemporaryFolder();
+
     private static final String METADATA = "<metadata modelVersion=\"1.1.0\">\n" +
             "<groupId>org.apache.sling.samples</groupId>\n" +
             "<artifactId>slingshot</artifactId>\n" +
@@ -96,4 +116,225 @@ public class ArtifactManagerTest {
         assertNotNull(handler);
         assertEquals(artifactFile, handler.getFile());
     }
+
+    @Test public void testGetArtifactHandlers() throws Exception {
+        final ArtifactManagerConfig config = createConfig();
+        config.setThreads(8);
+        config.setConnectionsPerRepository(2);
+        final ArtifactManager mgr = ArtifactManager.getArtifactManager(config);
+        try {
+            final List<String> urls = new ArrayList<>();
+            for(int i = 0; i < 10; i++) {
+                urls.add("mvn:g/a" + i + "/1");
+            }
+            // the same artifacts, addressed differently
+            urls.add("mvn:g/a0/1/jar");
+            urls.add(":g/a1/1/a1-1.jar");
+
+            final Map<String, ArtifactHandler> handlers = mgr.getArtifactHandlers(urls);
+            assertEquals(urls, new ArrayList<>(handlers.keySet()));
+            for(final Map.Entry<String, ArtifactHandler> entry : handlers.entrySet()) {
+                final String path = ArtifactId.fromMvnUrl(entry.getKey().startsWith(":") ? "mvn:g/a1/1" : entry.getKey()).toMvnPath();
+                assertEquals(path, read(entry.getValue().getFile()));
+            }
+            // each artifact is requested once
+            assertEquals(10, repository.getRequests().size());
+            // downloads run in parallel, up to the connections per repository
+            assertEquals(2, repository.getMaxActive());
+            assertEquals(10, config.getDownloadedArtifacts());
+
+            try {
+                mgr.getArtifactHandlers(Arrays.asList("mvn:g/missing1/1", "mvn:g/a0/1", "mvn:g/missing2/1"));
+                fail("Expected missing artifacts to fail");
+            } catch ( final IOException expected ) {
+                assertTrue(expected.getMessage().contains("missing1"));
+                assertEquals(1, expected.getSuppressed().length);
+            }
+        } finally {
+            mgr.shutdown();
+        }
+    }
+
+    @Test public void testChecksumVerification() throws Exception {
+        final ArtifactManager mgr = ArtifactManager.getArtifactManager(createConfig());
+        try {
+            assertEquals("g/a/1/a-1.jar", read(mgr.getArtifactHandler("mvn:g/a/1").getFile()));
+            assertEquals("g/md5only/1/md5only-1.jar", read(mgr.getArtifactHandler("mvn:g/md5only/1").getFile()));
+            try {
+                mgr.getArtifactHandler("mvn:g/corrupt/1");
+                fail("Expected artifact with wrong checksum to fail");
+            } catch ( final IOException expected ) {
+                // not stored
+            }
+            final File[] files = new File(tmp.getRoot(), "g/corrupt/1").listFiles();
+            for(final File file : files == null ? new File[0] : files) {
+                assertTrue(file.getName(), file.getName().endsWith(".lock"));
+            }
+        } finally {
+            mgr.shutdown();
+        }
+    }
+
+    @Test public void testSharedCache() throws Exception {
+        final List<String> urls = new ArrayList<>();
+        for(int i = 0; i < 5; i++) {
+            urls.add("mvn:g/a" + i + "/1");
+        }
+        final ArtifactManager mgr1 = ArtifactManager.getArtifactManager(createConfig());
+        final ArtifactManager mgr2 = ArtifactManager.getArtifactManager(createConfig());
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final Future<Map<String, ArtifactHandler>> handlers1 = executor.submit(() -> mgr1.getArtifactHandlers(urls));
+            final Future<Map<String, ArtifactHandler>> handlers2 = executor.submit(() -> mgr2.getArtifactHandlers(urls));
+            for(final String url : urls) {
+                final File file = handlers1.get().get(url).getFile();
+                assertEquals(file, handlers2.get().get(url).getFile());
+                assertEquals(ArtifactId.fromMvnUrl(url).toMvnPath(), read(file));
+            }
+            assertEquals(5, repository.getRequests().size());
+        } finally {
+            executor.shutdownNow();
+            mgr1.shutdown();
+            mgr2.shutdown();
+        }
+    }
+
+    @Test public void testMissesRemembered() throws Exception {
+        final ArtifactManager mgr1 = ArtifactManager.getArtifactManager(createConfig());
+        try {
+            mgr1.getArtifactHandler("mvn:g/missing/1");
+            fail("Expected missing artifact to fail");
+        } catch ( final IOException expected ) {
+            // not found
+        } finally {
+            mgr1.shutdown();
+        }
+        assertEquals(1, repository.getRequests("g/missing/1/missing-1.jar"));
+
+        // a new manager sharing the cache directory doesn't ask again
+        final ArtifactManager mgr2 = ArtifactManager.getArtifactManager(createConfig());
+        try {
+            mgr2.getArtifactHandler("mvn:g/missing/1");
+            fail("Expected missing artifact to fail");
+        } catch ( final IOException expected ) {
+            // not found
+        } finally {
+            mgr2.shutdown();
+        }
+        assertEquals(1, repository.getRequests("g/missing/1/missing-1.jar"));
+
+        // unless misses are not remembered
+        final ArtifactManagerConfig config = createConfig();
+        config.setMissTimeToLive(0);
+        final ArtifactManager mgr3 = ArtifactManager.getArtifactManager(config);
+        try {
+            mgr3.getArtifactHandler("mvn:g/missing/1");
+            fail("Expected missing artifact to fail");
+        } catch ( final IOException expected ) {
+            // not found
+        } finally {
+            mgr3.shutdown();
+        }
+        assertEquals(2, repository.getRequests("g/missing/1/missing-1.jar"));
+    }
+
+    @Test public void testFailureNotRemembered() throws Exception {
+        repository.setUnavailable(1);
+        final ArtifactManagerConfig config = createConfig();
+        config.setRetries(0);
+        final ArtifactManager mgr = ArtifactManager.getArtifactManager(config);
+        try {
+            try {
+                mgr.getArtifactHandler("mvn:g/a/1");
+                fail("Expected failing repository to fail");
+            } catch ( final IOException expected ) {
+                // server error
+            }
+            assertEquals(1, repository.getRequests("g/a/1/a-1.jar"));
+
+            // the repository is asked again
+            assertEquals("g/a/1/a-1.jar", read(mgr.getArtifactHandler("mvn:g/a/1").getFile()));
+            assertEquals(2, repository.getRequests("g/a/1/a-1.jar"));
+        } finally {
+            mgr.shutdown();
+        }
+    }
+
+    @Test public void testTimeoutNotRemembered() throws Exception {
+        repository.setSlow(1);
+        final ArtifactManagerConfig config = createConfig();
+        config.setRepositoryUrls(new String[] {repository.getUrl(), repository.getUrl() + "/missing"});
+        config.setReadTimeout(200);
+        config.setRetries(0);
+        final ArtifactManager mgr = ArtifactManager.getArtifactManager(config);
+        try {
+            try {
+                mgr.getArtifactHandler("mvn:g/a/1");
+                fail("Expected timeout to fail");
+            } catch ( final IOException expected ) {
+                // timeout
+            }
+            // the next repository is asked after the timeout
+            assertEquals(1, repository.getRequests("missing/g/a/1/a-1.jar"));
+
+            // the repository is asked again
+            assertEquals("g/a/1/a-1.jar", read(mgr.getArtifactHandler("mvn:g/a/1").getFile()));
+            assertEquals(2, repository.getRequests("g/a/1/a-1.jar"));
+        } finally {
+            mgr.shutdown();
+        }
+    }
+
+    @Test public void testRepositoryAffinity() throws Exception {
+        final ArtifactManagerConfig config = createConfig();
+        config.setRepositoryUrls(new String[] {repository.getUrl() + "/missing", repository.getUrl()});
+        final ArtifactManager mgr = ArtifactManager.getArtifactManager(config);
+        try {
+            assertEquals("g/a/1/a-1.jar", read(mgr.getArtifactHandler("mvn:g/a/1").getFile()));
+            assertEquals(1, repository.getRequests("missing/g/a/1/a-1.jar"));
+
+            // the repository which provided the group is asked first
+            assertEquals("g/b/1/b-1.jar", read(mgr.getArtifactHandler("mvn:g/b/1").getFile()));
+            assertEquals(0, repository.getRequests("missing/g/b/1/b-1.jar"));
+
+            // other groups are looked up in the configured order
+            assertEquals("h/c/1/c-1.jar", read(mgr.getArtifactHandler("mvn:h/c/1").getFile()));
+            assertEquals(1, repository.getRequests("missing/h/c/1/c-1.jar"));
+        } finally {
+            mgr.shutdown();
+        }
+    }
+
+    private ArtifactManagerConfig createConfig() {
+        final ArtifactManagerConfig config = new ArtifactManagerConfig();
+        config.setRepositoryUrls(new String[] {repository.getUrl()});
+        config.setCacheDirectory(tmp.getRoot());
+        return config;
+    }
+
+    /**
+     * Add artifacts with their path as the content. The checksum of
+     * "g/corrupt/1" is wrong and "g/md5only/1" has only an MD5 checksum.
+     */
+    @Before public void addArtifacts() {
+        // make parallel requests overlap
+        repository.setDelay(50);
+        for(final String id : new String[] {"g/a/1", "g/b/1", "h/c/1", "g/corrupt/1", "g/md5only/1"}) {
+            addArtifact(id);
+        }
+        for(int i = 0; i < 10; i++) {
+            addArtifact("g/a" + i + "/1");
+        }
+        repository.addFile("g/corrupt/1/corrupt-1.jar", "corrupt".getBytes(StandardCharsets.UTF_8));
+        repository.removeFile("g/md5only/1/md5only-1.jar.sha1");
+    }
+
+    private void addArtifact(final String id) {
+        final String path = ArtifactId.parse(id).toMvnPath();
+        repository.addArtifact(path, path.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String read(final File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
 }
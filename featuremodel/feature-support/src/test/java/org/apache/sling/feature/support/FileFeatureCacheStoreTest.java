@@ -0,0 +1,145 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.sling.feature.support;
+
+import org.apache.sling.feature.Artifact;
+import org.apache.sling.feature.ArtifactId;
+import org.apache.sling.feature.Configuration;
+import org.apache.sling.feature.Extension;
+import org.apache.sling.feature.ExtensionType;
+import org.apache.sling.feature.Feature;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class FileFeatureCacheStoreTest {
+
+    private static final ArtifactId ID = ArtifactId.fromMvnId("g:f:1");
+
+    private File directory;
+
+    @Before public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("filefeaturecachestoretest").toFile();
+    }
+
+    @After public void deleteDirectory() {
+        delete(directory);
+    }
+
+    @Test public void testStoreAndLoad() throws Exception {
+        final Feature feature = new Feature(ID);
+        feature.setAssembled(true);
+        feature.getFrameworkProperties().put("fw", "value");
+
+        final Artifact bundle = new Artifact(ArtifactId.fromMvnId("g:b:1.0"));
+        bundle.setStartOrder(5);
+        bundle.getMetadata().put("bundle:rename-bsn", "renamed");
+        feature.getBundles().add(bundle);
+
+        final Configuration cfg = new Configuration("my.pid");
+        cfg.getProperties().put("string", "text");
+        cfg.getProperties().put("long", 7L);
+        cfg.getProperties().put("integer", 3);
+        cfg.getProperties().put("double", 1.5);
+        cfg.getProperties().put("boolean", true);
+        cfg.getProperties().put("strings", new String[] {"a", "b"});
+        feature.getConfigurations().add(cfg);
+        final Configuration factory = new Configuration("my.factory", "name");
+        factory.getProperties().put("key", "value");
+        feature.getConfigurations().add(factory);
+
+        final Extension json = new Extension(ExtensionType.JSON, "json-ext", false);
+        json.setJSON("{\"a\":[1,2,{\"b\":\"c\"}],\"d\":true}");
+        feature.getExtensions().add(json);
+        final Extension text = new Extension(ExtensionType.TEXT, "text-ext", true);
+        text.setText("some text");
+        feature.getExtensions().add(text);
+
+        final FileFeatureCacheStore store = new FileFeatureCacheStore(directory);
+        store.store(ID, "abc", feature);
+
+        final Feature loaded = new FileFeatureCacheStore(directory).load(ID, "abc");
+        assertNotNull(loaded);
+        assertEquals(ID, loaded.getId());
+        assertEquals("value", loaded.getFrameworkProperties().get("fw"));
+
+        final Artifact loadedBundle = loaded.getBundles().getSame(bundle.getId());
+        assertNotNull(loadedBundle);
+        assertEquals(bundle.getId(), loadedBundle.getId());
+        assertEquals(5, loadedBundle.getStartOrder());
+        assertEquals("renamed", loadedBundle.getMetadata().get("bundle:rename-bsn"));
+
+        final Configuration loadedCfg = loaded.getConfigurations().getConfiguration("my.pid");
+        assertNotNull(loadedCfg);
+        assertEquals("text", loadedCfg.getProperties().get("string"));
+        assertEquals(7L, loadedCfg.getProperties().get("long"));
+        assertEquals(3, loadedCfg.getProperties().get("integer"));
+        assertEquals(1.5, loadedCfg.getProperties().get("double"));
+        assertEquals(true, loadedCfg.getProperties().get("boolean"));
+        assertArrayEquals(new String[] {"a", "b"}, (String[])loadedCfg.getProperties().get("strings"));
+        final Configuration loadedFactory = loaded.getConfigurations().getFactoryConfiguration("my.factory", "name");
+        assertNotNull(loadedFactory);
+        assertTrue(loadedFactory.isFactoryConfiguration());
+        assertEquals("value", loadedFactory.getProperties().get("key"));
+
+        final Extension loadedJson = loaded.getExtensions().getByName("json-ext");
+        assertEquals(ExtensionType.JSON, loadedJson.getType());
+        assertTrue(loadedJson.isOptional());
+        @SuppressWarnings("unchecked")
+        final Map<String, Object> structure = (Map<String, Object>)loadedJson.getJSONStructure();
+        assertEquals(json.getJSONStructure(), structure);
+        final Extension loadedText = loaded.getExtensions().getByName("text-ext");
+        assertEquals(ExtensionType.TEXT, loadedText.getType());
+        assertTrue(loadedText.isRequired());
+        assertEquals("some text", loadedText.getText());
+    }
+
+    @Test public void testMissingAndUnreadable() throws Exception {
+        final FileFeatureCacheStore store = new FileFeatureCacheStore(directory);
+        assertNull(store.load(ID, "abc"));
+
+        store.store(ID, "abc", new Feature(ID));
+        assertNotNull(store.load(ID, "abc"));
+        assertNull(store.load(ID, "other"));
+
+        final File[] files = new File(directory, "g/f/1").listFiles();
+        assertEquals(1, files.length);
+        Files.write(files[0].toPath(), "{ broken".getBytes("UTF-8"));
+        assertNull(store.load(ID, "abc"));
+    }
+
+    private static void delete(final File file) {
+        final File[] children = file.listFiles();
+        if ( children != null ) {
+            for(final File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
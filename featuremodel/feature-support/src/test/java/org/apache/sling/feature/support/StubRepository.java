@@ -0,0 +1,295 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.sling.feature.support;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.rules.ExternalResource;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A repository for tests, serving the files added to it over http. It
+ * supports range requests and conditional requests by ETag, and the
+ * artifact requests can be made to fail, to be slow or to be truncated.
+ */
+public class StubRepository extends ExternalResource {
+
+    private static final String CONTEXT = "/repo/";
+
+    /** The files of the repository, including checksums, by path. */
+    private final Map<String, byte[]> files = new ConcurrentHashMap<>();
+
+    /** The requests for artifacts, not including checksums. */
+    private final List<Request> requests = new CopyOnWriteArrayList<>();
+
+    /** The remote ports of all requests. */
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+
+    /** The number of artifact requests to fail with 503. */
+    private final AtomicInteger unavailable = new AtomicInteger();
+
+    /** The number of checksum requests to fail with 503. */
+    private final AtomicInteger checksumUnavailable = new AtomicInteger();
+
+    /** The number of artifact requests to answer after a second. */
+    private final AtomicInteger slow = new AtomicInteger();
+
+    /** The number of responses to abort in the middle of the content. */
+    private final AtomicInteger truncated = new AtomicInteger();
+
+    private final AtomicInteger active = new AtomicInteger();
+
+    private final AtomicInteger maxActive = new AtomicInteger();
+
+    /** The delay of every artifact request in ms. */
+    private volatile long delay;
+
+    private HttpServer server;
+
+    /**
+     * The url of the repository
+     * @return The url, without a trailing slash
+     */
+    public String getUrl() {
+        return "http://localhost:" + server.getAddress().getPort() + CONTEXT.substring(0, CONTEXT.length() - 1);
+    }
+
+    /**
+     * Add an artifact together with its SHA-1 and MD5 checksums
+     * @param path The path of the artifact in the repository
+     * @param content The content
+     */
+    public void addArtifact(final String path, final byte[] content) {
+        files.put(path, content);
+        files.put(path + ".sha1", checksum(content, "SHA-1").getBytes(StandardCharsets.UTF_8));
+        files.put(path + ".md5", checksum(content, "MD5").getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Add a file, leaving other files like the checksums of an artifact unchanged
+     * @param path The path of the file in the repository
+     * @param content The content
+     */
+    public void addFile(final String path, final byte[] content) {
+        files.put(path, content);
+    }
+
+    /**
+     * Remove a file
+     * @param path The path of the file in the repository
+     */
+    public void removeFile(final String path) {
+        files.remove(path);
+    }
+
+    /**
+     * The ETag the repository sends for an artifact
+     * @param path The path of the artifact in the repository
+     * @return The ETag or {@code null} if the artifact does not exist
+     */
+    public String getETag(final String path) {
+        final byte[] content = files.get(path);
+        return content == null ? null : '"' + checksum(content, "MD5") + '"';
+    }
+
+    public void setUnavailable(final int requests) {
+        unavailable.set(requests);
+    }
+
+    public void setChecksumUnavailable(final int requests) {
+        checksumUnavailable.set(requests);
+    }
+
+    public void setSlow(final int requests) {
+        slow.set(requests);
+    }
+
+    public void setTruncated(final int requests) {
+        truncated.set(requests);
+    }
+
+    public void setDelay(final long delay) {
+        this.delay = delay;
+    }
+
+    /**
+     * The requests for artifacts
+     * @return The requests in order of arrival
+     */
+    public List<Request> getRequests() {
+        return requests;
+    }
+
+    /**
+     * The number of requests for an artifact
+     * @param path The path of the artifact, relative to the repository url
+     * @return The number of requests
+     */
+    public int getRequests(final String path) {
+        return (int) requests.stream().filter(request -> request.path.equals(path)).count();
+    }
+
+    /**
+     * The maximum number of artifact requests served at the same time
+     * @return The number of requests
+     */
+    public int getMaxActive() {
+        return maxActive.get();
+    }
+
+    /**
+     * The remote ports of all requests, one for each connection
+     * @return The ports
+     */
+    public Set<Integer> getClientPorts() {
+        return clientPorts;
+    }
+
+    @Override
+    protected void before() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext(CONTEXT, exchange -> {
+            try {
+                clientPorts.add(exchange.getRemoteAddress().getPort());
+                final String path = exchange.getRequestURI().getPath().substring(CONTEXT.length());
+                if ( path.endsWith(".sha1") || path.endsWith(".md5") ) {
+                    final byte[] checksum = files.get(path);
+                    if ( checksumUnavailable.getAndDecrement() > 0 ) {
+                        send(exchange, 503, "unavailable".getBytes(StandardCharsets.UTF_8));
+                    } else if ( checksum == null ) {
+                        exchange.sendResponseHeaders(404, -1);
+                    } else {
+                        send(exchange, 200, checksum);
+                    }
+                    return;
+                }
+                final Request request = new Request(path, exchange);
+                requests.add(request);
+                maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(slow.getAndDecrement() > 0 ? 1000 : delay);
+                    serve(exchange, request);
+                } finally {
+                    active.decrementAndGet();
+                }
+            } catch ( final InterruptedException e ) {
+                Thread.currentThread().interrupt();
+            } finally {
+                exchange.close();
+            }
+        });
+        server.start();
+    }
+
+    @Override
+    protected void after() {
+        server.stop(0);
+        ((ExecutorService)server.getExecutor()).shutdownNow();
+    }
+
+    private void serve(final HttpExchange exchange, final Request request) throws IOException {
+        final byte[] content = files.get(request.path);
+        if ( unavailable.getAndDecrement() > 0 ) {
+            request.status = 503;
+            send(exchange, 503, "unavailable".getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        if ( content == null ) {
+            request.status = 404;
+            send(exchange, 404, "not found".getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        final String etag = '"' + checksum(content, "MD5") + '"';
+        exchange.getResponseHeaders().set("ETag", etag);
+        if ( etag.equals(request.ifNoneMatch) ) {
+            request.status = 304;
+            exchange.sendResponseHeaders(304, -1);
+            return;
+        }
+        int offset = 0;
+        if ( request.range != null && (request.ifRange == null || etag.equals(request.ifRange)) ) {
+            offset = Integer.parseInt(request.range.substring(6, request.range.length() - 1));
+            exchange.getResponseHeaders().set("Content-Range",
+                    "bytes " + offset + "-" + (content.length - 1) + "/" + content.length);
+        }
+        request.status = offset > 0 ? 206 : 200;
+        exchange.sendResponseHeaders(request.status, content.length - offset);
+        final OutputStream os = exchange.getResponseBody();
+        if ( truncated.getAndDecrement() > 0 ) {
+            // closing the exchange before all content is written closes the connection
+            os.write(content, offset, (content.length - offset) / 2);
+            os.flush();
+            return;
+        }
+        os.write(content, offset, content.length - offset);
+    }
+
+    private static void send(final HttpExchange exchange, final int status, final byte[] content) throws IOException {
+        exchange.sendResponseHeaders(status, content.length);
+        exchange.getResponseBody().write(content);
+    }
+
+    private static String checksum(final byte[] content, final String algorithm) {
+        try {
+            final byte[] digest = MessageDigest.getInstance(algorithm).digest(content);
+            return String.format("%0" + (digest.length * 2) + "x", new BigInteger(1, digest));
+        } catch ( final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * A request for an artifact
+     */
+    public static final class Request {
+
+        /** The path of the artifact, relative to the repository url. */
+        public final String path;
+
+        public final String range;
+
+        public final String ifRange;
+
+        public final String ifNoneMatch;
+
+        /** The status of the response. */
+        public volatile int status;
+
+        Request(final String path, final HttpExchange exchange) {
+            this.path = path;
+            this.range = exchange.getRequestHeaders().getFirst("Range");
+            this.ifRange = exchange.getRequestHeaders().getFirst("If-Range");
+            this.ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+        }
+    }
+}
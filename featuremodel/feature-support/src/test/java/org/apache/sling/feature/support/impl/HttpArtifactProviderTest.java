@@ -0,0 +1,277 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.sling.feature.support.impl;
+
+import org.apache.sling.feature.support.ArtifactManagerConfig;
+import org.apache.sling.feature.support.StubRepository;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class HttpArtifactProviderTest {
+
+    @Rule
+    public final StubRepository repository = new StubRepository();
+
+    @Rule
+    public final TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test public void testDownload() throws Exception {
+        final byte[] content = createContent(100000);
+        repository.addArtifact("g/a/1/a-1.jar", content);
+        final ArtifactManagerConfig config = createConfig();
+        final HttpArtifactProvider provider = createProvider(config);
+
+        final File file = provider.getArtifact(getUrl("g/a/1/a-1.jar"), "g/a/1/a-1.jar");
+        assertNotNull(file);
+        assertArrayEquals(content, Files.readAllBytes(file.toPath()));
+        assertEquals(1, config.getDownloadedArtifacts());
+        assertFalse(new File(file.getPath() + ".part").exists());
+        assertFalse(new File(file.getPath() + ".http").exists());
+
+        // released artifacts are taken from the cache
+        assertEquals(file, provider.getArtifact(getUrl("g/a/1/a-1.jar"), "g/a/1/a-1.jar"));
+        assertEquals(1, repository.getRequests().size());
+        assertEquals(1, config.getCachedArtifacts());
+    }
+
+    @Test public void testNotFound() throws Exception {
+        final HttpArtifactProvider provider = createProvider(createConfig());
+        assertNull(provider.getArtifact(getUrl("g/missing/1/missing-1.jar"), "g/missing/1/missing-1.jar"));
+        // not retried
+        assertEquals(1, repository.getRequests().size());
+    }
+
+    @Test public void testKeepAlive() throws Exception {
+        for(int i = 0; i < 5; i++) {
+            repository.addArtifact("g/a" + i + "/1/a" + i + "-1.jar", createContent(10000));
+        }
+        final HttpArtifactProvider provider = createProvider(createConfig());
+        for(int i = 0; i < 5; i++) {
+            assertNotNull(provider.getArtifact(getUrl("g/a" + i + "/1/a" + i + "-1.jar"), "g/a" + i + "/1/a" + i + "-1.jar"));
+        }
+        assertNull(provider.getArtifact(getUrl("g/missing/1/missing-1.jar"), "g/missing/1/missing-1.jar"));
+        assertNotNull(provider.getArtifact(getUrl("g/a0/1/a0-1.jar"), "g/other/1/a0-1.jar"));
+        // all requests, including checksums and errors, use the same connection
+        assertEquals(repository.getClientPorts().toString(), 1, repository.getClientPorts().size());
+    }
+
+    @Test public void testRetry() throws Exception {
+        final byte[] content = createContent(1000);
+        repository.addArtifact("g/a/1/a-1.jar", content);
+        repository.setUnavailable(2);
+        final HttpArtifactProvider provider = createProvider(createConfig());
+
+        final File file = provider.getArtifact(getUrl("g/a/1/a-1.jar"), "g/a/1/a-1.jar");
+        assertNotNull(file);
+        assertArrayEquals(content, Files.readAllBytes(file.toPath()));
+        assertEquals(3, repository.getRequests().size());
+    }
+
+    @Test public void testChecksumRetry() throws Exception {
+        final byte[] content = createContent(1000);
+        repository.addArtifact("g/a/1/a-1.jar", content);
+        repository.setChecksumUnavailable(2);
+        final HttpArtifactProvider provider = createProvider(createConfig());
+
+        final File file = provider.getArtifact(getUrl("g/a/1/a-1.jar"), "g/a/1/a-1.jar");
+        assertNotNull(file);
+        assertArrayEquals(content, Files.readAllBytes(file.toPath()));
+        // only the checksum is requested again
+        assertEquals(1, repository.getRequests().size());
+    }
+
+    @Test public void testChecksumUnavailable() throws Exception {
+        repository.addArtifact("g/a/1/a-1.jar", createContent(1000));
+        repository.setChecksumUnavailable(10);
+        final ArtifactManagerConfig config = createConfig();
+        config.setRetries(1);
+        final HttpArtifactProvider provider = createProvider(config);
+
+        // the artifact is not used without verifying it
+        assertFailure(provider, "g/a/1/a-1.jar");
+        assertFalse(new File(tmp.getRoot(), "g/a/1/a-1.jar").exists());
+    }
+
+    @Test public void testRetriesExhausted() throws Exception {
+        repository.addArtifact("g/a/1/a-1.jar", createContent(1000));
+        repository.setUnavailable(2);
+        final ArtifactManagerConfig config = createConfig();
+        config.setRetries(1);
+        final HttpArtifactProvider provider = createProvider(config);
+
+        assertFailure(provider, "g/a/1/a-1.jar");
+        assertEquals(2, repository.getRequests().size());
+    }
+
+    @Test public void testReadTimeout() throws Exception {
+        final byte[] content = createContent(1000);
+        repository.addArtifact("g/a/1/a-1.jar", content);
+        repository.setSlow(1);
+        final ArtifactManagerConfig config = createConfig();
+        config.setReadTimeout(200);
+        final HttpArtifactProvider provider = createProvider(config);
+
+        final File file = provider.getArtifact(getUrl("g/a/1/a-1.jar"), "g/a/1/a-1.jar");
+        assertNotNull(file);
+        assertArrayEquals(content, Files.readAllBytes(file.toPath()));
+        assertEquals(2, repository.getRequests().size());
+    }
+
+    @Test public void testResume() throws Exception {
+        final byte[] content = createContent(200000);
+        repository.addArtifact("g/a/1/a-1.jar", content);
+        repository.setTruncated(1);
+        final HttpArtifactProvider provider = createProvider(createConfig());
+
+        final File file = provider.getArtifact(getUrl("g/a/1/a-1.jar"), "g/a/1/a-1.jar");
+        assertNotNull(file);
+        assertArrayEquals(content, Files.readAllBytes(file.toPath()));
+        assertEquals(2, repository.getRequests().size());
+        assertNull(repository.getRequests().get(0).range);
+        assertEquals("bytes=" + content.length / 2 + "-", repository.getRequests().get(1).range);
+        assertEquals(200, repository.getRequests().get(0).status);
+        assertEquals(206, repository.getRequests().get(1).status);
+    }
+
+    @Test public void testResumeAfterFailedRun() throws Exception {
+        final byte[] content = createContent(200000);
+        repository.addArtifact("g/a/1/a-1.jar", content);
+        repository.setTruncated(1);
+        final ArtifactManagerConfig config = createConfig();
+        config.setRetries(0);
+        assertFailure(createProvider(config), "g/a/1/a-1.jar");
+        assertEquals(content.length / 2, new File(tmp.getRoot(), "g/a/1/a-1.jar.part").length());
+
+        final File file = createProvider(config).getArtifact(getUrl("g/a/1/a-1.jar"), "g/a/1/a-1.jar");
+        assertNotNull(file);
+        assertArrayEquals(content, Files.readAllBytes(file.toPath()));
+        assertEquals(206, repository.getRequests().get(1).status);
+    }
+
+    @Test public void testResumeChangedArtifact() throws Exception {
+        repository.addArtifact("g/a/1/a-1.jar", createContent(200000));
+        repository.setTruncated(1);
+        final ArtifactManagerConfig config = createConfig();
+        config.setRetries(0);
+        assertFailure(createProvider(config), "g/a/1/a-1.jar");
+
+        // the remaining range of the changed artifact must not be appended
+        final byte[] content = "changed".getBytes(StandardCharsets.UTF_8);
+        repository.addArtifact("g/a/1/a-1.jar", content);
+        final File file = createProvider(config).getArtifact(getUrl("g/a/1/a-1.jar"), "g/a/1/a-1.jar");
+        assertNotNull(file);
+        assertArrayEquals(content, Files.readAllBytes(file.toPath()));
+        assertNotNull(repository.getRequests().get(1).range);
+        assertEquals(200, repository.getRequests().get(1).status);
+    }
+
+    @Test public void testSnapshotRevalidation() throws Exception {
+        final String path = "g/a/1-SNAPSHOT/a-1-SNAPSHOT.jar";
+        repository.addArtifact(path, "first".getBytes(StandardCharsets.UTF_8));
+        final ArtifactManagerConfig config = createConfig();
+        final HttpArtifactProvider provider1 = createProvider(config);
+        final File file = provider1.getArtifact(getUrl(path), path);
+        assertEquals("first", new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+
+        // revalidated only once per provider
+        assertEquals(file, provider1.getArtifact(getUrl(path), path));
+        assertEquals(1, repository.getRequests().size());
+
+        // unchanged
+        final HttpArtifactProvider provider2 = createProvider(config);
+        assertEquals(file, provider2.getArtifact(getUrl(path), path));
+        assertEquals(2, repository.getRequests().size());
+        assertEquals(repository.getETag(path), repository.getRequests().get(1).ifNoneMatch);
+        assertEquals(304, repository.getRequests().get(1).status);
+        assertEquals("first", new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+
+        // changed
+        repository.addArtifact(path, "second".getBytes(StandardCharsets.UTF_8));
+        final HttpArtifactProvider provider3 = createProvider(config);
+        assertEquals(file, provider3.getArtifact(getUrl(path), path));
+        assertEquals(3, repository.getRequests().size());
+        assertEquals(200, repository.getRequests().get(2).status);
+        assertEquals("second", new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+        assertEquals(2, config.getDownloadedArtifacts());
+    }
+
+    @Test public void testSnapshotUnavailable() throws Exception {
+        final String path = "g/a/1-SNAPSHOT/a-1-SNAPSHOT.jar";
+        repository.addArtifact(path, "first".getBytes(StandardCharsets.UTF_8));
+        final ArtifactManagerConfig config = createConfig();
+        config.setRetries(0);
+        final File file = createProvider(config).getArtifact(getUrl(path), path);
+        assertNotNull(file);
+
+        // the cached artifact is used if the repository can't be reached
+        repository.setUnavailable(1);
+        assertEquals(file, createProvider(config).getArtifact(getUrl(path), path));
+        assertTrue(file.exists());
+    }
+
+    private ArtifactManagerConfig createConfig() {
+        final ArtifactManagerConfig config = new ArtifactManagerConfig();
+        config.setCacheDirectory(tmp.getRoot());
+        config.setRetryDelay(10);
+        return config;
+    }
+
+    private HttpArtifactProvider createProvider(final ArtifactManagerConfig config) throws IOException {
+        final HttpArtifactProvider provider = new HttpArtifactProvider();
+        provider.init(config);
+        return provider;
+    }
+
+    /**
+     * Get an artifact which can't be downloaded, which must fail instead of
+     * reporting the artifact as missing.
+     */
+    private void assertFailure(final HttpArtifactProvider provider, final String path) {
+        try {
+            provider.getArtifact(getUrl(path), path);
+            fail("Getting " + path + " must fail");
+        } catch ( final IOException expected ) {
+            // expected
+        }
+    }
+
+    private String getUrl(final String path) {
+        return repository.getUrl() + "/" + path;
+    }
+
+    private static byte[] createContent(final int length) {
+        final byte[] content = new byte[length];
+        for(int i = 0; i < length; i++) {
+            content[i] = (byte)(i * 31);
+        }
+        return content;
+    }
+}
@@ -46,6 +46,21 @@ public class ArtifactId implements Comparable<ArtifactId> {
     /** The required type. Defaults to jar. */
     private final String type;
 
+    /**
+     * The mvn url, used for equality and ordering. Created on first use,
+     * strings are immutable, so concurrent callers creating it is harmless.
+     */
+    private String mvnUrl;
+
+    /** The hash code of the mvn url, computed on first use, {@code 0} if not computed yet. */
+    private int hashCode;
+
+    /**
+     * The OSGi version, parsed on first use. Versions are immutable,
+     * so concurrent callers parsing it at the same time is harmless.
+     */
+    private Version osgiVersion;
+
     /**
      * Create a new artifact object
      * @param groupId   The group id (required)
@@ -178,6 +193,15 @@ public class ArtifactId implements Comparable<ArtifactId> {
      * @see #fromMvnUrl(String)
      */
     public String toMvnUrl() {
+        String result = this.mvnUrl;
+        if ( result == null ) {
+            result = createMvnUrl();
+            this.mvnUrl = result;
+        }
+        return result;
+    }
+
+    private String createMvnUrl() {
         final StringBuilder sb = new StringBuilder("mvn:");
         sb.append(this.groupId);
         sb.append('/');
@@ -277,11 +301,40 @@ public class ArtifactId implements Comparable<ArtifactId> {
         return false;
     }
 
+    /**
+     * The coordinates of the artifact without the version, two ids have the
+     * same key if and only if they are the {@link #isSame(ArtifactId) same}
+     * artifact.
+     * @return The key
+     */
+    public String getSameKey() {
+        final StringBuilder sb = new StringBuilder();
+        sb.append(this.groupId);
+        sb.append(':');
+        sb.append(this.artifactId);
+        sb.append(':');
+        sb.append(this.type);
+        if ( this.classifier != null ) {
+            sb.append(':');
+            sb.append(this.classifier);
+        }
+        return sb.toString();
+    }
+
     /**
      * Return the OSGi version
      * @return The OSGi version
      */
     public Version getOSGiVersion() {
+        Version result = this.osgiVersion;
+        if ( result == null ) {
+            result = parseOSGiVersion();
+            this.osgiVersion = result;
+        }
+        return result;
+    }
+
+    private Version parseOSGiVersion() {
         String parts[] = version.split("\\.");
 
         if ( parts.length < 4) {
@@ -380,20 +433,27 @@ public class ArtifactId implements Comparable<ArtifactId> {
 
     @Override
     public int hashCode() {
-        return toMvnUrl().hashCode();
+        int result = this.hashCode;
+        if ( result == 0 ) {
+            result = toMvnUrl().hashCode();
+            this.hashCode = result;
+        }
+        return result;
     }
 
     @Override
     public boolean equals(Object o) {
-        if(o == null) return false;
+        if(o == this) return true;
         if(!(o instanceof ArtifactId)) return false;
-        return toMvnUrl().equals(((ArtifactId)o).toMvnUrl());
+        final ArtifactId other = (ArtifactId)o;
+        return this.hashCode() == other.hashCode() && this.toMvnUrl().equals(other.toMvnUrl());
     }
 
     @Override
     public int compareTo(final ArtifactId o) {
         if(o == null) return 1;
-        return toMvnUrl().compareTo(o.toMvnUrl());
+        if(o == this) return 0;
+        return this.toMvnUrl().compareTo(o.toMvnUrl());
     }
 
     @Override
@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.feature;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Creates artifact ids, handing out the same instance for the same
+ * coordinates. Parsing an already known string only costs a map lookup,
+ * and equal ids are identical, which makes comparing them cheap.
+ *
+ * The interner keeps every id it has created, so it should be scoped
+ * to a task like a build rather than be kept forever.
+ * This class is thread-safe.
+ */
+public class ArtifactIdInterner {
+
+    /** The canonical instances. */
+    private final Map<ArtifactId, ArtifactId> ids = new ConcurrentHashMap<>();
+
+    /** The ids by mvn url. */
+    private final Map<String, ArtifactId> urls = new ConcurrentHashMap<>();
+
+    /** The ids by mvn coordinates. */
+    private final Map<String, ArtifactId> coordinates = new ConcurrentHashMap<>();
+
+    /**
+     * Get the canonical instance of an artifact id
+     * @param id The artifact id
+     * @return The first artifact id equal to {@code id} passed to this interner
+     */
+    public ArtifactId intern(final ArtifactId id) {
+        final ArtifactId existing = ids.putIfAbsent(id, id);
+        return existing == null ? id : existing;
+    }
+
+    /**
+     * Get the artifact id for a string, the string must either be a
+     * mvn url or a mvn id (= coordinates)
+     * @param s The string to parse
+     * @return The artifact id
+     * @throws IllegalArgumentException if the string can't be parsed to a valid artifact id.
+     * @see ArtifactId#parse(String)
+     */
+    public ArtifactId parse(final String s) {
+        if ( s.contains(":") ) {
+            return fromMvnId(s);
+        } else if ( s.contains("/") ) {
+            return fromMvnUrl(s);
+        }
+        throw new IllegalArgumentException("Unable to parse mvn coordinates/url: " + s);
+    }
+
+    /**
+     * Get the artifact id for a maven url
+     * @param url The url
+     * @return The artifact id
+     * @throws IllegalArgumentException If the url is not valid
+     * @see ArtifactId#fromMvnUrl(String)
+     */
+    public ArtifactId fromMvnUrl(final String url) {
+        ArtifactId id = urls.get(url);
+        if ( id == null ) {
+            id = intern(ArtifactId.fromMvnUrl(url));
+            urls.put(url, id);
+        }
+        return id;
+    }
+
+    /**
+     * Get the artifact id for maven coordinates
+     * @param coordinates The coordinates
+     * @return The artifact id
+     * @throws IllegalArgumentException If the id is not valid
+     * @see ArtifactId#fromMvnId(String)
+     */
+    public ArtifactId fromMvnId(final String coordinates) {
+        ArtifactId id = this.coordinates.get(coordinates);
+        if ( id == null ) {
+            id = intern(ArtifactId.fromMvnId(coordinates));
+            this.coordinates.put(coordinates, id);
+        }
+        return id;
+    }
+}
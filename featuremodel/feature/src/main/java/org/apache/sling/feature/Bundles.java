@@ -19,7 +19,9 @@ package org.apache.sling.feature;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
@@ -27,11 +29,20 @@ import java.util.TreeMap;
 /**
  * Bundles groups a list of bundles {@code Artifact} and provides a means
  * to sort them based on start order.
+ *
+ * The bundles are indexed by their coordinates without the version, so
+ * looking up or removing a bundle does not require a scan of all bundles.
  */
 public class Bundles implements Iterable<Artifact> {
 
-    /** The list of bundles. */
-    private final List<Artifact> bundles = new ArrayList<>();
+    /** The bundles in the order they were added, keyed by the number of the addition. */
+    private final Map<Long, Artifact> bundles = new LinkedHashMap<>();
+
+    /** The keys of the bundles by coordinates without the version, in the order they were added. */
+    private final Map<String, List<Long>> index = new HashMap<>();
+
+    /** The key of the next bundle added. */
+    private long nextKey;
 
     /**
      * Get the map of all bundles sorted by start order. The map is sorted
@@ -57,7 +68,7 @@ public class Bundles implements Iterable<Artifact> {
             }
         });
 
-        for(final Artifact bundle : this.bundles) {
+        for(final Artifact bundle : this.bundles.values()) {
             final int startOrder = bundle.getStartOrder();
             List<Artifact> list = startOrderMap.get(startOrder);
             if ( list == null ) {
@@ -74,7 +85,14 @@ public class Bundles implements Iterable<Artifact> {
      * @param bundle The bundle
      */
     public void add(final Artifact bundle) {
-        this.bundles.add(bundle);
+        final Long key = this.nextKey++;
+        this.bundles.put(key, bundle);
+        List<Long> keys = this.index.get(bundle.getId().getSameKey());
+        if ( keys == null ) {
+            keys = new ArrayList<>(1);
+            this.index.put(bundle.getId().getSameKey(), keys);
+        }
+        keys.add(key);
     }
 
     /**
@@ -84,13 +102,7 @@ public class Bundles implements Iterable<Artifact> {
      * @return {@code true} if the artifact has been removed
      */
     public boolean removeExact(final ArtifactId id) {
-        for(final Artifact artifact : this.bundles) {
-            if ( artifact.getId().equals(id)) {
-                this.bundles.remove(artifact);
-                return true;
-            }
-        }
-        return false;
+        return this.remove(id, true);
     }
 
     /**
@@ -100,13 +112,7 @@ public class Bundles implements Iterable<Artifact> {
      * @return {@code true} if the artifact has been removed
      */
     public boolean removeSame(final ArtifactId id) {
-        for(final Artifact artifact : this.bundles) {
-            if ( artifact.getId().isSame(id)) {
-                this.bundles.remove(artifact);
-                return true;
-            }
-        }
-        return false;
+        return this.remove(id, false);
     }
 
     /**
@@ -114,6 +120,7 @@ public class Bundles implements Iterable<Artifact> {
      */
     public void clear() {
         this.bundles.clear();
+        this.index.clear();
     }
 
     /**
@@ -122,12 +129,11 @@ public class Bundles implements Iterable<Artifact> {
      * @return A map entry with start order and artifact, {@code null} otherwise
      */
     public Artifact getSame(final ArtifactId id) {
-        for(final Artifact bundle : this.bundles) {
-            if ( bundle.getId().isSame(id)) {
-                return bundle;
-            }
+        final List<Long> keys = this.index.get(id.getSameKey());
+        if ( keys == null ) {
+            return null;
         }
-        return null;
+        return this.bundles.get(keys.get(0));
     }
 
     /**
@@ -136,12 +142,7 @@ public class Bundles implements Iterable<Artifact> {
      * @return {@code true} if the artifact exists
      */
     public boolean containsExact(final ArtifactId id) {
-        for(final Artifact entry : this.bundles) {
-            if ( entry.getId().equals(id)) {
-                return true;
-            }
-        }
-        return false;
+        return this.find(id, true) != null;
     }
 
     /**
@@ -150,12 +151,7 @@ public class Bundles implements Iterable<Artifact> {
      * @return {@code true} if the artifact exists
      */
     public boolean containsSame(final ArtifactId id) {
-        for(final Artifact entry : this.bundles) {
-            if ( entry.getId().isSame(id)) {
-                return true;
-            }
-        }
-        return false;
+        return this.index.containsKey(id.getSameKey());
     }
 
     /**
@@ -163,7 +159,7 @@ public class Bundles implements Iterable<Artifact> {
      */
     @Override
     public Iterator<Artifact> iterator() {
-        return Collections.unmodifiableList(this.bundles).iterator();
+        return Collections.unmodifiableCollection(this.bundles.values()).iterator();
     }
 
     /**
@@ -176,6 +172,39 @@ public class Bundles implements Iterable<Artifact> {
 
     @Override
     public String toString() {
-        return "Bundles " + this.bundles;
+        return "Bundles " + this.bundles.values();
+    }
+
+    /**
+     * Find the key of the first bundle with the id
+     * @param id The artifact id
+     * @param exact Whether the version has to match as well
+     * @return The key or {@code null}
+     */
+    private Long find(final ArtifactId id, final boolean exact) {
+        final List<Long> keys = this.index.get(id.getSameKey());
+        if ( keys != null ) {
+            for(final Long key : keys) {
+                if ( !exact || this.bundles.get(key).getId().equals(id) ) {
+                    return key;
+                }
+            }
+        }
+        return null;
+    }
+
+    private boolean remove(final ArtifactId id, final boolean exact) {
+        final Long key = this.find(id, exact);
+        if ( key == null ) {
+            return false;
+        }
+        this.bundles.remove(key);
+        final String sameKey = id.getSameKey();
+        final List<Long> keys = this.index.get(sameKey);
+        keys.remove(key);
+        if ( keys.isEmpty() ) {
+            this.index.remove(sameKey);
+        }
+        return true;
     }
 }
@@ -17,26 +17,35 @@
 package org.apache.sling.feature;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * A container for configurations.
+ *
+ * The configurations are indexed by pid and by factory pid and name. The
+ * index is updated when a configuration is added and rebuilt on the next
+ * lookup after any other modification.
  */
 public class Configurations extends ArrayList<Configuration> {
 
     private static final long serialVersionUID = -7243822886707856704L;
 
+    /** The first configuration for each pid and factory pid / name. */
+    private transient Map<List<String>, Configuration> index;
+
+    /** The modification count the index reflects. */
+    private transient int indexModCount;
+
     /**
      * Get the configuration
      * @param pid The pid of the configuration
      * @return The configuration or {@code null}
      */
     public Configuration getConfiguration(final String pid) {
-        for(final Configuration cfg : this) {
-            if ( !cfg.isFactoryConfiguration() && pid.equals(cfg.getPid())) {
-                return cfg;
-            }
-        }
-        return null;
+        return this.getIndex().get(key(null, pid));
     }
 
     /**
@@ -46,13 +55,44 @@ public class Configurations extends ArrayList<Configuration> {
      * @return The factory configuration or {@code null}
      */
     public Configuration getFactoryConfiguration(final String factoryPid, final String name) {
-        for(final Configuration cfg : this) {
-            if ( cfg.isFactoryConfiguration()
-                    && factoryPid.equals(cfg.getFactoryPid())
-                    && name.equals(cfg.getName())) {
-                return cfg;
+        return this.getIndex().get(key(factoryPid, name));
+    }
+
+    @Override
+    public boolean add(final Configuration cfg) {
+        final boolean indexed = this.index != null && this.indexModCount == this.modCount;
+        super.add(cfg);
+        if ( indexed ) {
+            this.index.putIfAbsent(key(cfg), cfg);
+            this.indexModCount = this.modCount;
+        }
+        return true;
+    }
+
+    @Override
+    public Configuration set(final int index, final Configuration cfg) {
+        // replacing an element is not a structural modification
+        this.index = null;
+        return super.set(index, cfg);
+    }
+
+    private Map<List<String>, Configuration> getIndex() {
+        if ( this.index == null || this.indexModCount != this.modCount ) {
+            final Map<List<String>, Configuration> map = new HashMap<>();
+            for(final Configuration cfg : this) {
+                map.putIfAbsent(key(cfg), cfg);
             }
+            this.index = map;
+            this.indexModCount = this.modCount;
         }
-        return null;
+        return this.index;
+    }
+
+    private static List<String> key(final Configuration cfg) {
+        return cfg.isFactoryConfiguration() ? key(cfg.getFactoryPid(), cfg.getName()) : key(null, cfg.getPid());
+    }
+
+    private static List<String> key(final String factoryPid, final String pidOrName) {
+        return Arrays.asList(factoryPid, pidOrName);
     }
 }
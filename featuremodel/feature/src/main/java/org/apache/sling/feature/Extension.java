@@ -49,6 +49,9 @@ public class Extension {
     /** The text or json (if corresponding type) */
     private String text;
 
+    /** The parsed json (if type json), replacing the text */
+    private Object json;
+
     /** Whether the artifact is required. */
     private final boolean required;
 
@@ -140,6 +143,9 @@ public class Extension {
         if ( type != ExtensionType.JSON ) {
             throw new IllegalStateException();
         }
+        if ( json != null ) {
+            return JSONTree.write(json);
+        }
         return text;
     }
 
@@ -153,6 +159,70 @@ public class Extension {
             throw new IllegalStateException();
         }
         this.text = text;
+        this.json = null;
+    }
+
+    /**
+     * Get the JSON of the extension as a mutable structure.
+     * A JSON object is a {@code Map<String, Object>}, an array a {@code List<Object>},
+     * a string a {@code String}, a number a {@code Long}, {@code BigInteger} or {@code BigDecimal},
+     * a boolean a {@code Boolean} and null is {@code null}.
+     * The JSON is parsed on the first call. Changes to the structure are
+     * reflected by {@link #getJSON()}, which serializes the structure.
+     * @return The JSON object or array, or {@code null} if no JSON is set
+     * @throws IllegalStateException if the type is not {@code ExtensionType#JSON}
+     * @throws javax.json.JsonException If the JSON can't be parsed
+     */
+    public Object getJSONStructure() {
+        if ( type != ExtensionType.JSON ) {
+            throw new IllegalStateException();
+        }
+        if ( json == null && text != null ) {
+            json = JSONTree.parse(text);
+            text = null;
+        }
+        return json;
+    }
+
+    /**
+     * Get a copy of the JSON of the extension as a mutable structure,
+     * see {@link #getJSONStructure()}. Unlike {@link #getJSONStructure()}
+     * this does not change the extension, the text is parsed without
+     * keeping the result and the returned structure is not shared.
+     * @return The JSON object or array, or {@code null} if no JSON is set
+     * @throws IllegalStateException if the type is not {@code ExtensionType#JSON}
+     * @throws javax.json.JsonException If the JSON can't be parsed
+     */
+    public Object getJSONStructureCopy() {
+        if ( type != ExtensionType.JSON ) {
+            throw new IllegalStateException();
+        }
+        if ( json != null ) {
+            return JSONTree.copy(json);
+        }
+        return text == null ? null : JSONTree.parse(text);
+    }
+
+    /**
+     * Set the JSON of the extension as a structure.
+     * @param json The JSON object or array, see {@link #getJSONStructure()}
+     * @throws IllegalStateException if the type is not {@code ExtensionType#JSON}
+     */
+    public void setJSONStructure(final Object json) {
+        if ( type != ExtensionType.JSON ) {
+            throw new IllegalStateException();
+        }
+        this.json = json;
+        this.text = null;
+    }
+
+    /**
+     * Copy the JSON to another extension, without parsing or serializing it
+     * @param target The extension to copy to
+     */
+    void copyJSON(final Extension target) {
+        target.text = text;
+        target.json = json == null ? null : JSONTree.copy(json);
     }
 
     /**
@@ -345,7 +345,7 @@ public class Feature implements Comparable<Feature> {
                                      c.getArtifacts().add(x);
                                  }
                                  break;
-                case JSON : c.setJSON(e.getJSON());
+                case JSON : e.copyJSON(c);
                             break;
                 case TEXT : c.setText(e.getText());
                             break;
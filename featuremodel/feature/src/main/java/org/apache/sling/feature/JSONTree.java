@@ -0,0 +1,173 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.sling.feature;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonNumber;
+import javax.json.JsonObject;
+import javax.json.JsonReader;
+import javax.json.JsonString;
+import javax.json.JsonValue;
+import javax.json.stream.JsonGenerator;
+
+/**
+ * Conversion between JSON text and a mutable tree of JSON values.
+ *
+ * In the tree, objects are represented by a {@code Map<String, Object>},
+ * arrays by a {@code List<Object>}, strings by {@code String}, numbers by
+ * {@code Long}, {@code BigInteger} or {@code BigDecimal}, booleans by
+ * {@code Boolean} and null by {@code null}.
+ */
+class JSONTree {
+
+    /**
+     * Parse JSON text
+     * @param text The JSON text
+     * @return The root of the tree, either a map or a list
+     * @throws javax.json.JsonException If the text is not valid JSON
+     */
+    static Object parse(final String text) {
+        try ( final JsonReader reader = Json.createReader(new StringReader(text)) ) {
+            return toTree(reader.read());
+        }
+    }
+
+    /**
+     * Write a tree as JSON text
+     * @param tree The root of the tree, either a map or a list
+     * @return The JSON text
+     */
+    static String write(final Object tree) {
+        final StringWriter writer = new StringWriter();
+        try ( final JsonGenerator generator = Json.createGenerator(writer) ) {
+            write(generator, null, tree);
+        }
+        return writer.toString();
+    }
+
+    /**
+     * Deep copy a tree
+     * @param tree The tree
+     * @return A copy, sharing no maps or lists with the tree
+     */
+    static Object copy(final Object tree) {
+        if ( tree instanceof Map ) {
+            final Map<String, Object> result = new LinkedHashMap<>();
+            for(final Map.Entry<?, ?> entry : ((Map<?, ?>)tree).entrySet()) {
+                result.put((String)entry.getKey(), copy(entry.getValue()));
+            }
+            return result;
+        } else if ( tree instanceof List ) {
+            final List<Object> result = new ArrayList<>();
+            for(final Object value : (List<?>)tree) {
+                result.add(copy(value));
+            }
+            return result;
+        }
+        return tree;
+    }
+
+    private static Object toTree(final JsonValue value) {
+        switch ( value.getValueType() ) {
+            case OBJECT : final Map<String, Object> map = new LinkedHashMap<>();
+                          for(final Map.Entry<String, JsonValue> entry : ((JsonObject)value).entrySet()) {
+                              map.put(entry.getKey(), toTree(entry.getValue()));
+                          }
+                          return map;
+            case ARRAY : final List<Object> list = new ArrayList<>();
+                         for(final JsonValue v : (JsonArray)value) {
+                             list.add(toTree(v));
+                         }
+                         return list;
+            case STRING : return ((JsonString)value).getString();
+            case NUMBER : final JsonNumber number = (JsonNumber)value;
+                          if ( !number.isIntegral() ) {
+                              return number.bigDecimalValue();
+                          }
+                          final BigInteger integer = number.bigIntegerValue();
+                          if ( integer.bitLength() < 64 ) {
+                              return integer.longValue();
+                          }
+                          return integer;
+            case TRUE : return Boolean.TRUE;
+            case FALSE : return Boolean.FALSE;
+            default : return null;
+        }
+    }
+
+    private static void write(final JsonGenerator generator, final String name, final Object value) {
+        if ( value instanceof Map ) {
+            if ( name == null ) {
+                generator.writeStartObject();
+            } else {
+                generator.writeStartObject(name);
+            }
+            for(final Map.Entry<?, ?> entry : ((Map<?, ?>)value).entrySet()) {
+                write(generator, (String)entry.getKey(), entry.getValue());
+            }
+            generator.writeEnd();
+        } else if ( value instanceof List ) {
+            if ( name == null ) {
+                generator.writeStartArray();
+            } else {
+                generator.writeStartArray(name);
+            }
+            for(final Object v : (List<?>)value) {
+                write(generator, null, v);
+            }
+            generator.writeEnd();
+        } else if ( name == null ) {
+            if ( value == null ) {
+                generator.writeNull();
+            } else if ( value instanceof Boolean ) {
+                generator.write((Boolean)value);
+            } else if ( value instanceof Long || value instanceof Integer ) {
+                generator.write(((Number)value).longValue());
+            } else if ( value instanceof BigInteger ) {
+                generator.write((BigInteger)value);
+            } else if ( value instanceof Number ) {
+                generator.write(new BigDecimal(value.toString()));
+            } else {
+                generator.write(value.toString());
+            }
+        } else {
+            if ( value == null ) {
+                generator.writeNull(name);
+            } else if ( value instanceof Boolean ) {
+                generator.write(name, (Boolean)value);
+            } else if ( value instanceof Long || value instanceof Integer ) {
+                generator.write(name, ((Number)value).longValue());
+            } else if ( value instanceof BigInteger ) {
+                generator.write(name, (BigInteger)value);
+            } else if ( value instanceof Number ) {
+                generator.write(name, new BigDecimal(value.toString()));
+            } else {
+                generator.write(name, value.toString());
+            }
+        }
+    }
+}
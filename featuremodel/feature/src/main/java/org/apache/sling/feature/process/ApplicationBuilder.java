@@ -25,6 +25,10 @@ import org.apache.sling.feature.FeatureResource;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
 /**
  * Build an application based on features.
@@ -72,6 +76,10 @@ public class ApplicationBuilder {
      * If the same feature is included more than once only the feature with
      * the highest version is used. The others are ignored.
      *
+     * If the context has an executor, the features are assembled in parallel.
+     * The assembled features are merged in the same order as without an
+     * executor, so the resulting application is the same.
+     *
      * @param app The optional application to use as a base.
      * @param context The builder context
      * @param resolver The Feature Resolver to use
@@ -93,30 +101,11 @@ public class ApplicationBuilder {
         }
 
         // Remove duplicate features by selecting the one with the highest version
-        final List<Feature> featureList = new ArrayList<>();
+        final FeatureRegistry registry = new FeatureRegistry();
         for(final Feature f : features) {
-            Feature found = null;
-            for(final Feature s : featureList) {
-                if ( s.getId().isSame(f.getId()) ) {
-                    found = s;
-                    break;
-                }
-            }
-            boolean add = true;
-            // feature with different version found
-            if ( found != null ) {
-                if ( f.getId().getOSGiVersion().compareTo(found.getId().getOSGiVersion()) <= 0 ) {
-                    // higher version already included
-                    add = false;
-                } else {
-                    // remove lower version, higher version will be added
-                    featureList.remove(found);
-                }
-            }
-            if ( add ) {
-                featureList.add(f);
-            }
+            registry.add(f);
         }
+        final List<Feature> featureList = registry.getSelectedFeatures();
 
         final List<Feature> sortedFeatures;
         if (resolver != null) {
@@ -135,22 +124,28 @@ public class ApplicationBuilder {
             Collections.sort(sortedFeatures);
         }
 
+        // share assembled features between the features of this application
+        final FeatureCache cache = context.getFeatureCache() != null ? context.getFeatureCache() : new FeatureCache();
+        final BuilderContext featureContext = context.clone(new FeatureProvider() {
+
+            @Override
+            public Feature provide(final ArtifactId id) {
+                final Feature f = registry.provide(id);
+                if ( f != null ) {
+                    return f;
+                }
+                return context.getFeatureProvider().provide(id);
+            }
+        }).setFeatureCache(cache);
+
         // assemble
+        final List<Feature> assembledFeatures = assemble(sortedFeatures, featureContext);
+
+        // merge in the order of the features
         int featureStartOrder = 5; // begin with start order a little higher than 0
-        for(final Feature f : sortedFeatures) {
-            app.getFeatureIds().add(f.getId());
-            final Feature assembled = FeatureBuilder.assemble(f, context.clone(new FeatureProvider() {
-
-                @Override
-                public Feature provide(final ArtifactId id) {
-                    for(final Feature f : features) {
-                        if ( f.getId().equals(id) ) {
-                            return f;
-                        }
-                    }
-                    return context.getFeatureProvider().provide(id);
-                }
-            }));
+        for(int i = 0; i < sortedFeatures.size(); i++) {
+            app.getFeatureIds().add(sortedFeatures.get(i).getId());
+            final Feature assembled = assembledFeatures.get(i);
 
             int globalStartOrder = featureStartOrder;
             for (Artifact a : assembled.getBundles()) {
@@ -168,6 +163,47 @@ public class ApplicationBuilder {
         return app;
     }
 
+    /**
+     * Assemble the features, in parallel if the context has an executor.
+     * @param features The features
+     * @param context The builder context
+     * @return The assembled features in the order of the features
+     * throws IllegalStateException If a feature can't be assembled
+     */
+    private static List<Feature> assemble(final List<Feature> features, final BuilderContext context) {
+        final List<Feature> result = new ArrayList<>();
+        final Executor executor = context.getExecutor();
+        if ( executor == null ) {
+            for(final Feature f : features) {
+                result.add(FeatureBuilder.assemble(f, context));
+            }
+            return result;
+        }
+
+        final List<CompletableFuture<Feature>> futures = new ArrayList<>();
+        for(final Feature f : features) {
+            futures.add(CompletableFuture.supplyAsync(() -> FeatureBuilder.assemble(f, context), executor));
+        }
+        try {
+            for(final CompletableFuture<Feature> future : futures) {
+                result.add(future.join());
+            }
+        } catch ( final CompletionException | CancellationException e) {
+            for(final CompletableFuture<Feature> future : futures) {
+                future.cancel(false);
+            }
+            final Throwable cause = e.getCause() != null ? e.getCause() : e;
+            if ( cause instanceof RuntimeException ) {
+                throw (RuntimeException)cause;
+            }
+            if ( cause instanceof Error ) {
+                throw (Error)cause;
+            }
+            throw new IllegalStateException("Unable to assemble features", cause);
+        }
+        return result;
+    }
+
     private static void merge(final Application target, final Feature source) {
         BuilderUtil.mergeBundles(target.getBundles(), source.getBundles(), BuilderUtil.ArtifactMerge.HIGHEST);
         BuilderUtil.mergeConfigurations(target.getConfigurations(), source.getConfigurations());
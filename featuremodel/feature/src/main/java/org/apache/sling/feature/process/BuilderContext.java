@@ -18,6 +18,9 @@ package org.apache.sling.feature.process;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 
 /**
  * Builder context holds services used by {@link ApplicationBuilder}
@@ -29,6 +32,16 @@ public class BuilderContext {
 
     private final List<FeatureExtensionHandler> featureExtensionHandlers = new ArrayList<>();
 
+    private FeatureCache featureCache;
+
+    private Executor executor;
+
+    /**
+     * The hashes of the features assembled with this context by feature id,
+     * only shared by the features of a single application.
+     */
+    private Map<String, String> featureHashes;
+
     /**
      * Assemble the full feature by processing all includes.
      *
@@ -59,9 +72,58 @@ public class BuilderContext {
         return this;
     }
 
+    FeatureCache getFeatureCache() {
+        return this.featureCache;
+    }
+
+    /**
+     * Set the cache for assembled features.
+     * If no cache is set, the {@link ApplicationBuilder} uses a cache for the
+     * duration of a single assembly.
+     * @param cache The cache or {@code null}
+     * @return This context
+     */
+    public BuilderContext setFeatureCache(final FeatureCache cache) {
+        this.featureCache = cache;
+        return this;
+    }
+
+    Executor getExecutor() {
+        return this.executor;
+    }
+
+    /**
+     * Set the executor to assemble the features of an application with.
+     * If an executor is set, the {@link ApplicationBuilder} assembles the
+     * features in parallel and merges the results in the same order as
+     * without an executor, so the application is the same.
+     * The feature provider and the extension handlers must then be safe
+     * for concurrent use.
+     * @param executor The executor or {@code null} to assemble sequentially
+     * @return This context
+     */
+    public BuilderContext setExecutor(final Executor executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    Map<String, String> getFeatureHashes() {
+        return this.featureHashes;
+    }
+
+    /**
+     * Clone the context for building an application. The features of the
+     * application are provided by the same provider during the build, so the
+     * clone remembers the hashes of the features for all of them.
+     * @param featureProvider The provider of the clone
+     * @return The clone
+     */
     BuilderContext clone(final FeatureProvider featureProvider) {
         final BuilderContext ctx = new BuilderContext(featureProvider);
         ctx.featureExtensionHandlers.addAll(featureExtensionHandlers);
+        ctx.featureCache = featureCache;
+        ctx.executor = executor;
+        ctx.featureHashes = new ConcurrentHashMap<>();
         return ctx;
     }
 }
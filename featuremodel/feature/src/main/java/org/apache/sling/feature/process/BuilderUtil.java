@@ -16,16 +16,10 @@
  */
 package org.apache.sling.feature.process;
 
-import java.io.StringReader;
 import java.util.Enumeration;
 import java.util.List;
 import java.util.Map;
 
-import javax.json.Json;
-import javax.json.JsonArray;
-import javax.json.JsonObject;
-import javax.json.JsonStructure;
-import javax.json.JsonValue;
 import javax.json.JsonValue.ValueType;
 
 import org.apache.sling.feature.Application;
@@ -74,20 +68,18 @@ class BuilderUtil {
     // configurations - merge / override
     static void mergeConfigurations(final Configurations target, final Configurations source) {
         for(final Configuration cfg : source) {
-            boolean found = false;
-            for(final Configuration current : target) {
-                if ( current.compareTo(cfg) == 0 ) {
-                    found = true;
-                    // merge / override properties
-                    final Enumeration<String> i = cfg.getProperties().keys();
-                    while ( i.hasMoreElements() ) {
-                        final String key = i.nextElement();
-                        current.getProperties().put(key, cfg.getProperties().get(key));
-                    }
-                    break;
+            // the index of the target finds the same configuration as compareTo
+            final Configuration current = cfg.isFactoryConfiguration()
+                    ? target.getFactoryConfiguration(cfg.getFactoryPid(), cfg.getName())
+                    : target.getConfiguration(cfg.getPid());
+            if ( current != null ) {
+                // merge / override properties
+                final Enumeration<String> i = cfg.getProperties().keys();
+                while ( i.hasMoreElements() ) {
+                    final String key = i.nextElement();
+                    current.getProperties().put(key, cfg.getProperties().get(key));
                 }
-            }
-            if ( !found ) {
+            } else {
                 target.add(cfg);
             }
         }
@@ -117,6 +109,7 @@ class BuilderUtil {
     }
 
     // default merge for extensions
+    @SuppressWarnings("unchecked")
     static void mergeExtensions(final Extension target,
             final Extension source,
             final ArtifactMerge artifactMergeAlg) {
@@ -124,29 +117,20 @@ class BuilderUtil {
             case TEXT : // simply append
                         target.setText(target.getText() + "\n" + source.getText());
                         break;
-            case JSON : final JsonStructure struct1;
-                        try ( final StringReader reader = new StringReader(target.getJSON()) ) {
-                            struct1 = Json.createReader(reader).read();
-                        }
-                        final JsonStructure struct2;
-                        try ( final StringReader reader = new StringReader(source.getJSON()) ) {
-                            struct2 = Json.createReader(reader).read();
-                        }
+            case JSON : final Object struct1 = target.getJSONStructure();
+                        // the source is not changed, it might be merged concurrently
+                        final Object struct2 = source.getJSONStructureCopy();
 
-                        if ( struct1.getValueType() != struct2.getValueType() ) {
+                        if ( getValueType(struct1) != getValueType(struct2) ) {
                             throw new IllegalStateException("Found different JSON types for extension " + target.getName()
-                                + " : " + struct1.getValueType() + " and " + struct2.getValueType());
+                                + " : " + getValueType(struct1) + " and " + getValueType(struct2));
                         }
-                        if ( struct1.getValueType() == ValueType.ARRAY ) {
+                        if ( struct1 instanceof List ) {
                             // array is append
-                            final JsonArray a1 = (JsonArray)struct1;
-                            final JsonArray a2 = (JsonArray)struct2;
-                            for(final JsonValue val : a2) {
-                                a1.add(val);
-                            }
+                            append((List<Object>)struct1, (List<?>)struct2);
                         } else {
                             // object is merge
-                            merge((JsonObject)struct1, (JsonObject)struct2);
+                            merge((Map<String, Object>)struct1, (Map<?, ?>)struct2);
                         }
                         break;
 
@@ -234,28 +218,35 @@ class BuilderUtil {
         }
     }
 
-    private static void merge(final JsonObject obj1, final JsonObject obj2) {
-        for(final Map.Entry<String, JsonValue> entry : obj2.entrySet()) {
-            if ( !obj1.containsKey(entry.getKey()) ) {
-                obj1.put(entry.getKey(), entry.getValue());
+    /**
+     * Merge the second object into the first one. The values of the
+     * second object are added without copying them.
+     */
+    @SuppressWarnings("unchecked")
+    private static void merge(final Map<String, Object> obj1, final Map<?, ?> obj2) {
+        for(final Map.Entry<?, ?> entry : obj2.entrySet()) {
+            final Object oldValue = obj1.get(entry.getKey());
+            if ( oldValue instanceof List && entry.getValue() instanceof List ) {
+                append((List<Object>)oldValue, (List<?>)entry.getValue());
+            } else if ( oldValue instanceof Map && entry.getValue() instanceof Map ) {
+                merge((Map<String, Object>)oldValue, (Map<?, ?>)entry.getValue());
             } else {
-                final JsonValue oldValue = obj1.get(entry.getKey());
-                if ( oldValue.getValueType() != entry.getValue().getValueType() ) {
-                    // new type wins
-                    obj1.put(entry.getKey(), entry.getValue());
-                } else if ( oldValue.getValueType() == ValueType.ARRAY ) {
-                    final JsonArray a1 = (JsonArray)oldValue;
-                    final JsonArray a2 = (JsonArray)entry.getValue();
-                    for(final JsonValue val : a2) {
-                        a1.add(val);
-                    }
-
-                } else if ( oldValue.getValueType() == ValueType.OBJECT ) {
-                    merge((JsonObject)oldValue, (JsonObject)entry.getValue());
-                } else {
-                    obj1.put(entry.getKey(), entry.getValue());
-                }
+                // new value wins
+                obj1.put((String)entry.getKey(), entry.getValue());
             }
         }
     }
+
+    private static void append(final List<Object> a1, final List<?> a2) {
+        a1.addAll(a2);
+    }
+
+    private static ValueType getValueType(final Object value) {
+        if ( value instanceof Map ) {
+            return ValueType.OBJECT;
+        } else if ( value instanceof List ) {
+            return ValueType.ARRAY;
+        }
+        return null;
+    }
 }
@@ -17,6 +17,7 @@
 package org.apache.sling.feature.process;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -44,10 +45,13 @@ public class FeatureBuilder {
         if ( feature == null || context == null ) {
             throw new IllegalArgumentException("Feature and/or context must not be null");
         }
-        return internalAssemble(new ArrayList<>(), feature, context);
+        // provided features might change between calls, unless they are the features of an application
+        final Map<String, String> hashes = context.getFeatureHashes() != null ? context.getFeatureHashes() : new HashMap<>();
+        return internalAssemble(new ArrayList<>(), hashes, feature, context);
     }
 
     private static Feature internalAssemble(final List<String> processedFeatures,
+            final Map<String, String> hashes,
             final Feature feature,
             final BuilderContext context) {
         if ( feature.isAssembled() ) {
@@ -56,6 +60,20 @@ public class FeatureBuilder {
         if ( processedFeatures.contains(feature.getId().toMvnId()) ) {
             throw new IllegalStateException("Recursive inclusion of " + feature.getId().toMvnId() + " via " + processedFeatures);
         }
+
+        // a feature without includes is assembled by copying it
+        final FeatureCache cache = feature.getIncludes().isEmpty() ? null : context.getFeatureCache();
+        final String hash;
+        if ( cache != null ) {
+            hash = hash(new ArrayList<>(processedFeatures), hashes, feature, context);
+            final Feature cached = cache.get(feature.getId(), hash);
+            if ( cached != null ) {
+                cached.setLocation(feature.getLocation());
+                return cached;
+            }
+        } else {
+            hash = null;
+        }
         processedFeatures.add(feature.getId().toMvnId());
 
         // we copy the feature as we set the assembled flag on the result
@@ -79,7 +97,8 @@ public class FeatureBuilder {
                 if ( f == null ) {
                     throw new IllegalStateException("Unable to find included feature " + i.getId());
                 }
-                final Feature af = internalAssemble(processedFeatures, f, context);
+                // an assembled feature is copied, as the include instructions change it
+                final Feature af = f.isAssembled() ? f.copy() : internalAssemble(processedFeatures, hashes, f, context);
 
                 // process include instructions
                 include(af, i);
@@ -92,9 +111,51 @@ public class FeatureBuilder {
         processedFeatures.remove(feature.getId().toMvnId());
 
         result.setAssembled(true);
+        if ( cache != null ) {
+            cache.put(feature.getId(), hash, result);
+        }
         return result;
     }
 
+    /**
+     * Calculate the hash of a feature and everything it includes
+     * @param processedFeatures The features including this feature
+     * @param hashes The hashes calculated so far by feature id
+     * @param feature The feature
+     * @param context The builder context
+     * @return The hash
+     */
+    private static String hash(final List<String> processedFeatures,
+            final Map<String, String> hashes,
+            final Feature feature,
+            final BuilderContext context) {
+        final String mvnId = feature.getId().toMvnId();
+        String hash = hashes.get(mvnId);
+        if ( hash == null ) {
+            if ( processedFeatures.contains(mvnId) ) {
+                throw new IllegalStateException("Recursive inclusion of " + mvnId + " via " + processedFeatures);
+            }
+            processedFeatures.add(mvnId);
+            final List<String> includeHashes = new ArrayList<>();
+            for(final Include i : feature.getIncludes()) {
+                if ( feature.isAssembled() ) {
+                    // an assembled feature is used as is
+                    includeHashes.add(null);
+                    continue;
+                }
+                final Feature f = context.getFeatureProvider().provide(i.getId());
+                if ( f == null ) {
+                    throw new IllegalStateException("Unable to find included feature " + i.getId());
+                }
+                includeHashes.add(hash(processedFeatures, hashes, f, context));
+            }
+            processedFeatures.remove(mvnId);
+            hash = FeatureCache.hash(feature, includeHashes, context);
+            hashes.put(mvnId, hash);
+        }
+        return hash;
+    }
+
     private static void merge(final Feature target,
             final Feature source,
             final BuilderContext context) {
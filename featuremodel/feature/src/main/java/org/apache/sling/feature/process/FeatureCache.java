@@ -0,0 +1,245 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.feature.process;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.sling.feature.Artifact;
+import org.apache.sling.feature.ArtifactId;
+import org.apache.sling.feature.Configuration;
+import org.apache.sling.feature.Extension;
+import org.apache.sling.feature.Feature;
+import org.apache.sling.feature.Include;
+import org.osgi.resource.Capability;
+import org.osgi.resource.Requirement;
+
+/**
+ * A cache of assembled features.
+ *
+ * Assembled features are keyed by their id and a hash of the content of the
+ * feature and of its includes, so a feature is only assembled again if the
+ * feature or one of its includes changed. The cache is safe for concurrent
+ * use. Optionally, a {@link FeatureCacheStore} keeps the assembled features
+ * between builds.
+ */
+public class FeatureCache {
+
+    /**
+     * Part of every hash, change it whenever the way features are assembled
+     * changes, so that features assembled by a previous version are not used.
+     */
+    static final String VERSION = "feature-cache-2";
+
+    private final Map<String, Feature> features = new ConcurrentHashMap<>();
+
+    private final FeatureCacheStore store;
+
+    /**
+     * Create a new in memory cache
+     */
+    public FeatureCache() {
+        this(null);
+    }
+
+    /**
+     * Create a new cache
+     * @param store The optional store to load and store assembled features
+     */
+    public FeatureCache(final FeatureCacheStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Remove all assembled features from memory
+     */
+    public void clear() {
+        this.features.clear();
+    }
+
+    /**
+     * Get a copy of an assembled feature
+     * @param id The feature id
+     * @param hash The hash of the feature and its includes
+     * @return The assembled feature or {@code null}
+     */
+    Feature get(final ArtifactId id, final String hash) {
+        final String key = key(id, hash);
+        Feature feature = this.features.get(key);
+        if ( feature == null && this.store != null ) {
+            feature = this.store.load(id, hash);
+            if ( feature != null ) {
+                feature.setAssembled(true);
+                this.features.putIfAbsent(key, feature);
+            }
+        }
+        return feature == null ? null : feature.copy();
+    }
+
+    /**
+     * Add an assembled feature. A copy of the feature is kept, so the
+     * feature can be modified afterwards.
+     * @param id The feature id
+     * @param hash The hash of the feature and its includes
+     * @param feature The assembled feature
+     */
+    void put(final ArtifactId id, final String hash, final Feature feature) {
+        final Feature copy = feature.copy();
+        this.features.put(key(id, hash), copy);
+        if ( this.store != null ) {
+            this.store.store(id, hash, copy);
+        }
+    }
+
+    private static String key(final ArtifactId id, final String hash) {
+        return id.toMvnId() + '@' + hash;
+    }
+
+    /**
+     * Calculate the hash of everything the assembly of a feature depends on
+     * @param feature The feature
+     * @param includeHashes The hashes of the included features, in the order of the includes
+     * @param context The builder context
+     * @return The hash as a hex string
+     */
+    static String hash(final Feature feature, final List<String> includeHashes, final BuilderContext context) {
+        final HashBuilder hb = new HashBuilder();
+        hb.add(VERSION);
+        hb.add(feature.getId().toMvnId());
+        hb.add(feature.getLocation());
+        hb.add(feature.getTitle());
+        hb.add(feature.getDescription());
+        hb.add(feature.getVendor());
+        hb.add(feature.getLicense());
+        hb.add(feature.getVariables().toString());
+
+        hb.add("bundles");
+        for(final Artifact a : feature.getBundles()) {
+            hb.add(a.getId().toMvnId());
+            hb.add(a.getMetadata().toString());
+        }
+        hb.add("configurations");
+        for(final Configuration cfg : feature.getConfigurations()) {
+            hb.add(cfg.getFactoryPid());
+            hb.add(cfg.isFactoryConfiguration() ? cfg.getName() : cfg.getPid());
+            final Map<String, Object> props = new TreeMap<>();
+            final Enumeration<String> keys = cfg.getProperties().keys();
+            while ( keys.hasMoreElements() ) {
+                final String key = keys.nextElement();
+                props.put(key, cfg.getProperties().get(key));
+            }
+            for(final Map.Entry<String, Object> entry : props.entrySet()) {
+                hb.add(entry.getKey());
+                hb.add(entry.getValue().getClass().getName());
+                hb.add(Arrays.deepToString(new Object[] {entry.getValue()}));
+            }
+        }
+        hb.add("framework");
+        hb.add(feature.getFrameworkProperties().toString());
+        hb.add("requirements");
+        for(final Requirement r : feature.getRequirements()) {
+            hb.add(r.getNamespace());
+            hb.add(new TreeMap<>(r.getAttributes()).toString());
+            hb.add(new TreeMap<>(r.getDirectives()).toString());
+        }
+        hb.add("capabilities");
+        for(final Capability c : feature.getCapabilities()) {
+            hb.add(c.getNamespace());
+            hb.add(new TreeMap<>(c.getAttributes()).toString());
+            hb.add(new TreeMap<>(c.getDirectives()).toString());
+        }
+        hb.add("includes");
+        int index = 0;
+        for(final Include i : feature.getIncludes()) {
+            hb.add(i.getId().toMvnId());
+            hb.add(includeHashes.get(index++));
+            hb.add(i.getBundleRemovals().toString());
+            hb.add(i.getConfigurationRemovals().toString());
+            hb.add(i.getExtensionRemovals().toString());
+            hb.add(i.getFrameworkPropertiesRemovals().toString());
+            hb.add(new TreeMap<>(i.getArtifactExtensionRemovals()).toString());
+        }
+        hb.add("extensions");
+        for(final Extension ext : feature.getExtensions()) {
+            hb.add(ext.getName());
+            hb.add(ext.getType().name());
+            hb.add(String.valueOf(ext.isRequired()));
+            switch ( ext.getType() ) {
+                case ARTIFACTS : for(final Artifact a : ext.getArtifacts()) {
+                                     hb.add(a.getId().toMvnId());
+                                     hb.add(a.getMetadata().toString());
+                                 }
+                                 break;
+                case JSON : hb.add(ext.getJSON());
+                            break;
+                case TEXT : hb.add(ext.getText());
+                            break;
+            }
+        }
+        // extension handlers take part in merging
+        hb.add("handlers");
+        for(final FeatureExtensionHandler handler : context.getFeatureExtensionHandlers()) {
+            hb.add(handler.getClass().getName());
+        }
+        return hb.toString();
+    }
+
+    /**
+     * Digests a sequence of strings, each value is prefixed with its length
+     * so that different sequences can't result in the same input.
+     */
+    private static final class HashBuilder {
+
+        private final MessageDigest digest;
+
+        HashBuilder() {
+            try {
+                this.digest = MessageDigest.getInstance("SHA-256");
+            } catch (final NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        void add(final String value) {
+            if ( value == null ) {
+                this.digest.update((byte) 0);
+            } else {
+                final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                this.digest.update((byte) 1);
+                this.digest.update(String.valueOf(bytes.length).getBytes(StandardCharsets.UTF_8));
+                this.digest.update((byte) ':');
+                this.digest.update(bytes);
+            }
+        }
+
+        @Override
+        public String toString() {
+            final StringBuilder sb = new StringBuilder();
+            for(final byte b : this.digest.digest()) {
+                sb.append(String.format("%02x", b));
+            }
+            return sb.toString();
+        }
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.feature.process;
+
+import org.apache.sling.feature.ArtifactId;
+import org.apache.sling.feature.Feature;
+
+/**
+ * A feature cache store keeps assembled features between builds.
+ */
+public interface FeatureCacheStore {
+
+    /**
+     * Load an assembled feature.
+     * Entries which can't be read are treated as missing.
+     * @param id The feature id
+     * @param hash The hash of the feature and its includes
+     * @return The assembled feature or {@code null}
+     */
+    Feature load(ArtifactId id, String hash);
+
+    /**
+     * Store an assembled feature.
+     * @param id The feature id
+     * @param hash The hash of the feature and its includes
+     * @param feature The assembled feature
+     */
+    void store(ArtifactId id, String hash, Feature feature);
+}
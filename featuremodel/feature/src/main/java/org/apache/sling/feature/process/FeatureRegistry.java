@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.feature.process;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.sling.feature.ArtifactId;
+import org.apache.sling.feature.Feature;
+
+/**
+ * The features of an application, indexed by their exact id and by their
+ * id without the version.
+ *
+ * The registry provides every added feature by its exact id. If the same
+ * feature is added more than once, only the one with the highest version
+ * is selected. The registry is not changed once the features are added,
+ * so it can be used concurrently during assembly.
+ */
+class FeatureRegistry implements FeatureProvider {
+
+    private final Map<ArtifactId, Feature> features = new HashMap<>();
+
+    /** The selected features by their id without the version, in order of addition */
+    private final Map<String, Feature> selected = new LinkedHashMap<>();
+
+    /**
+     * Add a feature.
+     * If the same feature is already selected with a lower version, it
+     * is replaced by this feature, which is then selected last.
+     * @param feature The feature
+     */
+    void add(final Feature feature) {
+        if ( !features.containsKey(feature.getId()) ) {
+            features.put(feature.getId(), feature);
+        }
+        final String key = feature.getId().getSameKey();
+        final Feature found = selected.get(key);
+        if ( found != null ) {
+            if ( feature.getId().getOSGiVersion().compareTo(found.getId().getOSGiVersion()) <= 0 ) {
+                // higher version already selected
+                return;
+            }
+            // remove lower version, higher version will be added
+            selected.remove(key);
+        }
+        selected.put(key, feature);
+    }
+
+    /**
+     * The selected features
+     * @return A new list with the selected features in order of selection
+     */
+    List<Feature> getSelectedFeatures() {
+        return new ArrayList<>(selected.values());
+    }
+
+    @Override
+    public Feature provide(final ArtifactId id) {
+        return features.get(id);
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.feature;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Uses artifact ids the way the assembly does: as map keys, sorted and
+ * compared by their OSGi version. The interned variants repeatedly
+ * parse the same coordinates, as the features of an application do.
+ *
+ * Run with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.openjdk.jmh.Main -Dexec.args=ArtifactIdBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ArtifactIdBenchmark {
+
+    @Param({"3000"})
+    public int artifacts;
+
+    private String[] urls;
+
+    private ArtifactId[] ids;
+
+    /** Equal to {@link #ids}, but different instances. */
+    private ArtifactId[] lookups;
+
+    private final ArtifactIdInterner interner = new ArtifactIdInterner();
+
+    @Setup
+    public void setup() {
+        urls = new String[artifacts];
+        ids = new ArtifactId[artifacts];
+        lookups = new ArtifactId[artifacts];
+        for(int i = 0; i < artifacts; i++) {
+            urls[i] = "mvn:org.apache.sling/org.apache.sling.bundle" + (i % 500) + "/1." + (i / 500) + ".0-SNAPSHOT";
+            ids[i] = ArtifactId.fromMvnUrl(urls[i]);
+            lookups[i] = ArtifactId.fromMvnUrl(urls[i]);
+        }
+    }
+
+    @Benchmark
+    public int mapLookup() {
+        final Map<ArtifactId, Integer> map = new HashMap<>();
+        for(int i = 0; i < ids.length; i++) {
+            map.put(ids[i], i);
+        }
+        int found = 0;
+        for(final ArtifactId id : lookups) {
+            if ( map.containsKey(id) ) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    @Benchmark
+    public List<ArtifactId> sort() {
+        final List<ArtifactId> list = new ArrayList<>(artifacts);
+        for(int i = ids.length - 1; i >= 0; i--) {
+            list.add(ids[i]);
+        }
+        Collections.sort(list);
+        return list;
+    }
+
+    @Benchmark
+    public int compareVersions() {
+        int newer = 0;
+        for(int i = 1; i < ids.length; i++) {
+            if ( ids[i].getOSGiVersion().compareTo(lookups[i - 1].getOSGiVersion()) > 0 ) {
+                newer++;
+            }
+        }
+        return newer;
+    }
+
+    @Benchmark
+    public ArtifactId[] fromMvnUrl() {
+        final ArtifactId[] result = new ArtifactId[urls.length];
+        for(int i = 0; i < urls.length; i++) {
+            result[i] = ArtifactId.fromMvnUrl(urls[i]);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public ArtifactId[] fromMvnUrlInterned() {
+        final ArtifactId[] result = new ArtifactId[urls.length];
+        for(int i = 0; i < urls.length; i++) {
+            result[i] = interner.fromMvnUrl(urls[i]);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public int mapLookupInterned() {
+        final Map<ArtifactId, Integer> map = new HashMap<>();
+        for(int i = 0; i < urls.length; i++) {
+            map.put(interner.fromMvnUrl(urls[i]), i);
+        }
+        int found = 0;
+        for(final String url : urls) {
+            if ( map.containsKey(interner.fromMvnUrl(url)) ) {
+                found++;
+            }
+        }
+        return found;
+    }
+}
@@ -17,7 +17,10 @@
 package org.apache.sling.feature;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import org.junit.Test;
@@ -146,4 +149,43 @@ public class ArtifactIdTest {
         final ArtifactId id = new ArtifactId("group.a", "artifact.b", "1.0", "foo", "zip");
         assertEquals("group.a:artifact.b:zip:foo:1.0", id.toMvnId());
     }
+
+    @Test public void testSameKey() {
+        final ArtifactId id = new ArtifactId("group.a", "artifact.b", "1.0", "foo", "zip");
+        assertEquals("group.a:artifact.b:zip:foo", id.getSameKey());
+        assertEquals(id.getSameKey(), new ArtifactId("group.a", "artifact.b", "2.0", "foo", "zip").getSameKey());
+        assertEquals("group.a:artifact.b:jar", ArtifactId.fromMvnId("group.a:artifact.b:1.0").getSameKey());
+        assertNotEquals(id.getSameKey(), new ArtifactId("group.a", "artifact.b", "1.0", null, "zip").getSameKey());
+    }
+
+    @Test
+    public void testCachedValues() {
+        final ArtifactId id = new ArtifactId(G, A, "1.2.3-SNAPSHOT", "c", "zip");
+        final ArtifactId same = ArtifactId.fromMvnUrl("mvn:g/a/1.2.3-SNAPSHOT/zip/c");
+        assertEquals("mvn:g/a/1.2.3-SNAPSHOT/zip/c", id.toMvnUrl());
+        assertSame(id.toMvnUrl(), id.toMvnUrl());
+        assertEquals(id, same);
+        assertEquals(id.hashCode(), same.hashCode());
+        assertEquals(0, id.compareTo(same));
+        assertNotEquals(id, new ArtifactId(G, A, "1.2.3-SNAPSHOT", null, "zip"));
+        assertSame(id.getOSGiVersion(), id.getOSGiVersion());
+        assertEquals(new Version(1, 2, 3, "SNAPSHOT"), id.getOSGiVersion());
+    }
+
+    @Test
+    public void testInterner() {
+        final ArtifactIdInterner interner = new ArtifactIdInterner();
+        final ArtifactId id = interner.fromMvnUrl("mvn:g/a/1");
+        assertSame(id, interner.fromMvnUrl("mvn:g/a/1"));
+        assertSame(id, interner.parse("g/a/1"));
+        assertSame(id, interner.parse("g:a:1"));
+        assertSame(id, interner.fromMvnId("g:a:jar:1"));
+        assertSame(id, interner.intern(new ArtifactId(G, A, "1", null, null)));
+        assertNotSame(id, interner.parse("g:a:2"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInternerInvalid() {
+        new ArtifactIdInterner().fromMvnUrl("g:a:1");
+    }
 }
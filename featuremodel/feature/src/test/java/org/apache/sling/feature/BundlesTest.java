@@ -17,6 +17,11 @@
 package org.apache.sling.feature;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
 
 import java.util.List;
 import java.util.Map;
@@ -46,6 +51,47 @@ public class BundlesTest {
         assertEquals(7, index);
     }
 
+    @Test
+    public void testSameAndExact() {
+        final Bundles bundles = new Bundles();
+        bundles.add(createBundle("g/a/1", 1));
+        bundles.add(createBundle("g/a/1/jar/sources", 1));
+        bundles.add(createBundle("g/a/2", 2));
+
+        assertEquals(ArtifactId.parse("g/a/1"), bundles.getSame(ArtifactId.parse("g/a/3")).getId());
+        assertEquals(ArtifactId.parse("g/a/1/jar/sources"), bundles.getSame(ArtifactId.parse("g/a/3/jar/sources")).getId());
+        assertNull(bundles.getSame(ArtifactId.parse("g/a/1/zip")));
+        assertTrue(bundles.containsExact(ArtifactId.parse("g/a/2")));
+        assertFalse(bundles.containsExact(ArtifactId.parse("g/a/3")));
+        assertFalse(bundles.containsSame(ArtifactId.parse("g/b/1")));
+
+        assertTrue(bundles.removeExact(ArtifactId.parse("g/a/2")));
+        assertFalse(bundles.removeExact(ArtifactId.parse("g/a/2")));
+        assertTrue(bundles.removeSame(ArtifactId.parse("g/a/3")));
+        assertFalse(bundles.containsSame(ArtifactId.parse("g/a/3")));
+        assertTrue(bundles.containsSame(ArtifactId.parse("g/a/3/jar/sources")));
+    }
+
+    @Test
+    public void testRemoveKeepsOrder() {
+        final Bundles bundles = new Bundles();
+        for(int i = 0; i < 10; i++) {
+            bundles.add(createBundle("g/a" + i + "/1", 1));
+        }
+        bundles.removeSame(ArtifactId.parse("g/a3/2"));
+        bundles.removeExact(ArtifactId.parse("g/a7/1"));
+        bundles.add(createBundle("g/a3/2", 1));
+
+        final List<String> ids = new ArrayList<>();
+        for(final Artifact a : bundles) {
+            ids.add(a.getId().toMvnId());
+        }
+        assertEquals("[g:a0:1, g:a1:1, g:a2:1, g:a4:1, g:a5:1, g:a6:1, g:a8:1, g:a9:1, g:a3:2]", ids.toString());
+        bundles.clear();
+        assertTrue(bundles.isEmpty());
+        assertFalse(bundles.containsSame(ArtifactId.parse("g/a0/1")));
+    }
+
     public static Artifact createBundle(final String id, final int startOrder) {
         final Artifact a = new Artifact(ArtifactId.parse(id));
         a.getMetadata().put(Artifact.KEY_START_ORDER, String.valueOf(startOrder));
@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.sling.feature;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Iterator;
+
+import org.junit.Test;
+
+public class ConfigurationsTest {
+
+    @Test
+    public void testLookup() {
+        final Configurations cfgs = new Configurations();
+        final Configuration c1 = new Configuration("a");
+        final Configuration c2 = new Configuration("a", "b");
+        final Configuration c3 = new Configuration("b");
+        cfgs.add(c1);
+        cfgs.add(c2);
+
+        assertSame(c1, cfgs.getConfiguration("a"));
+        assertSame(c2, cfgs.getFactoryConfiguration("a", "b"));
+        assertNull(cfgs.getConfiguration("b"));
+        assertNull(cfgs.getFactoryConfiguration("b", "a"));
+
+        // added after the index has been built
+        cfgs.add(c3);
+        assertSame(c3, cfgs.getConfiguration("b"));
+
+        // the first configuration wins
+        cfgs.add(new Configuration("a"));
+        assertSame(c1, cfgs.getConfiguration("a"));
+    }
+
+    @Test
+    public void testModifications() {
+        final Configurations cfgs = new Configurations();
+        final Configuration c1 = new Configuration("a");
+        final Configuration c2 = new Configuration("a");
+        cfgs.add(c1);
+        cfgs.add(c2);
+        assertSame(c1, cfgs.getConfiguration("a"));
+
+        cfgs.remove(c1);
+        assertSame(c2, cfgs.getConfiguration("a"));
+
+        final Configuration c3 = new Configuration("f", "n");
+        cfgs.set(0, c3);
+        assertNull(cfgs.getConfiguration("a"));
+        assertSame(c3, cfgs.getFactoryConfiguration("f", "n"));
+
+        final Iterator<Configuration> iter = cfgs.iterator();
+        iter.next();
+        iter.remove();
+        assertNull(cfgs.getFactoryConfiguration("f", "n"));
+
+        cfgs.add(c1);
+        cfgs.clear();
+        assertNull(cfgs.getConfiguration("a"));
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.sling.feature;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class ExtensionTest {
+
+    private static final String JSON = "{\"string\":\"a\\\"b\",\"long\":-12,"
+            + "\"decimal\":1.5,\"true\":true,\"false\":false,\"null\":null,\"array\":[1,{\"x\":[]},[\"y\"]],\"object\":{}}";
+
+    @Test
+    public void testJSONStructure() {
+        final Extension ext = new Extension(ExtensionType.JSON, "json", false);
+        assertNull(ext.getJSONStructure());
+        ext.setJSON(JSON);
+
+        @SuppressWarnings("unchecked")
+        final Map<String, Object> obj = (Map<String, Object>)ext.getJSONStructure();
+        assertEquals(Arrays.asList("string", "long", "decimal", "true", "false", "null", "array", "object"),
+                Arrays.asList(obj.keySet().toArray()));
+        assertEquals("a\"b", obj.get("string"));
+        assertEquals(-12L, obj.get("long"));
+        assertEquals(new BigDecimal("1.5"), obj.get("decimal"));
+        assertEquals(Boolean.TRUE, obj.get("true"));
+        assertEquals(Boolean.FALSE, obj.get("false"));
+        assertNull(obj.get("null"));
+        assertEquals(3, ((List<?>)obj.get("array")).size());
+
+        // the JSON is written as it was read
+        assertEquals(JSON, ext.getJSON());
+
+        // changes are written
+        obj.remove("long");
+        obj.put("added", 7);
+        assertEquals(JSON.replace("\"long\":-12,", "").replace("}}", "},\"added\":7}"),
+                ext.getJSON());
+
+        ext.setJSON("[]");
+        assertEquals(0, ((List<?>)ext.getJSONStructure()).size());
+    }
+
+    @Test
+    public void testJSONStructureCopy() {
+        final Extension ext = new Extension(ExtensionType.JSON, "json", false);
+        assertNull(ext.getJSONStructureCopy());
+        ext.setJSON("{ \"a\" : [1] }");
+
+        @SuppressWarnings("unchecked")
+        final Map<String, Object> copy = (Map<String, Object>)ext.getJSONStructureCopy();
+        assertEquals(Arrays.asList(1L), copy.get("a"));
+        copy.clear();
+        // the text is neither parsed into the extension nor changed
+        assertEquals("{ \"a\" : [1] }", ext.getJSON());
+
+        ((Map<?, ?>)ext.getJSONStructure()).remove("b");
+        @SuppressWarnings("unchecked")
+        final Map<String, Object> parsedCopy = (Map<String, Object>)ext.getJSONStructureCopy();
+        ((List<?>)parsedCopy.get("a")).clear();
+        assertEquals("{\"a\":[1]}", ext.getJSON());
+    }
+
+    @Test
+    public void testCopy() {
+        final Feature f = new Feature(ArtifactId.parse("g/f/1"));
+        final Extension ext = new Extension(ExtensionType.JSON, "json", false);
+        ext.setJSON("{\"a\":[1]}");
+        f.getExtensions().add(ext);
+        ((Map<?, ?>)ext.getJSONStructure()).clear();
+
+        final Extension copy = f.copy().getExtensions().getByName("json");
+        assertEquals("{}", copy.getJSON());
+        @SuppressWarnings("unchecked")
+        final Map<String, Object> copied = (Map<String, Object>)copy.getJSONStructure();
+        copied.put("b", "c");
+        assertEquals("{}", ext.getJSON());
+        assertEquals("{\"b\":\"c\"}", copy.getJSON());
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.sling.feature.process;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.sling.feature.Application;
+import org.apache.sling.feature.ArtifactId;
+import org.apache.sling.feature.BundlesTest;
+import org.apache.sling.feature.Feature;
+import org.apache.sling.feature.Include;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Assembles an application from features with thousands of bundles, most of
+ * which are contained in every feature with a different version, and from
+ * features sharing a chain of included features.
+ *
+ * Run with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.openjdk.jmh.Main -Dexec.args=ApplicationBuilderBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ApplicationBuilderBenchmark {
+
+    @Param({"600", "3000"})
+    public int bundles;
+
+    @Param({"8"})
+    public int features;
+
+    private Feature[] input;
+
+    /** Features including the last feature of a chain of base features. */
+    private Feature[] including;
+
+    private final Map<ArtifactId, Feature> bases = new HashMap<>();
+
+    @Setup
+    public void setup() {
+        input = new Feature[features];
+        for(int i = 0; i < features; i++) {
+            final Feature f = new Feature(ArtifactId.parse("g/feature" + i + "/1"));
+            for(int b = 0; b < bundles; b++) {
+                // every tenth bundle is specific to the feature
+                final String artifactId = b % 10 == 0 ? "bundle" + b + "-" + i : "bundle" + b;
+                f.getBundles().add(BundlesTest.createBundle("g/" + artifactId + "/1." + i, 1 + b % 20));
+            }
+            input[i] = f;
+        }
+
+        // a chain of base features, each including the previous one
+        Include previous = null;
+        for(int i = 0; i < 4; i++) {
+            final Feature base = new Feature(ArtifactId.parse("g/base" + i + "/1"));
+            for(int b = 0; b < bundles / 4; b++) {
+                base.getBundles().add(BundlesTest.createBundle("g/base" + i + "-bundle" + b + "/1", 1 + b % 20));
+            }
+            if ( previous != null ) {
+                base.getIncludes().add(previous);
+            }
+            bases.put(base.getId(), base);
+            previous = new Include(base.getId());
+        }
+        including = new Feature[features];
+        for(int i = 0; i < features; i++) {
+            final Feature f = new Feature(ArtifactId.parse("g/including" + i + "/1"));
+            f.getIncludes().add(new Include(previous.getId()));
+            for(int b = 0; b < bundles / 10; b++) {
+                f.getBundles().add(BundlesTest.createBundle("g/including" + i + "-bundle" + b + "/1", 1 + b % 20));
+            }
+            including[i] = f;
+        }
+    }
+
+    @Benchmark
+    public Application assemble() {
+        final BuilderContext context = new BuilderContext(new FeatureProvider() {
+
+            @Override
+            public Feature provide(final ArtifactId id) {
+                return null;
+            }
+        });
+        return ApplicationBuilder.assemble(null, context, null, copy(input));
+    }
+
+    @Benchmark
+    public Application assembleIncludes() {
+        final BuilderContext context = new BuilderContext(new FeatureProvider() {
+
+            @Override
+            public Feature provide(final ArtifactId id) {
+                return bases.get(id);
+            }
+        });
+        return ApplicationBuilder.assemble(null, context, null, copy(including));
+    }
+
+    /*
+     * The start order of the assembled bundles is changed, so every run
+     * starts from fresh features
+     */
+    static Feature[] copy(final Feature[] features) {
+        final Feature[] result = new Feature[features.length];
+        for(int i = 0; i < features.length; i++) {
+            result[i] = features[i].copy();
+        }
+        return result;
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.feature.process;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.sling.feature.Application;
+import org.apache.sling.feature.Artifact;
+import org.apache.sling.feature.ArtifactId;
+import org.apache.sling.feature.BundlesTest;
+import org.apache.sling.feature.Configuration;
+import org.apache.sling.feature.Extension;
+import org.apache.sling.feature.ExtensionType;
+import org.apache.sling.feature.Feature;
+import org.apache.sling.feature.Include;
+import org.junit.After;
+import org.junit.Test;
+
+public class ApplicationBuilderTest {
+
+    private final Map<ArtifactId, Feature> provided = new HashMap<>();
+
+    private final FeatureProvider provider = new FeatureProvider() {
+
+        @Override
+        public Feature provide(final ArtifactId id) {
+            return provided.get(id);
+        }
+    };
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @After
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /*
+     * Every feature includes the same base feature and removes one of its
+     * bundles, and every feature has bundles, configurations, framework
+     * properties and extensions which overlap with the other features
+     */
+    private Feature[] createFeatures() {
+        final Feature base = new Feature(ArtifactId.parse("g/base/1"));
+        for(int b = 0; b < 10; b++) {
+            base.getBundles().add(BundlesTest.createBundle("g/base-bundle" + b + "/1", 1 + b % 3));
+        }
+        base.getConfigurations().add(configuration("base.pid", "base"));
+        base.getFrameworkProperties().put("base", "true");
+        provided.put(base.getId(), base);
+
+        final Feature[] features = new Feature[12];
+        for(int i = 0; i < features.length; i++) {
+            final Feature f = new Feature(ArtifactId.parse("g/feature" + i + "/1." + (i % 4)));
+            final Include inc = new Include(base.getId());
+            inc.getBundleRemovals().add(ArtifactId.parse("g/base-bundle" + (i % 10) + "/1"));
+            f.getIncludes().add(inc);
+            for(int b = 0; b < 20; b++) {
+                f.getBundles().add(BundlesTest.createBundle("g/bundle" + (b + i) + "/1." + i, 1 + b % 5));
+            }
+            f.getConfigurations().add(configuration("pid" + (i % 3), "feature" + i));
+            f.getConfigurations().add(configuration("factory.pid", "name" + i, "feature" + i));
+            f.getFrameworkProperties().put("prop" + (i % 5), "feature" + i);
+
+            final Extension text = new Extension(ExtensionType.TEXT, "text", false);
+            text.setText("feature" + i);
+            f.getExtensions().add(text);
+            final Extension artifacts = new Extension(ExtensionType.ARTIFACTS, "artifacts", false);
+            artifacts.getArtifacts().add(new Artifact(ArtifactId.parse("g/artifact" + (i % 4) + "/1." + i)));
+            f.getExtensions().add(artifacts);
+            features[i] = f;
+        }
+        return features;
+    }
+
+    private static Configuration configuration(final String pid, final String value) {
+        final Configuration c = new Configuration(pid);
+        c.getProperties().put("value", value);
+        return c;
+    }
+
+    private static Configuration configuration(final String factoryPid, final String name, final String value) {
+        final Configuration c = new Configuration(factoryPid, name);
+        c.getProperties().put("value", value);
+        return c;
+    }
+
+    /** Render everything of the application, in the order it is contained in */
+    private static String render(final Application app) {
+        final StringBuilder sb = new StringBuilder();
+        sb.append(app.getFeatureIds()).append('\n');
+        for(final Artifact a : app.getBundles()) {
+            sb.append(a.getId().toMvnId()).append(' ').append(a.getMetadata()).append('\n');
+        }
+        for(final Configuration c : app.getConfigurations()) {
+            sb.append(c.getFactoryPid()).append('~').append(c.getName()).append(' ').append(c.getPid());
+            final List<String> keys = Collections.list(c.getProperties().keys());
+            Collections.sort(keys);
+            for(final String key : keys) {
+                sb.append(' ').append(key).append('=').append(c.getProperties().get(key));
+            }
+            sb.append('\n');
+        }
+        sb.append(app.getFrameworkProperties()).append('\n');
+        for(final Extension e : app.getExtensions()) {
+            sb.append(e.getName()).append(' ').append(e.getType());
+            if ( e.getType() == ExtensionType.TEXT ) {
+                sb.append(' ').append(e.getText());
+            } else {
+                for(final Artifact a : e.getArtifacts()) {
+                    sb.append(' ').append(a.getId().toMvnId());
+                }
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    /*
+     * The start order of the assembled bundles is changed, so every run
+     * starts from fresh features
+     */
+    private Application assemble(final BuilderContext context) {
+        return ApplicationBuilder.assemble(null, context, null, createFeatures());
+    }
+
+    @Test
+    public void testParallelAssemblyIsDeterministic() {
+        final String sequential = render(assemble(new BuilderContext(provider)));
+        for(int run = 0; run < 10; run++) {
+            final String parallel = render(assemble(new BuilderContext(provider).setExecutor(executor)));
+            assertEquals(sequential, parallel);
+        }
+    }
+
+    @Test
+    public void testAssembledIncludeIsNotChanged() {
+        final String sequential = render(assembleWithAssembledBase(new BuilderContext(provider)));
+        final String parallel = render(assembleWithAssembledBase(new BuilderContext(provider).setExecutor(executor)));
+        assertEquals(sequential, parallel);
+    }
+
+    private Application assembleWithAssembledBase(final BuilderContext context) {
+        final Feature[] features = createFeatures();
+        final Feature base = provided.get(ArtifactId.parse("g/base/1"));
+        base.setAssembled(true);
+
+        final Application app = ApplicationBuilder.assemble(null, context, null, features);
+        // the bundle removals of the includes are applied to copies
+        for(int b = 0; b < 10; b++) {
+            assertTrue(base.getBundles().containsExact(ArtifactId.parse("g/base-bundle" + b + "/1")));
+        }
+        return app;
+    }
+
+    @Test
+    public void testParallelAssemblyFailure() {
+        final Feature[] features = createFeatures();
+        final Feature broken = new Feature(ArtifactId.parse("g/broken/1"));
+        broken.getIncludes().add(new Include(ArtifactId.parse("g/missing/1")));
+        final Feature[] all = new Feature[features.length + 1];
+        System.arraycopy(features, 0, all, 0, features.length);
+        all[features.length] = broken;
+        try {
+            ApplicationBuilder.assemble(null, new BuilderContext(provider).setExecutor(executor), null, all);
+            fail("Missing include must fail the assembly");
+        } catch ( final IllegalStateException expected ) {
+            assertEquals("Unable to find included feature g:missing:1", expected.getMessage());
+        }
+    }
+}
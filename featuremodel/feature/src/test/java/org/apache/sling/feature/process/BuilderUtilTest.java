@@ -17,6 +17,7 @@
 package org.apache.sling.feature.process;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.fail;
 
 import java.util.ArrayList;
@@ -27,6 +28,10 @@ import org.apache.sling.feature.Artifact;
 import org.apache.sling.feature.ArtifactId;
 import org.apache.sling.feature.Bundles;
 import org.apache.sling.feature.BundlesTest;
+import org.apache.sling.feature.Configuration;
+import org.apache.sling.feature.Configurations;
+import org.apache.sling.feature.Extension;
+import org.apache.sling.feature.ExtensionType;
 import org.apache.sling.feature.process.BuilderUtil.ArtifactMerge;
 import org.junit.Test;
 
@@ -150,4 +155,68 @@ public class BuilderUtilTest {
         assertContains(result, 2, ArtifactId.parse("g/e/1.9"));
         assertContains(result, 3, ArtifactId.parse("g/f/2.5"));
     }
+
+    @Test public void testMergeConfigurations() {
+        final Configurations target = new Configurations();
+        final Configuration t1 = new Configuration("a");
+        t1.getProperties().put("p1", "t");
+        t1.getProperties().put("p2", "t");
+        target.add(t1);
+        target.add(new Configuration("f", "a"));
+
+        final Configurations source = new Configurations();
+        final Configuration s1 = new Configuration("a");
+        s1.getProperties().put("p2", "s");
+        source.add(s1);
+        final Configuration s2 = new Configuration("f", "b");
+        source.add(s2);
+        final Configuration s3 = new Configuration("f", "b");
+        s3.getProperties().put("p", "s");
+        source.add(s3);
+
+        BuilderUtil.mergeConfigurations(target, source);
+
+        assertEquals(3, target.size());
+        assertSame(t1, target.getConfiguration("a"));
+        assertEquals("t", t1.getProperties().get("p1"));
+        assertEquals("s", t1.getProperties().get("p2"));
+        assertSame(s2, target.getFactoryConfiguration("f", "b"));
+        assertEquals("s", s2.getProperties().get("p"));
+    }
+
+    private static Extension json(final String json) {
+        final Extension ext = new Extension(ExtensionType.JSON, "json", false);
+        ext.setJSON(json);
+        return ext;
+    }
+
+    @Test public void testMergeJSONExtensions() {
+        final Extension target = json("{\"a\":1,\"list\":[1,2],\"obj\":{\"x\":\"x\",\"l\":[\"a\"]},\"changed\":[1]}");
+        final Extension source = json("{\"b\":2,\"a\":3,\"list\":[2,3],\"obj\":{\"y\":null,\"l\":[\"b\"]},\"changed\":{}}");
+        BuilderUtil.mergeExtensions(target, source, ArtifactMerge.LATEST);
+
+        // objects are merged, arrays are appended, other values and values of another type are replaced
+        assertEquals("{\"a\":3,\"list\":[1,2,2,3],\"obj\":{\"x\":\"x\",\"l\":[\"a\",\"b\"],\"y\":null},\"changed\":{},\"b\":2}",
+                target.getJSON());
+
+        // the source is not changed by changing the target
+        ((Map<?, ?>)((Map<?, ?>)target.getJSONStructure()).get("changed")).clear();
+        ((List<?>)((Map<?, ?>)((Map<?, ?>)target.getJSONStructure()).get("obj")).get("l")).clear();
+        assertEquals("{\"b\":2,\"a\":3,\"list\":[2,3],\"obj\":{\"y\":null,\"l\":[\"b\"]},\"changed\":{}}",
+                source.getJSON());
+
+        final Extension array = json("[1,{\"a\":1}]");
+        final Extension arraySource = json("[ {\"a\" : 1}, 2 ]");
+        BuilderUtil.mergeExtensions(array, arraySource, ArtifactMerge.LATEST);
+        assertEquals("[1,{\"a\":1},{\"a\":1},2]", array.getJSON());
+        // the source keeps its text
+        assertEquals("[ {\"a\" : 1}, 2 ]", arraySource.getJSON());
+
+        try {
+            BuilderUtil.mergeExtensions(array, json("{}"), ArtifactMerge.LATEST);
+            fail("Merging different JSON types must fail");
+        } catch ( final IllegalStateException expected ) {
+            assertEquals("Found different JSON types for extension json : ARRAY and OBJECT", expected.getMessage());
+        }
+    }
 }
@@ -0,0 +1,182 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.feature.process;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.sling.feature.Artifact;
+import org.apache.sling.feature.ArtifactId;
+import org.apache.sling.feature.BundlesTest;
+import org.apache.sling.feature.Feature;
+import org.apache.sling.feature.Include;
+import org.junit.Test;
+
+public class FeatureCacheTest {
+
+    private final Map<ArtifactId, Feature> features = new HashMap<>();
+
+    private final FeatureProvider provider = new FeatureProvider() {
+
+        @Override
+        public Feature provide(final ArtifactId id) {
+            return features.get(id);
+        }
+    };
+
+    /** Records the features stored and keeps them in memory. */
+    private static class RecordingStore implements FeatureCacheStore {
+
+        private final Map<String, Feature> stored = new HashMap<>();
+
+        private final List<String> storedIds = new ArrayList<>();
+
+        @Override
+        public Feature load(final ArtifactId id, final String hash) {
+            final Feature f = stored.get(id.toMvnId() + hash);
+            return f == null ? null : f.copy();
+        }
+
+        @Override
+        public void store(final ArtifactId id, final String hash, final Feature feature) {
+            storedIds.add(id.toMvnId());
+            stored.put(id.toMvnId() + hash, feature.copy());
+        }
+    }
+
+    private Feature feature(final String id, final String bundle, final String... includes) {
+        final Feature f = new Feature(ArtifactId.parse(id));
+        f.getBundles().add(BundlesTest.createBundle(bundle, 1));
+        for(final String i : includes) {
+            f.getIncludes().add(new Include(ArtifactId.parse(i)));
+        }
+        features.put(f.getId(), f);
+        return f;
+    }
+
+    private List<String> bundles(final Feature f) {
+        final List<String> result = new ArrayList<>();
+        for(final Artifact a : f.getBundles()) {
+            result.add(a.getId().toMvnId());
+        }
+        return result;
+    }
+
+    @Test public void testReassembleOnlyChangedFeatures() {
+        feature("g/base/1", "g/a/1");
+        feature("g/middle/1", "g/b/1", "g/base/1");
+        final Feature top = feature("g/top/1", "g/c/1", "g/middle/1");
+
+        final RecordingStore store = new RecordingStore();
+        final BuilderContext context = new BuilderContext(provider).setFeatureCache(new FeatureCache(store));
+
+        final Feature first = FeatureBuilder.assemble(top, context);
+        assertEquals("[g:a:1, g:b:1, g:c:1]", bundles(first).toString());
+        // features without includes are not cached
+        assertEquals("[g:middle:1, g:top:1]", store.storedIds.toString());
+
+        // nothing changed
+        final Feature second = FeatureBuilder.assemble(top, context);
+        assertEquals(bundles(first), bundles(second));
+        assertEquals(2, store.storedIds.size());
+
+        // a change of an include is picked up
+        features.get(ArtifactId.parse("g/base/1")).getBundles().add(BundlesTest.createBundle("g/d/1", 1));
+        final Feature third = FeatureBuilder.assemble(top, context);
+        assertEquals("[g:a:1, g:d:1, g:b:1, g:c:1]", bundles(third).toString());
+        assertEquals("[g:middle:1, g:top:1, g:middle:1, g:top:1]", store.storedIds.toString());
+    }
+
+    @Test public void testCachedFeaturesAreCopies() {
+        feature("g/base/1", "g/a/1");
+        final Feature top = feature("g/top/1", "g/c/1", "g/base/1");
+        final BuilderContext context = new BuilderContext(provider).setFeatureCache(new FeatureCache());
+
+        final Feature first = FeatureBuilder.assemble(top, context);
+        first.getBundles().clear();
+        first.getFrameworkProperties().put("changed", "true");
+
+        final Feature second = FeatureBuilder.assemble(top, context);
+        assertNotSame(first, second);
+        assertEquals("[g:a:1, g:c:1]", bundles(second).toString());
+        assertTrue(second.getFrameworkProperties().isEmpty());
+        assertTrue(second.isAssembled());
+    }
+
+    @Test public void testLoadFromStore() {
+        feature("g/base/1", "g/a/1");
+        final Feature top = feature("g/top/1", "g/c/1", "g/base/1");
+        final RecordingStore store = new RecordingStore();
+
+        FeatureBuilder.assemble(top, new BuilderContext(provider).setFeatureCache(new FeatureCache(store)));
+        assertEquals(1, store.storedIds.size());
+
+        // a new build with an empty memory cache uses the stored feature
+        final Feature loaded = FeatureBuilder.assemble(top, new BuilderContext(provider).setFeatureCache(new FeatureCache(store)));
+        assertEquals(1, store.storedIds.size());
+        assertEquals("[g:a:1, g:c:1]", bundles(loaded).toString());
+        assertTrue(loaded.isAssembled());
+        assertFalse(store.stored.isEmpty());
+    }
+
+    @Test public void testHashesSharedByApplication() {
+        feature("g/base/1", "g/a/1");
+        feature("g/middle/1", "g/b/1", "g/base/1");
+
+        // the includes of further features are not hashed again
+        assertEquals(provideBase(1), provideBase(3));
+    }
+
+    /**
+     * Build an application of features including the same features
+     * @return How often the innermost included feature is provided
+     */
+    private int provideBase(final int including) {
+        final AtomicInteger count = new AtomicInteger();
+        final BuilderContext context = new BuilderContext(new FeatureProvider() {
+
+            @Override
+            public Feature provide(final ArtifactId id) {
+                if ( id.getArtifactId().equals("base") ) {
+                    count.incrementAndGet();
+                }
+                return features.get(id);
+            }
+        });
+        final Feature[] application = new Feature[including];
+        for(int i = 0; i < including; i++) {
+            application[i] = feature("g/top" + i + "/1", "g/c" + i + "/1", "g/middle/1");
+        }
+        ApplicationBuilder.assemble(null, context, null, application);
+        return count.get();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testRecursiveInclusion() {
+        feature("g/a/1", "g/x/1", "g/b/1");
+        final Feature b = feature("g/b/1", "g/y/1", "g/a/1");
+        FeatureBuilder.assemble(b, new BuilderContext(provider).setFeatureCache(new FeatureCache()));
+    }
+}
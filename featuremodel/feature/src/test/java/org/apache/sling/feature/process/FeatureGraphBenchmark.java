@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.sling.feature.process;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.sling.feature.Application;
+import org.apache.sling.feature.ArtifactId;
+import org.apache.sling.feature.BundlesTest;
+import org.apache.sling.feature.Feature;
+import org.apache.sling.feature.Include;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Assembles an application from a synthetic graph of features.
+ * Every feature is contained twice with different versions and includes
+ * some of the features before it.
+ *
+ * Run with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.openjdk.jmh.Main -Dexec.args=FeatureGraphBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FeatureGraphBenchmark {
+
+    @Param({"200", "1000"})
+    public int features;
+
+    @Param({"3"})
+    public int includes;
+
+    @Param({"5"})
+    public int bundles;
+
+    private Feature[] input;
+
+    @Setup
+    public void setup() {
+        // a fixed seed, so every run uses the same graph
+        final Random random = new Random(42);
+        input = new Feature[features];
+        for(int i = 0; i < features; i++) {
+            final Feature f = new Feature(ArtifactId.parse("g/feature" + i / 2 + "/1." + i % 2));
+            for(int n = 0; n < includes && i > 1; n++) {
+                final ArtifactId id = input[random.nextInt(i)].getId();
+                if ( !id.isSame(f.getId()) ) {
+                    f.getIncludes().add(new Include(id));
+                }
+            }
+            for(int b = 0; b < bundles; b++) {
+                f.getBundles().add(BundlesTest.createBundle("g/bundle" + random.nextInt(features) + "/1." + i, 1 + b));
+            }
+            input[i] = f;
+        }
+    }
+
+    @Benchmark
+    public Application assemble() {
+        final BuilderContext context = new BuilderContext(new FeatureProvider() {
+
+            @Override
+            public Feature provide(final ArtifactId id) {
+                return null;
+            }
+        });
+        return ApplicationBuilder.assemble(null, context, null, ApplicationBuilderBenchmark.copy(input));
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.feature.process;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.sling.feature.ArtifactId;
+import org.apache.sling.feature.Feature;
+import org.junit.Test;
+
+public class FeatureRegistryTest {
+
+    private static List<String> ids(final List<Feature> features) {
+        final List<String> result = new ArrayList<>();
+        for(final Feature f : features) {
+            result.add(f.getId().toMvnId());
+        }
+        return result;
+    }
+
+    @Test
+    public void testHighestVersionIsSelected() {
+        final FeatureRegistry registry = new FeatureRegistry();
+        registry.add(new Feature(ArtifactId.parse("g/a/1")));
+        registry.add(new Feature(ArtifactId.parse("g/b/2")));
+        registry.add(new Feature(ArtifactId.parse("g/c/1")));
+        registry.add(new Feature(ArtifactId.parse("g/a/2")));
+        registry.add(new Feature(ArtifactId.parse("g/b/1")));
+        registry.add(new Feature(ArtifactId.parse("g/c/1/slingfeature/other")));
+
+        assertEquals(Arrays.asList("g:b:2", "g:c:1", "g:a:2", "g:c:slingfeature:other:1"),
+                ids(registry.getSelectedFeatures()));
+    }
+
+    @Test
+    public void testProvide() {
+        final FeatureRegistry registry = new FeatureRegistry();
+        final Feature a1 = new Feature(ArtifactId.parse("g/a/1"));
+        final Feature a2 = new Feature(ArtifactId.parse("g/a/2"));
+        registry.add(a1);
+        registry.add(a2);
+        registry.add(new Feature(ArtifactId.parse("g/a/1")));
+
+        // every feature is provided, even if it is not selected
+        assertSame(a1, registry.provide(ArtifactId.parse("g/a/1")));
+        assertSame(a2, registry.provide(ArtifactId.parse("g/a/2")));
+        assertNull(registry.provide(ArtifactId.parse("g/a/3")));
+    }
+}
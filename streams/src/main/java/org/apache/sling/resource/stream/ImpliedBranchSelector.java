@@ -0,0 +1,39 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.resource.stream;
+
+import java.util.function.Predicate;
+
+import org.apache.sling.api.resource.Resource;
+
+/**
+ * A resource selector which knows which branches of a tree can not contain any
+ * resource it selects.
+ *
+ * When the resource selector of a {@link ResourceStream} implements this
+ * interface, the implied branch selector is applied in addition to the branch
+ * selector, so that those branches are not traversed at all.
+ *
+ */
+public interface ImpliedBranchSelector {
+
+	/**
+	 * Provides a predicate which rejects a child resource only if neither the
+	 * child nor any of its descendants can be selected.
+	 *
+	 * @return implied branch selector or null if no branch can be excluded
+	 */
+	Predicate<Resource> getImpliedBranchSelector();
+
+}
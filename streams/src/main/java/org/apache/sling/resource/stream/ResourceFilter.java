@@ -14,26 +14,78 @@
 package org.apache.sling.resource.stream;
 
 import java.io.ByteArrayInputStream;
+import java.util.Collections;
+import java.util.Map;
 import java.util.function.Predicate;
 
 import org.apache.sling.api.resource.Resource;
 import org.apache.sling.resource.stream.parser.FilterParser;
 import org.apache.sling.resource.stream.parser.ParseException;
+import org.apache.sling.resource.stream.parser.api.ResourceFilterFunction;
+import org.apache.sling.resource.stream.parser.impl.EvaluationContext;
 import org.apache.sling.resource.stream.parser.node.Node;
+import org.apache.sling.resource.stream.parser.visitor.ComparisonVisitor;
+import org.apache.sling.resource.stream.parser.visitor.ImpliedBranchVisitor;
 import org.apache.sling.resource.stream.parser.visitor.LogicVisitor;
+import org.apache.sling.resource.stream.parser.visitor.OptimizingVisitor;
+import org.apache.sling.resource.stream.parser.visitor.QueryVisitor;
 
-public class ResourceFilter implements Predicate<Resource> {
+/**
+ * Predicate compiled from a ResourceFilter script. Once created the filter is
+ * immutable and may be shared between threads, see {@link ResourceFilterCache}
+ * to reuse compiled filters.
+ *
+ */
+public class ResourceFilter implements Predicate<Resource>, ImpliedBranchSelector {
+
+	private final Predicate<Resource> parsedPredicate;
+
+	private final Predicate<Resource> impliedBranchSelector;
+
+	private final String queryConstraint;
 
-	private Predicate<Resource> parsedPredicate;
-	
 	public ResourceFilter(String filter) throws ParseException {
-		Node rootNode =new FilterParser(new ByteArrayInputStream(filter.getBytes())).parse();
-		this.parsedPredicate = rootNode.accept(new LogicVisitor());
+		this(filter, Collections.emptyMap());
+	}
+
+	/**
+	 * Compiles the filter script with additional custom functions
+	 *
+	 * @param filter
+	 *            ResourceFilter script
+	 * @param functions
+	 *            custom functions available to the script, keyed by name
+	 * @throws ParseException
+	 */
+	public ResourceFilter(String filter, Map<String, ResourceFilterFunction> functions) throws ParseException {
+		Node rootNode = new FilterParser(new ByteArrayInputStream(filter.getBytes())).parse();
+		LogicVisitor logicVisitor = new LogicVisitor();
+		ComparisonVisitor valueVisitor = logicVisitor.getValueVisitor();
+		functions.forEach(valueVisitor::registerFunction);
+		Node optimizedNode = rootNode.accept(new OptimizingVisitor());
+		this.parsedPredicate = optimizedNode.accept(logicVisitor);
+		this.impliedBranchSelector = optimizedNode.accept(new ImpliedBranchVisitor());
+		this.queryConstraint = optimizedNode.accept(new QueryVisitor());
 	}
 
 	@Override
 	public boolean test(Resource resource) {
-		return parsedPredicate.test(resource);
+		return parsedPredicate.test(EvaluationContext.of(resource));
 	}
-	
+
+	@Override
+	public Predicate<Resource> getImpliedBranchSelector() {
+		return impliedBranchSelector;
+	}
+
+	/**
+	 * JCR-SQL2 constraint on the selector 's' which holds for every resource
+	 * accepted by this filter
+	 * 
+	 * @return constraint or null if the filter can not be expressed as a query
+	 */
+	public String getQueryConstraint() {
+		return queryConstraint;
+	}
+
 }
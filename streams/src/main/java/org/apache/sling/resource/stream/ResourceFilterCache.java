@@ -0,0 +1,183 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.resource.stream;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import javax.annotation.Nonnull;
+
+import org.apache.sling.resource.stream.parser.ParseException;
+import org.apache.sling.resource.stream.parser.api.ResourceFilterFunction;
+
+/**
+ * Thread safe, size bound cache of compiled {@link ResourceFilter} objects.
+ *
+ * Filters are keyed by the script and the custom functions they were compiled
+ * with, so the same script is parsed only once for as long as it stays in the
+ * cache. When the cache is full the least recently used filter is evicted.
+ *
+ */
+public class ResourceFilterCache {
+
+	/**
+	 * Default number of compiled filters held by the shared cache
+	 */
+	public static final int DEFAULT_MAX_SIZE = 256;
+
+	private static final ResourceFilterCache SHARED = new ResourceFilterCache(DEFAULT_MAX_SIZE);
+
+	private final Map<Key, ResourceFilter> filters;
+
+	private long hits;
+
+	private long misses;
+
+	/**
+	 * Cache shared by the {@link ResourceStream} script based selectors
+	 *
+	 * @return shared cache instance
+	 */
+	public static ResourceFilterCache getShared() {
+		return SHARED;
+	}
+
+	/**
+	 * Creates a cache holding at most the given number of compiled filters
+	 *
+	 * @param maxSize
+	 *            maximum number of filters held by the cache
+	 */
+	public ResourceFilterCache(final int maxSize) {
+		if (maxSize < 1) {
+			throw new IllegalArgumentException("size must be positive");
+		}
+		this.filters = new LinkedHashMap<Key, ResourceFilter>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, ResourceFilter> eldest) {
+				return size() > maxSize;
+			}
+		};
+	}
+
+	/**
+	 * Provides the compiled filter for the script
+	 *
+	 * @param script
+	 *            ResourceFilter script
+	 * @return compiled filter
+	 * @throws ParseException
+	 */
+	public ResourceFilter get(@Nonnull String script) throws ParseException {
+		return get(script, Collections.emptyMap());
+	}
+
+	/**
+	 * Provides the compiled filter for the script and custom functions
+	 *
+	 * @param script
+	 *            ResourceFilter script
+	 * @param functions
+	 *            custom functions available to the script, keyed by name
+	 * @return compiled filter
+	 * @throws ParseException
+	 */
+	public ResourceFilter get(@Nonnull String script, @Nonnull Map<String, ResourceFilterFunction> functions)
+			throws ParseException {
+		Key key = new Key(script, functions);
+		synchronized (this) {
+			ResourceFilter filter = filters.get(key);
+			if (filter != null) {
+				++hits;
+				return filter;
+			}
+			++misses;
+		}
+		// compile outside of the lock, a concurrent miss compiles the same script
+		ResourceFilter filter = new ResourceFilter(script, key.functions);
+		synchronized (this) {
+			ResourceFilter existing = filters.putIfAbsent(key, filter);
+			return existing != null ? existing : filter;
+		}
+	}
+
+	/**
+	 * @return number of requests answered from the cache
+	 */
+	public synchronized long getHitCount() {
+		return hits;
+	}
+
+	/**
+	 * @return number of requests which required the script to be compiled
+	 */
+	public synchronized long getMissCount() {
+		return misses;
+	}
+
+	/**
+	 * @return number of filters currently held
+	 */
+	public synchronized int size() {
+		return filters.size();
+	}
+
+	/**
+	 * Removes all filters and resets the statistics
+	 */
+	public synchronized void clear() {
+		filters.clear();
+		hits = 0;
+		misses = 0;
+	}
+
+	private static final class Key {
+
+		private final String script;
+
+		private final Map<String, ResourceFilterFunction> functions;
+
+		private final int hash;
+
+		Key(String script, Map<String, ResourceFilterFunction> functions) {
+			this.script = Objects.requireNonNull(script);
+			this.functions = functions.isEmpty() ? Collections.emptyMap()
+					: Collections.unmodifiableMap(new HashMap<>(functions));
+			this.hash = Objects.hash(script, this.functions);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return script.equals(other.script) && functions.equals(other.functions);
+		}
+	}
+}
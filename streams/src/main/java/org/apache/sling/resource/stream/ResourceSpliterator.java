@@ -0,0 +1,169 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.resource.stream;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import org.apache.sling.api.resource.Resource;
+
+/**
+ * Depth first, pre-order traversal of a Resource tree as a {@code Spliterator}.
+ *
+ * The traversal is held as a stack of child iterators, one for each level
+ * between the starting resource and the current resource. Children are pulled
+ * lazily from {@link Resource#listChildren()}, so memory consumption is bound
+ * by the depth of the tree rather than the number of siblings.
+ *
+ * A split hands off every level above the bottom of the stack, or a batch of
+ * sub trees from the bottom level, so that the returned spliterator always
+ * covers a prefix of the remaining traversal and the encounter order of a
+ * parallel stream is identical to the sequential one.
+ *
+ */
+class ResourceSpliterator implements Spliterator<Resource> {
+
+	private static final int MAX_BATCH = 1024;
+
+	// iterators of the sub trees to be traversed, the deepest level on top
+	private final Deque<Iterator<Resource>> stack = new ArrayDeque<>();
+
+	// determine if a given child of a resource should be traversed
+	private final Predicate<Resource> branchSelector;
+
+	// number of sub trees handed off by the next split of the bottom level
+	private int batch = 1;
+
+	/**
+	 * Traversal starting with the provided resource
+	 *
+	 * @param resource
+	 *            traversal starting point
+	 * @param branchSelector
+	 *            determines whether a child resource is traversed
+	 */
+	ResourceSpliterator(Resource resource, Predicate<Resource> branchSelector) {
+		this(Collections.singleton(resource).iterator(), branchSelector);
+	}
+
+	private ResourceSpliterator(Iterator<Resource> roots, Predicate<Resource> branchSelector) {
+		this.branchSelector = branchSelector;
+		stack.push(roots);
+	}
+
+	private ResourceSpliterator(Deque<Iterator<Resource>> levels, Predicate<Resource> branchSelector) {
+		this.branchSelector = branchSelector;
+		stack.addAll(levels);
+	}
+
+	@Override
+	public boolean tryAdvance(Consumer<? super Resource> action) {
+		Iterator<Resource> level;
+		while ((level = stack.peek()) != null) {
+			if (level.hasNext()) {
+				Resource current = level.next();
+				stack.push(new SelectedChildren(current));
+				action.accept(current);
+				return true;
+			}
+			stack.pop();
+		}
+		return false;
+	}
+
+	@Override
+	public Spliterator<Resource> trySplit() {
+		if (stack.size() > 1) {
+			// everything above the bottom level is traversed first
+			Deque<Iterator<Resource>> prefix = new ArrayDeque<>(stack.size());
+			while (stack.size() > 1) {
+				prefix.add(stack.pop());
+			}
+			return new ResourceSpliterator(prefix, branchSelector);
+		}
+		Iterator<Resource> bottom = stack.peek();
+		if (bottom == null || !bottom.hasNext()) {
+			return null;
+		}
+		Resource first = bottom.next();
+		if (!bottom.hasNext()) {
+			// a single sub tree, hand off the root and keep its children
+			stack.pop();
+			stack.push(new SelectedChildren(first));
+			return Spliterators.spliterator(new Object[] { first }, characteristics());
+		}
+		List<Resource> roots = new ArrayList<>(batch);
+		roots.add(first);
+		while (roots.size() < batch && bottom.hasNext()) {
+			roots.add(bottom.next());
+		}
+		batch = Math.min(batch << 1, MAX_BATCH);
+		return new ResourceSpliterator(roots.iterator(), branchSelector);
+	}
+
+	@Override
+	public long estimateSize() {
+		return Long.MAX_VALUE;
+	}
+
+	@Override
+	public int characteristics() {
+		return Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE;
+	}
+
+	/**
+	 * Lazily iterates over the children of a resource which are accepted by the
+	 * branch selector
+	 */
+	private class SelectedChildren implements Iterator<Resource> {
+
+		private final Iterator<Resource> children;
+
+		private Resource next;
+
+		SelectedChildren(Resource parent) {
+			this.children = parent.listChildren();
+		}
+
+		@Override
+		public boolean hasNext() {
+			while (next == null && children.hasNext()) {
+				Resource child = children.next();
+				if (branchSelector.test(child)) {
+					next = child;
+				}
+			}
+			return next != null;
+		}
+
+		@Override
+		public Resource next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			Resource current = next;
+			next = null;
+			return current;
+		}
+	}
+}
@@ -13,12 +13,9 @@
  */
 package org.apache.sling.resource.stream;
 
-import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.Objects;
 import java.util.Spliterator;
 import java.util.Spliterators;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.stream.Stream;
@@ -36,6 +33,10 @@ import org.apache.sling.resource.stream.parser.ParseException;
  */
 public class ResourceStream {
 
+	private static final String JCR_SQL2 = "JCR-SQL2";
+
+	private static final Predicate<Resource> ALL = resource -> true;
+
 	// starting resource
 	private Resource resource;
 
@@ -44,10 +45,10 @@ public class ResourceStream {
 	private long startOfRange;
 	
     // determine if a given child of a resource should be traversed 
-	private Predicate<Resource> branchSelector = resource -> true;
+	private Predicate<Resource> branchSelector = ALL;
 	
     // determine if a given resource should be added to the stream
-	private Predicate<Resource> resourceSelector = resource -> true;
+	private Predicate<Resource> resourceSelector = ALL;
 
 	/**
 	 * Base resource for traversal
@@ -126,7 +127,7 @@ public class ResourceStream {
 	 * @throws ParseException
 	 */
 	public ResourceStream setBranchSelector(String branchSelector) throws ParseException {
-		return setBranchSelector(new ResourceFilter(branchSelector));
+		return setBranchSelector(ResourceFilterCache.getShared().get(branchSelector));
 	}
 
 	/**
@@ -150,7 +151,7 @@ public class ResourceStream {
 	 * @throws ParseException
 	 */
 	public ResourceStream setResourceSelector(String resourceSelector) throws ParseException {
-		return setResourceSelector(new ResourceFilter(resourceSelector));
+		return setResourceSelector(ResourceFilterCache.getShared().get(resourceSelector));
 	}
 
 	/**
@@ -170,55 +171,104 @@ public class ResourceStream {
 	 * Provides a stream of resources starting from the initiator resource and
 	 * traversing through it's descendants
 	 * 
+	 * The traversal is depth first and the stream is ordered. The limit and
+	 * range values are applied to the resources in traversal order, before the
+	 * resource selector is evaluated. The stream may be turned into a parallel
+	 * stream, in which case whole sub trees are handed off to the worker
+	 * threads and the branch and resource selectors are evaluated concurrently,
+	 * the selectors must therefore be thread safe. A parallel stream keeps the
+	 * encounter order, so limit and range provide the same resources as the
+	 * sequential stream. If the stream is made unordered, the limit and range
+	 * are applied to whichever resources are traversed first.
+	 * 
+	 * If neither a limit nor a range is set and the resource selector is an
+	 * {@link ImpliedBranchSelector}, such as a {@link ResourceFilter} comparing
+	 * the path() of the resource, branches which can not contain a selected
+	 * resource are not traversed.
+	 * 
 	 * @return self closing {@code Stream<Resource>} of unknown size.
 	 */
 	public Stream<Resource> stream() {
-		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(new Iterator<Resource>() {
+		Stream<Resource> stream = traverse(startOfRange <= 1 && limit == 0);
+		return applyRange(stream).filter(resourceSelector);
+	}
 
-			private final LinkedList<Resource> resourcesToCheck = new LinkedList<>();
+	/*
+	 * Traverses the tree from the starting resource, skipping the branches
+	 * which can not contain a selected resource, if allowed
+	 */
+	private Stream<Resource> traverse(boolean pruneBranches) {
+		Predicate<Resource> branches = branchSelector;
+		if (pruneBranches && resourceSelector instanceof ImpliedBranchSelector) {
+			Predicate<Resource> impliedBranches = ((ImpliedBranchSelector) resourceSelector).getImpliedBranchSelector();
+			if (impliedBranches != null) {
+				branches = impliedBranches.and(branchSelector);
+			}
+		}
+		return StreamSupport.stream(new ResourceSpliterator(resource, branches), false);
+	}
 
-			final AtomicInteger index = new AtomicInteger(0);
+	private Stream<Resource> applyRange(Stream<Resource> stream) {
+		if (startOfRange > 1) {
+			stream = stream.skip(startOfRange - 1);
+		}
+		if (limit > 0) {
+			stream = stream.limit(limit);
+		}
+		return stream;
+	}
 
-			{
-				resourcesToCheck.addFirst(resource);
-			}
+	/**
+	 * Provides a stream of the selected resources by querying the repository
+	 * instead of traversing the tree, if the resource selector is a
+	 * {@link ResourceFilter} which can be expressed as a JCR-SQL2 query.
+	 * Otherwise the tree is traversed as by {@link #stream()}.
+	 * 
+	 * The query selects candidates from the descendants of the starting
+	 * resource, the resource selector is applied to the candidates for the
+	 * parts of the filter which can not be expressed as a query, and the branch
+	 * selector is applied to the ancestors of each candidate. The order of the
+	 * stream is the order of the query results, after the starting resource.
+	 * 
+	 * Unlike {@link #stream()}, the limit and range values are applied to the
+	 * selected resources, whether the repository is queried or the tree is
+	 * traversed, as the order of the query results is not the traversal order.
+	 * 
+	 * @return self closing {@code Stream<Resource>} of unknown size.
+	 */
+	public Stream<Resource> queryStream() {
+		String constraint = resourceSelector instanceof ResourceFilter
+				? ((ResourceFilter) resourceSelector).getQueryConstraint()
+				: null;
+		if (constraint == null) {
+			return applyRange(traverse(true).filter(resourceSelector));
+		}
+		String statement = "SELECT * FROM [nt:base] AS s WHERE ISDESCENDANTNODE(s, '"
+				+ resource.getPath().replace("'", "''") + "') AND " + constraint;
+		Stream<Resource> descendants = StreamSupport.stream(() -> Spliterators.spliteratorUnknownSize(
+				resource.getResourceResolver().findResources(statement, JCR_SQL2), Spliterator.ORDERED),
+				Spliterator.ORDERED, false);
+		if (branchSelector != ALL) {
+			descendants = descendants.filter(this::isInSelectedBranch);
+		}
+		return applyRange(Stream.concat(Stream.of(resource), descendants).filter(resourceSelector));
+	}
 
-			Resource current;
-
-			@Override
-			public boolean hasNext() {
-				do {
-					if (resourcesToCheck.isEmpty()) {
-						return false;
-					}
-
-					current = resourcesToCheck.removeFirst();
-
-					current.listChildren().forEachRemaining(child -> {
-						if (branchSelector.test(child)) {
-							resourcesToCheck.add(index.getAndIncrement(), child);
-						}
-					});
-
-					index.set(0);
-
-					if (startOfRange > 0) {
-						--startOfRange;
-					}
-					if (limit > 0 && startOfRange == 0) {
-						if (--limit == 0) {
-							resourcesToCheck.clear();
-						}
-					}
-				} while (startOfRange > 0 || !resourceSelector.test(current));
+	/*
+	 * Determines whether the traversal from the starting resource would have
+	 * reached the descendant
+	 */
+	private boolean isInSelectedBranch(Resource descendant) {
+		String path = resource.getPath();
+		for (Resource current = descendant; current != null; current = current.getParent()) {
+			if (current.getPath().equals(path)) {
 				return true;
 			}
-
-			@Override
-			public Resource next() {
-				return current;
+			if (!branchSelector.test(current)) {
+				return false;
 			}
-		}, Spliterator.ORDERED | Spliterator.IMMUTABLE), false);
+		}
+		return false;
 	}
 
 	/**
@@ -0,0 +1,105 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.resource.stream.parser.impl;
+
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceUtil;
+import org.apache.sling.api.resource.ResourceWrapper;
+import org.apache.sling.api.resource.ValueMap;
+
+/**
+ * Resource under evaluation by a compiled filter.
+ *
+ * The context wraps the tested resource for the duration of a single test, so
+ * that the ValueMap is adapted at most once and each referenced property is
+ * read and converted at most once, no matter how often the filter refers to
+ * it.
+ *
+ */
+public class EvaluationContext extends ResourceWrapper {
+
+	private ValueMap valueMap;
+
+	private Map<String, Object> properties;
+
+	private EvaluationContext(Resource resource) {
+		super(resource);
+	}
+
+	/**
+	 * Provides the evaluation context for the resource
+	 *
+	 * @param resource
+	 *            resource being tested
+	 * @return the resource if it already is a context, otherwise a new context
+	 */
+	public static EvaluationContext of(Resource resource) {
+		if (resource instanceof EvaluationContext) {
+			return (EvaluationContext) resource;
+		}
+		return new EvaluationContext(resource);
+	}
+
+	/**
+	 * Property value in the form used for comparisons, Calendar values are
+	 * provided as an Instant and Boolean values as a String
+	 *
+	 * @param name
+	 *            name or relative path of the property
+	 * @return converted value or null if the property does not exist
+	 */
+	public Object getProperty(String name) {
+		if (properties == null) {
+			properties = new HashMap<>();
+		} else if (properties.containsKey(name)) {
+			return properties.get(name);
+		}
+		Object value = getValueMap().get(name);
+		if (value instanceof Boolean) {
+			value = value.toString();
+		} else if (value instanceof Calendar) {
+			value = ((Calendar) value).toInstant();
+		}
+		properties.put(name, value);
+		return value;
+	}
+
+	@Override
+	public ValueMap getValueMap() {
+		if (valueMap == null) {
+			Resource resource = getResource();
+			if (resource == null || ResourceUtil.isNonExistingResource(resource)) {
+				valueMap = ValueMap.EMPTY;
+			} else {
+				ValueMap adapted = resource.adaptTo(ValueMap.class);
+				valueMap = adapted != null ? adapted : ValueMap.EMPTY;
+			}
+		}
+		return valueMap;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public <AdapterType> AdapterType adaptTo(Class<AdapterType> type) {
+		if (type == ValueMap.class) {
+			return (AdapterType) getValueMap();
+		}
+		return super.adaptTo(type);
+	}
+
+}
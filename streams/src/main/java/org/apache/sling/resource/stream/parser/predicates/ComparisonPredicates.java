@@ -44,9 +44,11 @@ public class ComparisonPredicates {
 	 */
 	public static Predicate<Resource> is(Function<Resource, Object> lhs, Function<Resource, Object> rhs) {
 		Objects.requireNonNull(rhs, "statement may not be null");
+		Function<Resource, CharSequence> left = fold(lhs, ComparisonPredicates::getString);
+		Function<Resource, CharSequence> right = fold(rhs, ComparisonPredicates::getString);
 		return resource -> {
-			CharSequence lhValue = ComparisonPredicates.getString(lhs.apply(resource));
-			CharSequence rhValue = ComparisonPredicates.getString(rhs.apply(resource));
+			CharSequence lhValue = left.apply(resource);
+			CharSequence rhValue = right.apply(resource);
 			if (lhValue == null || rhValue == null) {
 				return (rhValue instanceof Null || lhValue instanceof Null);
 			}
@@ -66,9 +68,11 @@ public class ComparisonPredicates {
 	 */
 	public static Predicate<Resource> isNot(Function<Resource, Object> lhs, Function<Resource, Object> rhs) {
 		Objects.requireNonNull(rhs, "statement may not be null");
+		Function<Resource, CharSequence> left = fold(lhs, ComparisonPredicates::getString);
+		Function<Resource, CharSequence> right = fold(rhs, ComparisonPredicates::getString);
 		return resource -> {
-			CharSequence lhValue = ComparisonPredicates.getString(lhs.apply(resource));
-			CharSequence rhValue = ComparisonPredicates.getString(rhs.apply(resource));
+			CharSequence lhValue = left.apply(resource);
+			CharSequence rhValue = right.apply(resource);
 			if (lhValue == null || rhValue == null) {
 				return false;
 			}
@@ -79,7 +83,8 @@ public class ComparisonPredicates {
 
 	/**
 	 * Values are converted to Strings. Right hand value is treated as a Regular
-	 * expression.
+	 * expression, a constant expression is compiled once when the predicate is
+	 * created.
 	 * 
 	 * @param lhs
 	 *            Function which provides value for comparison
@@ -89,13 +94,15 @@ public class ComparisonPredicates {
 	 */
 	public static Predicate<Resource> like(Function<Resource, Object> lhs, Function<Resource, Object> rhs) {
 		Objects.requireNonNull(rhs, "value may not be null");
+		Function<Resource, CharSequence> left = fold(lhs, ComparisonPredicates::getString);
+		Function<Resource, Pattern> right = fold(rhs, ComparisonPredicates::getPattern);
 		return resource -> {
-			CharSequence lhValue = ComparisonPredicates.getString(lhs.apply(resource));
-			CharSequence rhValue = ComparisonPredicates.getString(rhs.apply(resource));
+			CharSequence lhValue = left.apply(resource);
+			Pattern rhValue = right.apply(resource);
 			if (lhValue == null || rhValue == null) {
 				return false;
 			}
-			return Pattern.matches(rhValue.toString(), lhValue);
+			return rhValue.matcher(lhValue).matches();
 		};
 
 	}
@@ -113,9 +120,11 @@ public class ComparisonPredicates {
 	@SuppressWarnings("unchecked")
 	public static Predicate<Resource> gt(Function<Resource, Object> lhs, Function<Resource, Object> rhs) {
 		Objects.requireNonNull(rhs, "statement may not be null");
+		Function<Resource, Number> left = fold(lhs, ComparisonPredicates::getNumber);
+		Function<Resource, Number> right = fold(rhs, ComparisonPredicates::getNumber);
 		return resource -> {
-			Number lhValue = ComparisonPredicates.getNumber(lhs.apply(resource));
-			Number rhValue = ComparisonPredicates.getNumber(rhs.apply(resource));
+			Number lhValue = left.apply(resource);
+			Number rhValue = right.apply(resource);
 			if (lhValue == null || rhValue == null) {
 				return false;
 			}
@@ -142,9 +151,11 @@ public class ComparisonPredicates {
 	@SuppressWarnings("unchecked")
 	public static Predicate<Resource> gte(Function<Resource, Object> lhs, Function<Resource, Object> rhs) {
 		Objects.requireNonNull(rhs, "statement may not be null");
+		Function<Resource, Number> left = fold(lhs, ComparisonPredicates::getNumber);
+		Function<Resource, Number> right = fold(rhs, ComparisonPredicates::getNumber);
 		return resource -> {
-			Number lhValue = ComparisonPredicates.getNumber(lhs.apply(resource));
-			Number rhValue = ComparisonPredicates.getNumber(rhs.apply(resource));
+			Number lhValue = left.apply(resource);
+			Number rhValue = right.apply(resource);
 			if (lhValue == null || rhValue == null) {
 				return false;
 			}
@@ -170,9 +181,11 @@ public class ComparisonPredicates {
 	@SuppressWarnings("unchecked")
 	public static Predicate<Resource> lt(Function<Resource, Object> lhs, Function<Resource, Object> rhs) {
 		Objects.requireNonNull(rhs, "type value may not be null");
+		Function<Resource, Number> left = fold(lhs, ComparisonPredicates::getNumber);
+		Function<Resource, Number> right = fold(rhs, ComparisonPredicates::getNumber);
 		return resource -> {
-			Number lhValue = ComparisonPredicates.getNumber(lhs.apply(resource));
-			Number rhValue = ComparisonPredicates.getNumber(rhs.apply(resource));
+			Number lhValue = left.apply(resource);
+			Number rhValue = right.apply(resource);
 			if (lhValue == null || rhValue == null) {
 				return false;
 			}
@@ -199,9 +212,11 @@ public class ComparisonPredicates {
 	@SuppressWarnings("unchecked")
 	public static Predicate<Resource> lte(Function<Resource, Object> lhs, Function<Resource, Object> rhs) {
 		Objects.requireNonNull(rhs, "statement may not be null");
+		Function<Resource, Number> left = fold(lhs, ComparisonPredicates::getNumber);
+		Function<Resource, Number> right = fold(rhs, ComparisonPredicates::getNumber);
 		return resource -> {
-			Number lhValue = ComparisonPredicates.getNumber(lhs.apply(resource));
-			Number rhValue = ComparisonPredicates.getNumber(rhs.apply(resource));
+			Number lhValue = left.apply(resource);
+			Number rhValue = right.apply(resource);
 			if (lhValue == null || rhValue == null) {
 				return false;
 			}
@@ -225,9 +240,11 @@ public class ComparisonPredicates {
 	 */
 	public static Predicate<Resource> contains(Function<Resource, Object> lhs, Function<Resource, Object> rhs) {
 		Objects.requireNonNull(rhs, "statement may not be null");
+		Function<Resource, String[]> left = fold(lhs, ComparisonPredicates::adaptToArray);
+		Function<Resource, String[]> right = fold(rhs, ComparisonPredicates::adaptToArray);
 		return resource -> {
-			String[] lhValues = adaptToArray(lhs.apply(resource));
-			String[] rhValues = adaptToArray(rhs.apply(resource));
+			String[] lhValues = left.apply(resource);
+			String[] rhValues = right.apply(resource);
 			if (lhValues == null || rhValues == null) {
 				return false;
 			}
@@ -260,9 +277,11 @@ public class ComparisonPredicates {
 	 * @return true if the left hand values matches any of the right hand values
 	 */
 	public static Predicate<Resource> containsAny(Function<Resource, Object> lhs, Function<Resource, Object> rhs) {
+		Function<Resource, String[]> left = fold(lhs, ComparisonPredicates::adaptToArray);
+		Function<Resource, String[]> right = fold(rhs, ComparisonPredicates::adaptToArray);
 		return resource -> {
-			String[] lhValues = adaptToArray(lhs.apply(resource));
-			String[] rhValues = adaptToArray(rhs.apply(resource));
+			String[] lhValues = left.apply(resource);
+			String[] rhValues = right.apply(resource);
 			if (lhValues == null || rhValues == null) {
 				return false;
 			}
@@ -289,9 +308,11 @@ public class ComparisonPredicates {
 	public static Predicate<Resource> in(Function<Resource, Object> lhs, Function<Resource, Object> rhs) {
 		Objects.requireNonNull(lhs, "left hand statement may not be null");
 		Objects.requireNonNull(rhs, "right hand statement may not be null");
+		Function<Resource, String[]> left = fold(lhs, ComparisonPredicates::adaptToArray);
+		Function<Resource, String[]> right = fold(rhs, ComparisonPredicates::adaptToArray);
 		return resource -> {
-			String[] lhValues = adaptToArray(lhs.apply(resource));
-			String[] rhValues = adaptToArray(rhs.apply(resource));
+			String[] lhValues = left.apply(resource);
+			String[] rhValues = right.apply(resource);
 			if (lhValues == null || rhValues == null) {
 				return false;
 			}
@@ -311,6 +332,26 @@ public class ComparisonPredicates {
 		};
 	}
 
+	/**
+	 * Applies the conversion to the values provided by the function. If the
+	 * function is a {@link Constant} the conversion is performed once and the
+	 * converted value is reused for every resource.
+	 * 
+	 * @param function
+	 *            Function which provides the value
+	 * @param conversion
+	 *            conversion of the provided value
+	 * @return Function which provides the converted value
+	 */
+	private static <T> Function<Resource, T> fold(Function<Resource, Object> function,
+			Function<Object, T> conversion) {
+		if (function instanceof Constant) {
+			T value = conversion.apply(((Constant) function).getValue());
+			return resource -> value;
+		}
+		return resource -> conversion.apply(function.apply(resource));
+	}
+
 	private static Number standardizeNumbers(Number value, Class<? extends Number> klass) {
 		if (value.getClass() == klass || value instanceof BigDecimal) {
 			return value;
@@ -354,6 +395,14 @@ public class ComparisonPredicates {
 		
 	}
 	
+	private static Pattern getPattern(final Object initialValue) {
+		CharSequence value = getString(initialValue);
+		if (value == null) {
+			return null;
+		}
+		return Pattern.compile(value.toString());
+	}
+
 	private static Number getNumber(final Object initialValue) {
 		if (initialValue == null) {
 			return null;
@@ -0,0 +1,43 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.resource.stream.parser.predicates;
+
+import java.util.function.Function;
+
+import org.apache.sling.api.resource.Resource;
+
+/**
+ * Value which does not depend on the resource being tested, such as a literal
+ * in the script. Comparisons convert a Constant once, when the predicate is
+ * created, instead of for every resource.
+ *
+ */
+public class Constant implements Function<Resource, Object> {
+
+	private final Object value;
+
+	public Constant(Object value) {
+		this.value = value;
+	}
+
+	public Object getValue() {
+		return value;
+	}
+
+	@Override
+	public Object apply(Resource resource) {
+		return value;
+	}
+
+}
@@ -14,19 +14,19 @@
 package org.apache.sling.resource.stream.parser.visitor;
 
 import java.math.BigDecimal;
-import java.util.Calendar;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
 
 import org.apache.sling.api.resource.Resource;
-import org.apache.sling.api.resource.ResourceUtil;
-import org.apache.sling.api.resource.ValueMap;
 import org.apache.sling.resource.stream.parser.FilterParserConstants;
 import org.apache.sling.resource.stream.parser.api.ResourceFilterFunction;
 import org.apache.sling.resource.stream.parser.api.Visitor;
+import org.apache.sling.resource.stream.parser.impl.EvaluationContext;
 import org.apache.sling.resource.stream.parser.impl.InstantProvider;
 import org.apache.sling.resource.stream.parser.node.Node;
+import org.apache.sling.resource.stream.parser.predicates.Constant;
 import org.apache.sling.resource.stream.parser.predicates.Null;
 
 public class ComparisonVisitor implements Visitor<Function<Resource, Object>> {
@@ -41,7 +41,7 @@ public class ComparisonVisitor implements Visitor<Function<Resource, Object>> {
 		case FilterParserConstants.FUNCTION_NAME:
 			break;
 		case FilterParserConstants.NULL:
-			return resource -> new Null();
+			return new Constant(new Null());
 		case FilterParserConstants.NUMBER:
 			Number numericValue = null;
 			{
@@ -56,28 +56,28 @@ public class ComparisonVisitor implements Visitor<Function<Resource, Object>> {
 					}
 				}
 			}
-			final Number numericReply = numericValue;
-			return resource -> numericReply;
+			return new Constant(numericValue);
 		case FilterParserConstants.PROPERTY:
-			return resource -> {
-				Object value = valueMapOf(resource).get(node.text);
-				if (value instanceof Boolean) {
-					return value.toString();
-				}
-				if (value instanceof Calendar){
-					return ((Calendar)value).toInstant();
-				}
-				return value;
-			};
+			return resource -> EvaluationContext.of(resource).getProperty(node.text);
 		default:
-			return resource -> node.text;
+			return new Constant(node.text);
 		}
 		// will only get here in the case of the 'FUNCTION' switch case
 		switch (node.text) {
 		case "name":
 			return resource -> resource.getName();
 		case "date":
-			return instant.provision(node.visitChildren(this));
+			List<Function<Resource, Object>> arguments = node.visitChildren(this);
+			Function<Resource, Object> date = instant.provision(arguments);
+			if (!arguments.isEmpty() && arguments.stream().allMatch(Constant.class::isInstance)) {
+				// a date of literal arguments is only parsed once
+				try {
+					return new Constant(date.apply(null));
+				} catch (RuntimeException e) {
+					// an invalid date fails when a resource is evaluated, as without folding
+				}
+			}
+			return date;
 		case "path":
 			return resource -> resource.getPath();
 		default:
@@ -97,12 +97,5 @@ public class ComparisonVisitor implements Visitor<Function<Resource, Object>> {
 	public ResourceFilterFunction removeFunction(String functionName) {
 		return this.functions.remove(functionName);
 	}
-	
-	private ValueMap valueMapOf(Resource resource){
-		if (resource == null || ResourceUtil.isNonExistingResource(resource)){
-			return ValueMap.EMPTY;
-		}
-		 return resource.adaptTo(ValueMap.class);
-	}
 
 }
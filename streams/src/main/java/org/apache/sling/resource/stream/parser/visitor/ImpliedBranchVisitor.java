@@ -0,0 +1,121 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.resource.stream.parser.visitor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.resource.stream.parser.FilterParserConstants;
+import org.apache.sling.resource.stream.parser.api.Visitor;
+import org.apache.sling.resource.stream.parser.node.Node;
+
+/**
+ * Visitor implementation that derives a branch selector from the parsed tree
+ * of a resource selector.
+ *
+ * A comparison of the path() function against a literal path or a regular
+ * expression with a literal prefix restricts the selected resources to the
+ * sub tree of that prefix. Every other comparison is treated as able to select
+ * any resource. The visitor returns null if no branch can be excluded.
+ *
+ */
+public class ImpliedBranchVisitor implements Visitor<Predicate<Resource>> {
+
+	private static final String REGEX_META_CHARACTERS = ".[]{}()*+?^$|\\";
+
+	@Override
+	public Predicate<Resource> visit(Node node) {
+		switch (node.kind) {
+		case FilterParserConstants.AND:
+			// a branch is only useful if it can satisfy every condition
+			List<Predicate<Resource>> required = new ArrayList<>();
+			for (Node child : node.children) {
+				Predicate<Resource> predicate = visit(child);
+				if (predicate != null) {
+					required.add(predicate);
+				}
+			}
+			return required.stream().reduce(Predicate::and).orElse(null);
+		case FilterParserConstants.OR:
+			// a branch is useful if it can satisfy any of the conditions
+			Predicate<Resource> any = null;
+			for (Node child : node.children) {
+				Predicate<Resource> predicate = visit(child);
+				if (predicate == null) {
+					return null;
+				}
+				any = any == null ? predicate : any.or(predicate);
+			}
+			return any;
+		case FilterParserConstants.EQUAL:
+			if (isPathFunction(node.leftNode) && isString(node.rightNode)) {
+				return prefix(node.rightNode.text);
+			}
+			if (isPathFunction(node.rightNode) && isString(node.leftNode)) {
+				return prefix(node.leftNode.text);
+			}
+			return null;
+		case FilterParserConstants.LIKE:
+			if (isPathFunction(node.leftNode) && isString(node.rightNode)) {
+				return prefix(literalPrefix(node.rightNode.text));
+			}
+			return null;
+		default:
+			return null;
+		}
+	}
+
+	/*
+	 * Accepts a resource if it is within the sub tree of the prefix, or if the
+	 * prefix is within the sub tree of the resource
+	 */
+	private static Predicate<Resource> prefix(String prefix) {
+		if (prefix.isEmpty()) {
+			return null;
+		}
+		return resource -> {
+			String path = resource.getPath();
+			return path.startsWith(prefix) || prefix.startsWith(path + "/");
+		};
+	}
+
+	/*
+	 * Provides the text every match of the regular expression has to start with
+	 */
+	public static String literalPrefix(String regex) {
+		if (regex.indexOf('|') >= 0) {
+			return "";
+		}
+		int end = 0;
+		while (end < regex.length() && REGEX_META_CHARACTERS.indexOf(regex.charAt(end)) < 0) {
+			++end;
+		}
+		if (end > 0 && end < regex.length() && "*?{".indexOf(regex.charAt(end)) >= 0) {
+			// the quantified character is optional
+			--end;
+		}
+		return regex.substring(0, end);
+	}
+
+	private static boolean isPathFunction(Node node) {
+		return node.kind == FilterParserConstants.FUNCTION_NAME && "path".equals(node.text);
+	}
+
+	private static boolean isString(Node node) {
+		return node.kind == FilterParserConstants.STRING;
+	}
+
+}
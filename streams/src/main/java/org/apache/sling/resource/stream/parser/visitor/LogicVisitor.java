@@ -13,6 +13,7 @@
  */
 package org.apache.sling.resource.stream.parser.visitor;
 
+import java.util.List;
 import java.util.function.Function;
 import java.util.function.Predicate;
 
@@ -46,33 +47,52 @@ public class LogicVisitor implements Visitor<Predicate<Resource>> {
 		}
 	}
 
+	/**
+	 * Returns a predicate which is true if all of the child predicates are true,
+	 * the child predicates are evaluated in order
+	 * 
+	 * @param node
+	 * @return
+	 */
 	private Predicate<Resource> createAndPredicate(Node node) {
-		return node.children.stream().map(child -> {
-			return visit(child);
-		}).reduce(null, (predicate, accumulator) -> {
-			if (predicate == null) {
-				return accumulator;
+		List<Predicate<Resource>> predicates = node.visitChildren(this);
+		if (predicates.size() == 1) {
+			return predicates.get(0);
+		}
+		@SuppressWarnings("unchecked")
+		Predicate<Resource>[] conjuncts = predicates.toArray(new Predicate[predicates.size()]);
+		return resource -> {
+			for (Predicate<Resource> predicate : conjuncts) {
+				if (!predicate.test(resource)) {
+					return false;
+				}
 			}
-			return accumulator.and(predicate);
-		});
+			return true;
+		};
 	}
 
 	/**
-	 * Returns a predicate which consists of a series of Or statements
+	 * Returns a predicate which is true if any of the child predicates is true,
+	 * the child predicates are evaluated in order
 	 * 
 	 * @param node
-	 * @param param
 	 * @return
 	 */
 	private Predicate<Resource> createOrPredicate(Node node) {
-		return node.children.stream().map(child -> {
-			return visit(child);
-		}).reduce(null, (predicate, accumulator) -> {
-			if (predicate == null) {
-				return accumulator;
+		List<Predicate<Resource>> predicates = node.visitChildren(this);
+		if (predicates.size() == 1) {
+			return predicates.get(0);
+		}
+		@SuppressWarnings("unchecked")
+		Predicate<Resource>[] disjuncts = predicates.toArray(new Predicate[predicates.size()]);
+		return resource -> {
+			for (Predicate<Resource> predicate : disjuncts) {
+				if (predicate.test(resource)) {
+					return true;
+				}
 			}
-			return accumulator.or(predicate);
-		});
+			return false;
+		};
 	}
 
 	private Predicate<Resource> createComparisonPredicate(Node comparisonNode) {
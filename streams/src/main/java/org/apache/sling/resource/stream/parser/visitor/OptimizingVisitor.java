@@ -0,0 +1,127 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.resource.stream.parser.visitor;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.sling.resource.stream.parser.FilterParserConstants;
+import org.apache.sling.resource.stream.parser.api.Visitor;
+import org.apache.sling.resource.stream.parser.node.Node;
+
+/**
+ * Visitor implementation that rewrites the parsed tree before the predicates
+ * are created.
+ *
+ * Nested "and" and "or" nodes of the same kind are flattened into a single
+ * node, and the children of every "and" and "or" node are ordered by their
+ * estimated cost, so that cheap comparisons such as name() or path() are
+ * evaluated before regular expressions, property reads of child resources and
+ * custom functions. Comparisons of equal cost keep their order in the script.
+ *
+ */
+public class OptimizingVisitor implements Visitor<Node> {
+
+	private static final int LITERAL_COST = 0;
+
+	private static final int RESOURCE_COST = 1;
+
+	private static final int PROPERTY_COST = 4;
+
+	private static final int CHILD_PROPERTY_COST = 16;
+
+	private static final int FUNCTION_COST = 32;
+
+	private final Map<Node, Integer> costs = new IdentityHashMap<>();
+
+	@Override
+	public Node visit(Node node) {
+		switch (node.kind) {
+		case FilterParserConstants.AND:
+		case FilterParserConstants.OR:
+			List<Node> children = new ArrayList<>();
+			for (Node child : node.children) {
+				Node optimized = visit(child);
+				if (optimized.kind == node.kind) {
+					children.addAll(optimized.children);
+				} else {
+					children.add(optimized);
+				}
+			}
+			children.sort(Comparator.comparingInt(this::cost));
+			return new Node(node.kind, children);
+		default:
+			return node;
+		}
+	}
+
+	/**
+	 * Estimated cost of evaluating the node against a single resource
+	 *
+	 * @param node
+	 *            node of the parsed tree, may be null
+	 * @return relative cost
+	 */
+	public int cost(Node node) {
+		if (node == null) {
+			return 0;
+		}
+		return costs.computeIfAbsent(node, this::estimate);
+	}
+
+	private int estimate(Node node) {
+		switch (node.kind) {
+		case FilterParserConstants.AND:
+		case FilterParserConstants.OR:
+			return node.children.stream().mapToInt(this::cost).sum();
+		case FilterParserConstants.STRING:
+		case FilterParserConstants.NUMBER:
+		case FilterParserConstants.NULL:
+		case FilterParserConstants.BOOLEAN:
+		case FilterParserConstants.DATE:
+			return LITERAL_COST;
+		case FilterParserConstants.PROPERTY:
+			return node.text.indexOf('/') < 0 ? PROPERTY_COST : CHILD_PROPERTY_COST;
+		case FilterParserConstants.FUNCTION_NAME:
+			int arguments = node.children == null ? 0 : node.children.stream().mapToInt(this::cost).sum();
+			switch (node.text) {
+			case "name":
+			case "path":
+			case "date":
+				return RESOURCE_COST + arguments;
+			default:
+				return FUNCTION_COST + arguments;
+			}
+		default:
+			return operatorCost(node.kind) + cost(node.leftNode) + cost(node.rightNode);
+		}
+	}
+
+	private static int operatorCost(int kind) {
+		switch (kind) {
+		case FilterParserConstants.EQUAL:
+		case FilterParserConstants.NOT_EQUAL:
+			return 1;
+		case FilterParserConstants.LIKE:
+		case FilterParserConstants.LIKE_NOT:
+			return 8;
+		default:
+			return 2;
+		}
+	}
+
+}
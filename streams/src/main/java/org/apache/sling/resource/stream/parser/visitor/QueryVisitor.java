@@ -0,0 +1,191 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.resource.stream.parser.visitor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.sling.resource.stream.parser.FilterParserConstants;
+import org.apache.sling.resource.stream.parser.api.Visitor;
+import org.apache.sling.resource.stream.parser.node.Node;
+
+/**
+ * Visitor implementation that translates the parsed tree into a JCR-SQL2
+ * constraint on the selector {@code s}.
+ *
+ * The constraint selects a superset of the resources selected by the filter,
+ * so the filter still has to be applied to the results of the query. A
+ * comparison which can not be expressed is left out of an "and" and makes an
+ * "or" inexpressible. The visitor returns null if nothing can be expressed.
+ *
+ * JCR compares the values of a property with the type of the property, while
+ * the filter compares them as strings or numbers. Only an equality with a
+ * literal is translated to a JCR comparison, since a value whose string equals
+ * the literal also equals the literal converted to its type. Any other
+ * comparison of a property only requires the property to exist, since the
+ * filter does not select resources without it.
+ *
+ */
+public class QueryVisitor implements Visitor<String> {
+
+	private static final String SELECTOR = "s";
+
+	@Override
+	public String visit(Node node) {
+		switch (node.kind) {
+		case FilterParserConstants.AND:
+			List<String> required = new ArrayList<>();
+			for (Node child : node.children) {
+				String constraint = visit(child);
+				if (constraint != null && !required.contains(constraint)) {
+					required.add(constraint);
+				}
+			}
+			return join(required, " AND ");
+		case FilterParserConstants.OR:
+			List<String> any = new ArrayList<>();
+			for (Node child : node.children) {
+				String constraint = visit(child);
+				if (constraint == null) {
+					return null;
+				}
+				if (!any.contains(constraint)) {
+					any.add(constraint);
+				}
+			}
+			return join(any, " OR ");
+		case FilterParserConstants.EQUAL:
+		case FilterParserConstants.NOT_EQUAL:
+		case FilterParserConstants.GREATER_THAN:
+		case FilterParserConstants.GREATER_THAN_OR_EQUAL:
+		case FilterParserConstants.LESS_THAN:
+		case FilterParserConstants.LESS_THAN_OR_EQUAL:
+			String constraint = comparison(node.kind, node.leftNode, node.rightNode);
+			return constraint != null ? constraint : comparison(reverse(node.kind), node.rightNode, node.leftNode);
+		case FilterParserConstants.LIKE:
+			return like(node.leftNode, node.rightNode);
+		case FilterParserConstants.CONTAINS:
+			// a multi valued property equals a value if any of its values does
+			if (isProperty(node.leftNode) && isLiteral(node.rightNode)) {
+				return property(node.leftNode) + " = " + literal(node.rightNode.text);
+			}
+			return null;
+		case FilterParserConstants.IN:
+			if (isLiteral(node.leftNode) && isProperty(node.rightNode)) {
+				return property(node.rightNode) + " = " + literal(node.leftNode.text);
+			}
+			return null;
+		default:
+			return null;
+		}
+	}
+
+	private String comparison(int kind, Node left, Node right) {
+		if (isFunction(left, "name") && kind == FilterParserConstants.EQUAL && isString(right)) {
+			return "NAME(" + SELECTOR + ") = " + literal(right.text);
+		}
+		if (isFunction(left, "path") && kind == FilterParserConstants.EQUAL && isString(right)) {
+			return "ISSAMENODE(" + SELECTOR + ", " + literal(right.text) + ")";
+		}
+		if (!isProperty(left)) {
+			return null;
+		}
+		if (right.kind == FilterParserConstants.NULL) {
+			switch (kind) {
+			case FilterParserConstants.EQUAL:
+				return property(left) + " IS NULL";
+			case FilterParserConstants.NOT_EQUAL:
+				return property(left) + " IS NOT NULL";
+			default:
+				return null;
+			}
+		}
+		if (kind == FilterParserConstants.EQUAL) {
+			return isLiteral(right) ? property(left) + " = " + literal(right.text) : null;
+		}
+		// e.g. a Double 5.0 differs from 5 as a string, a String "10" is greater
+		// than 5 as a number, but neither holds in JCR
+		return property(left) + " IS NOT NULL";
+	}
+
+	private String like(Node left, Node right) {
+		if (!isString(right)) {
+			return null;
+		}
+		String prefix = ImpliedBranchVisitor.literalPrefix(right.text);
+		if (isFunction(left, "path")) {
+			int end = prefix.lastIndexOf('/');
+			if (end <= 0) {
+				return null;
+			}
+			return "ISDESCENDANTNODE(" + SELECTOR + ", " + literal(prefix.substring(0, end)) + ")";
+		}
+		if (isProperty(left) && !prefix.isEmpty()) {
+			String pattern = prefix.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+			return property(left) + " LIKE " + literal(pattern + "%");
+		}
+		return null;
+	}
+
+	private static int reverse(int kind) {
+		switch (kind) {
+		case FilterParserConstants.GREATER_THAN:
+			return FilterParserConstants.LESS_THAN;
+		case FilterParserConstants.GREATER_THAN_OR_EQUAL:
+			return FilterParserConstants.LESS_THAN_OR_EQUAL;
+		case FilterParserConstants.LESS_THAN:
+			return FilterParserConstants.GREATER_THAN;
+		case FilterParserConstants.LESS_THAN_OR_EQUAL:
+			return FilterParserConstants.GREATER_THAN_OR_EQUAL;
+		default:
+			return kind;
+		}
+	}
+
+	private static String join(List<String> constraints, String operator) {
+		if (constraints.isEmpty()) {
+			return null;
+		}
+		if (constraints.size() == 1) {
+			return constraints.get(0);
+		}
+		return "(" + String.join(operator, constraints) + ")";
+	}
+
+	private static String property(Node node) {
+		return SELECTOR + ".[" + node.text + "]";
+	}
+
+	private static String literal(String text) {
+		return "'" + text.replace("'", "''") + "'";
+	}
+
+	private static boolean isProperty(Node node) {
+		return node.kind == FilterParserConstants.PROPERTY && node.text.indexOf(']') < 0;
+	}
+
+	private static boolean isString(Node node) {
+		return node.kind == FilterParserConstants.STRING;
+	}
+
+	private static boolean isLiteral(Node node) {
+		return node.kind == FilterParserConstants.STRING || node.kind == FilterParserConstants.NUMBER
+				|| node.kind == FilterParserConstants.BOOLEAN;
+	}
+
+	private static boolean isFunction(Node node, String name) {
+		return node.kind == FilterParserConstants.FUNCTION_NAME && name.equals(node.text);
+	}
+
+}
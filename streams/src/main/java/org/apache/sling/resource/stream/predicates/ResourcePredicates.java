@@ -16,6 +16,7 @@ package org.apache.sling.resource.stream.predicates;
 import java.util.function.Predicate;
 
 import org.apache.sling.api.resource.Resource;
+import org.apache.sling.resource.stream.ImpliedBranchSelector;
 
 /**
  * Collection of predicates specific to obtaining information from the resource
@@ -35,13 +36,34 @@ public class ResourcePredicates {
 	}
 
 	/**
-	 * Convenience method to determine depth of resource via the name pattern
+	 * Convenience method to determine depth of resource via the name pattern.
+	 * As descendants are always deeper than their ancestor, the predicate also
+	 * serves as the implied branch selector when used as a resource selector.
 	 * 
 	 * @param resourceType
 	 * @return predicate which evaluates
 	 */
 	public static Predicate<Resource> depthIsLessThan(final int depth) {
-		return resource -> resource.getPath().split("/").length < depth;
+		return new DepthIsLessThan(depth);
+	}
+
+	private static class DepthIsLessThan implements Predicate<Resource>, ImpliedBranchSelector {
+
+		private final int depth;
+
+		DepthIsLessThan(int depth) {
+			this.depth = depth;
+		}
+
+		@Override
+		public boolean test(Resource resource) {
+			return resource.getPath().split("/").length < depth;
+		}
+
+		@Override
+		public Predicate<Resource> getImpliedBranchSelector() {
+			return this;
+		}
 	}
 
 }
@@ -0,0 +1,99 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.resource.stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.resource.stream.parser.ParseException;
+import org.apache.sling.resource.stream.parser.api.ResourceFilterFunction;
+import org.apache.sling.testing.mock.sling.junit.SlingContext;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class ResourceFilterCacheTest {
+
+	@Rule
+	public final SlingContext context = new SlingContext();
+
+	private static String START_PATH = "/content/sample/en";
+
+	private ResourceFilterCache cache;
+
+	@Before
+	public void setUp() {
+		context.load().json("/data.json", START_PATH);
+		cache = new ResourceFilterCache(2);
+	}
+
+	@Test
+	public void testSameScriptIsCompiledOnce() throws ParseException {
+		ResourceFilter filter = cache.get("name() == 'testpage1'");
+		assertSame(filter, cache.get("name() == 'testpage1'"));
+		assertEquals(1, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+		assertEquals(1, cache.size());
+	}
+
+	@Test
+	public void testLeastRecentlyUsedIsEvicted() throws ParseException {
+		ResourceFilter first = cache.get("name() == 'testpage1'");
+		cache.get("name() == 'testpage2'");
+		cache.get("name() == 'testpage1'");
+		cache.get("name() == 'testpage3'");
+		assertEquals(2, cache.size());
+		assertSame(first, cache.get("name() == 'testpage1'"));
+		cache.get("name() == 'testpage2'");
+		assertEquals(4, cache.getMissCount());
+		assertEquals(2, cache.getHitCount());
+	}
+
+	@Test
+	public void testFunctionsArePartOfTheKey() throws ParseException {
+		String script = "foo('unused') == 'testpage1'";
+		ResourceFilterFunction name = arguments -> resource -> resource.getName();
+		ResourceFilterFunction path = arguments -> resource -> resource.getPath();
+		Map<String, ResourceFilterFunction> nameFunction = Collections.singletonMap("foo", name);
+		Map<String, ResourceFilterFunction> pathFunction = Collections.singletonMap("foo", path);
+
+		ResourceFilter filter = cache.get(script, nameFunction);
+		assertSame(filter, cache.get(script, Collections.singletonMap("foo", name)));
+		assertNotSame(filter, cache.get(script, pathFunction));
+		assertEquals(1, handle(filter).size());
+		assertEquals(0, handle(cache.get(script, pathFunction)).size());
+	}
+
+	@Test
+	public void testStreamUsesSharedCache() throws ParseException {
+		ResourceFilterCache.getShared().clear();
+		Resource resource = context.resourceResolver().getResource(START_PATH);
+		ResourceStream.from(resource).setResourceSelector("name() == 'testpage1'");
+		ResourceStream.from(resource).setResourceSelector("name() == 'testpage1'");
+		assertEquals(1, ResourceFilterCache.getShared().getMissCount());
+		assertEquals(1, ResourceFilterCache.getShared().getHitCount());
+	}
+
+	private List<Resource> handle(ResourceFilter filter) {
+		Resource resource = context.resourceResolver().getResource(START_PATH);
+		return ResourceStream.from(resource).setResourceSelector(filter).stream().collect(Collectors.toList());
+	}
+}
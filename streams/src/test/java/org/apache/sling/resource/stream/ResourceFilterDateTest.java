@@ -14,7 +14,9 @@
 package org.apache.sling.resource.stream;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
 
+import java.time.format.DateTimeParseException;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -91,8 +93,30 @@ public class ResourceFilterDateTest {
 		found = handle(START_PATH, query);
 		assertEquals(4, found.size());
 	}
-	
-	
+
+	@Test
+	public void testDateLiteralInLogicalExpression() throws ParseException {
+		String query = "[jcr:content/created] < 2013-08-08T16:32:59.000 and [jcr:content/created] > '2013-08-07T14:32'";
+		List<Resource> found = handle(START_PATH, query);
+		assertEquals(1, found.size());
+
+		query = "[jcr:content/created] < 2013-08-07T14:32:59.000 or [jcr:content/created] > 2013-08-08T16:32:59.000";
+		found = handle(START_PATH, query);
+		assertEquals(4, found.size());
+	}
+
+	@Test
+	public void testInvalidDateLiteralFailsOnEvaluation() throws ParseException {
+		ResourceFilter filter = new ResourceFilter("[jcr:content/created] < date('not a date')");
+		Resource resource = context.resourceResolver().getResource(START_PATH);
+		try {
+			filter.test(resource);
+			fail("Expected an invalid date to fail");
+		} catch (DateTimeParseException expected) {
+			// the date is parsed when a resource is evaluated
+		}
+	}
+
 	private List<Resource> handle(String path, String filter) throws ParseException {
 		Resource resource = context.resourceResolver().getResource(path);
 		return ResourceStream.from(resource).setResourceSelector(filter).stream().collect(Collectors.toList());
@@ -15,11 +15,14 @@ package org.apache.sling.resource.stream;
 
 import static org.junit.Assert.assertEquals;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 import org.apache.sling.api.resource.Resource;
 import org.apache.sling.resource.stream.parser.ParseException;
+import org.apache.sling.resource.stream.parser.api.ResourceFilterFunction;
 import org.apache.sling.testing.mock.sling.junit.SlingContext;
 import org.junit.Before;
 import org.junit.Rule;
@@ -59,6 +62,29 @@ public class ResourceFilterLogicTest {
 	}
 	
 	
+	@Test
+	public void testCheapComparisonEvaluatedFirst() throws ParseException {
+		AtomicInteger calls = new AtomicInteger();
+		ResourceFilterFunction expensive = arguments -> resource -> {
+			calls.incrementAndGet();
+			return resource.getName();
+		};
+		String query = "(expensive('x') == 'testpage1' and [jcr:content/jcr:title] == 'English') and name() == 'testpage1'";
+		ResourceFilter filter = new ResourceFilter(query, Collections.singletonMap("expensive", expensive));
+		Resource resource = context.resourceResolver().getResource(START_PATH);
+		List<Resource> found = ResourceStream.from(resource).setResourceSelector(filter).stream()
+				.collect(Collectors.toList());
+		assertEquals(1, found.size());
+		assertEquals(1, calls.get());
+	}
+
+	@Test
+	public void testNestedOr() throws ParseException {
+		String query = "name() == 'testpage1' or (name() == 'testpage2' or ([jcr:content/jcr:title] == 'Mongolian' or name() == 'testpage3'))";
+		List<Resource> found = handle(START_PATH, query);
+		assertEquals(4, found.size());
+	}
+
 	private List<Resource> handle(String path, String filter) throws ParseException {
 		Resource resource = context.resourceResolver().getResource(path);
 		return ResourceStream.from(resource).setResourceSelector(filter).stream().collect(Collectors.toList());
@@ -14,14 +14,17 @@
 package org.apache.sling.resource.stream;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceWrapper;
 import org.apache.sling.resource.stream.ResourceFilter;
 import org.apache.sling.resource.stream.ResourceStream;
 import org.apache.sling.resource.stream.parser.ParseException;
@@ -183,6 +186,13 @@ public class ResourceFilterTest {
 		assertEquals(2, found.size());
 	}
 
+	@Test
+	public void testNameFunctionAsRegex() throws ParseException {
+		String query = "'testpage1' like name()";
+		List<Resource> found = handle(START_PATH, query);
+		assertEquals(1, found.size());
+	}
+
 	@Test
 	public void testChildExistence() throws ParseException {
 		String query = "name() == 'testpage3' ";
@@ -258,6 +268,21 @@ public class ResourceFilterTest {
 		assert(error.getMessage().startsWith("Encountered \" <PROPERTY> \"jcr:content/monkey \"\" at line 1, column 15."));
 	}
 
+	@Test
+	public void testValueMapAdaptedOncePerResource() throws ParseException {
+		String query = "[jcr:primaryType] == 'app:Page' and [jcr:primaryType] is 'app:Page' or [jcr:content/jcr:title] like 'Eng.*'";
+		AtomicInteger adaptations = new AtomicInteger();
+		Resource resource = new ResourceWrapper(context.resourceResolver().getResource(START_PATH + "/testpage1")) {
+			@Override
+			public <AdapterType> AdapterType adaptTo(Class<AdapterType> type) {
+				adaptations.incrementAndGet();
+				return super.adaptTo(type);
+			}
+		};
+		assertTrue(new ResourceFilter(query).test(resource));
+		assertEquals(1, adaptations.get());
+	}
+
 	private List<Resource> handle(String path, String filter) throws ParseException {
 		Resource resource = context.resourceResolver().getResource(path);
 		Predicate<Resource> f = new ResourceFilter(filter);
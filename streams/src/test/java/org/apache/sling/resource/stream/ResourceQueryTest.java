@@ -0,0 +1,387 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.resource.stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceWrapper;
+import org.apache.sling.resource.stream.parser.ParseException;
+import org.apache.sling.testing.mock.sling.junit.SlingContext;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+/**
+ * Compares the results of the query based execution of filters with the
+ * traversal. The resource resolver evaluates the constraints of the queries
+ * like JCR, comparing a value with the literal converted to the type of the
+ * value and matching a multi valued property if any of its values does, so
+ * the comparison covers properties which are not stored with the type the
+ * filter compares them as. The generated statement of every filter is checked
+ * as well.
+ */
+public class ResourceQueryTest {
+
+	@Rule
+	public final SlingContext context = new SlingContext();
+
+	private static String START_PATH = "/content/sample/en";
+
+	private static String TYPES_PATH = "/content/types";
+
+	private static String SELECT = "SELECT * FROM [nt:base] AS s WHERE ";
+
+	private static String[] FILTERS = {
+			"[jcr:content/jcr:title] == 'English'",
+			"[jcr:content/jcr:title] == 'English' and name() like 'testpage.*'",
+			"name() == 'testpage1' or name() == 'testpage3'",
+			"path() like '/content/sample/en/testpage1.*'",
+			"[jcr:content/foo] == null",
+			"[layout] != null and [layout] != 'foo'",
+			"[jcr:content/monkey] contains 'fish'",
+			"'fish' in [jcr:content/monkey]",
+			"[jcr:content/views] > 5 or name() == 'testpage2'" };
+
+	/**
+	 * The query constraints of the filters, the filters are applied to the
+	 * query results for the parts which can not be expressed in the query
+	 */
+	private static String[] CONSTRAINTS = {
+			"s.[jcr:content/jcr:title] = 'English'",
+			"s.[jcr:content/jcr:title] = 'English'",
+			"(NAME(s) = 'testpage1' OR NAME(s) = 'testpage3')",
+			"ISDESCENDANTNODE(s, '/content/sample/en')",
+			"s.[jcr:content/foo] IS NULL",
+			"s.[layout] IS NOT NULL",
+			"s.[jcr:content/monkey] = 'fish'",
+			"s.[jcr:content/monkey] = 'fish'",
+			"(NAME(s) = 'testpage2' OR s.[jcr:content/views] IS NOT NULL)" };
+
+	/**
+	 * Filters selecting resources whose properties are stored with another type
+	 * than the one the filter compares them as
+	 */
+	private static String[] TYPED_FILTERS = {
+			"[views] != 5",
+			"[views] == 5",
+			"[count] > 5",
+			"5 < [count]",
+			"[tags] != 'fish'",
+			"[tags] contains 'chips'",
+			"[created] < date('2014-01-01T00:00:00Z')" };
+
+	private static final Pattern TOKEN = Pattern
+			.compile("'(?:[^']|'')*'|s\\.\\[[^\\]]*\\]|[A-Za-z_]+|-?[0-9.]+|<>|<=|>=|[()=<>,]");
+
+	private final List<String> statements = new ArrayList<>();
+
+	private Resource resource;
+
+	@Before
+	public void setUp() {
+		context.load().json("/data.json", START_PATH);
+		context.create().resource(TYPES_PATH + "/double", properties("views", 5.0d, "count", "10", "created",
+				"2013-08-08T16:32:59.000+02:00"));
+		context.create().resource(TYPES_PATH + "/long", properties("views", 5L, "count", 3L));
+		context.create().resource(TYPES_PATH + "/single", properties("tags", new String[] { "fish" }));
+		context.create().resource(TYPES_PATH + "/multiple", properties("tags", new String[] { "fish", "chips" }));
+		resource = queried(START_PATH);
+	}
+
+	/*
+	 * Provides the resource with a resource resolver which evaluates the
+	 * queries
+	 */
+	private Resource queried(String path) {
+		ResourceResolver resolver = context.resourceResolver();
+		ResourceResolver queryResolver = (ResourceResolver) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] { ResourceResolver.class }, (proxy, method, args) -> {
+					if (method.getName().equals("findResources")) {
+						assertEquals("JCR-SQL2", args[1]);
+						String statement = (String) args[0];
+						statements.add(statement);
+						assertTrue(statement, statement.startsWith(SELECT));
+						Predicate<Resource> constraint = new Constraint(statement.substring(SELECT.length())).parse();
+						return ResourceStream.from(resolver.getResource("/")).stream().filter(constraint).iterator();
+					}
+					return method.invoke(resolver, args);
+				});
+		return new ResourceWrapper(resolver.getResource(path)) {
+			@Override
+			public ResourceResolver getResourceResolver() {
+				return queryResolver;
+			}
+		};
+	}
+
+	@Test
+	public void testSameResultsAsTraversal() throws ParseException {
+		for (String filter : FILTERS) {
+			ResourceStream stream = ResourceStream.from(resource).setResourceSelector(filter);
+			assertEquals(filter, sorted(stream.stream()), sorted(stream.queryStream()));
+		}
+		assertEquals(FILTERS.length, statements.size());
+		for (int i = 0; i < FILTERS.length; i++) {
+			assertEquals(FILTERS[i], SELECT + "ISDESCENDANTNODE(s, '/content/sample/en') AND " + CONSTRAINTS[i],
+					statements.get(i));
+		}
+	}
+
+	@Test
+	public void testMismatchedTypes() throws ParseException {
+		Resource types = queried(TYPES_PATH);
+		for (String filter : TYPED_FILTERS) {
+			ResourceStream stream = ResourceStream.from(types).setResourceSelector(filter);
+			List<String> expected = sorted(stream.stream());
+			assertFalse(filter, expected.isEmpty());
+			assertEquals(filter, expected, sorted(stream.queryStream()));
+		}
+		assertEquals(TYPED_FILTERS.length, statements.size());
+	}
+
+	@Test
+	public void testStatement() throws ParseException {
+		ResourceStream.from(resource)
+				.setResourceSelector("[jcr:content/jcr:title] == 'English' and name() like 'testpage.*' "
+						+ "and [jcr:content/created] < date('2013-08-08T16:32:59.000+02:00')")
+				.queryStream().count();
+		assertEquals(SELECT + "ISDESCENDANTNODE(s, '/content/sample/en') AND "
+				+ "(s.[jcr:content/jcr:title] = 'English' AND s.[jcr:content/created] IS NOT NULL)",
+				statements.get(0));
+	}
+
+	@Test
+	public void testInexpressibleFilterTraverses() throws ParseException {
+		ResourceFilter filter = new ResourceFilter("name() like 'testpage.*' or [jcr:content/jcr:title] == 'English'");
+		assertNull(filter.getQueryConstraint());
+		ResourceStream stream = ResourceStream.from(resource).setResourceSelector(filter);
+		assertEquals(sorted(stream.stream()), sorted(stream.queryStream()));
+		assertEquals(0, statements.size());
+	}
+
+	@Test
+	public void testBranchSelector() throws ParseException {
+		ResourceStream stream = ResourceStream.from(resource).setBranchSelector("name() != 'testpage1'")
+				.setResourceSelector("[jcr:primaryType] == 'nt:unstructured'");
+		assertEquals(sorted(stream.stream()), sorted(stream.queryStream()));
+		assertEquals(8, stream.queryStream().count());
+	}
+
+	@Test
+	public void testLimit() throws ParseException {
+		ResourceStream stream = ResourceStream.from(resource).setResourceSelector("[jcr:content/jcr:title] == 'English'")
+				.range(2, 2);
+		assertEquals(2, stream.queryStream().count());
+	}
+
+	@Test
+	public void testLimitIndependentOfQuery() throws ParseException {
+		ResourceStream query = ResourceStream.from(resource).setResourceSelector("[jcr:content/jcr:title] == 'English'")
+				.range(2, 2);
+		ResourceStream traversal = ResourceStream.from(resource)
+				.setResourceSelector("[jcr:content/jcr:title] == 'English' or name() like 'nomatch.*'").range(2, 2);
+		List<String> expected = query.queryStream().map(Resource::getPath).collect(Collectors.toList());
+		assertEquals(1, statements.size());
+		assertEquals(expected, traversal.queryStream().map(Resource::getPath).collect(Collectors.toList()));
+		assertEquals(1, statements.size());
+	}
+
+	private static List<String> sorted(Stream<Resource> stream) {
+		return stream.map(Resource::getPath).sorted().collect(Collectors.toList());
+	}
+
+	private static Map<String, Object> properties(Object... keysAndValues) {
+		Map<String, Object> properties = new HashMap<>();
+		for (int i = 0; i < keysAndValues.length; i += 2) {
+			properties.put((String) keysAndValues[i], keysAndValues[i + 1]);
+		}
+		return properties;
+	}
+
+	/**
+	 * Evaluates the constraints generated for the filters like JCR
+	 */
+	private static class Constraint {
+
+		private final List<String> tokens = new ArrayList<>();
+
+		private int position;
+
+		Constraint(String constraint) {
+			Matcher matcher = TOKEN.matcher(constraint);
+			while (matcher.find()) {
+				tokens.add(matcher.group());
+			}
+		}
+
+		Predicate<Resource> parse() {
+			Predicate<Resource> predicate = or();
+			assertEquals(tokens.toString(), tokens.size(), position);
+			return predicate;
+		}
+
+		private Predicate<Resource> or() {
+			Predicate<Resource> predicate = and();
+			while (accept("OR")) {
+				predicate = predicate.or(and());
+			}
+			return predicate;
+		}
+
+		private Predicate<Resource> and() {
+			Predicate<Resource> predicate = term();
+			while (accept("AND")) {
+				predicate = predicate.and(term());
+			}
+			return predicate;
+		}
+
+		private Predicate<Resource> term() {
+			if (accept("(")) {
+				Predicate<Resource> predicate = or();
+				expect(")");
+				return predicate;
+			}
+			String token = next();
+			switch (token) {
+			case "ISDESCENDANTNODE":
+				String ancestor = selectorAndPath();
+				return resource -> resource.getPath().startsWith(ancestor + "/");
+			case "ISSAMENODE":
+				String path = selectorAndPath();
+				return resource -> resource.getPath().equals(path);
+			case "NAME":
+				expect("(");
+				expect("s");
+				expect(")");
+				expect("=");
+				String name = string(next());
+				return resource -> resource.getName().equals(name);
+			default:
+				break;
+			}
+			assertTrue(token, token.startsWith("s.["));
+			String property = token.substring(3, token.length() - 1);
+			if (accept("IS")) {
+				boolean exists = accept("NOT");
+				expect("NULL");
+				return resource -> (resource.getValueMap().get(property) != null) == exists;
+			}
+			String operator = next();
+			String literal = next();
+			if (operator.equals("LIKE")) {
+				String pattern = string(literal);
+				assertTrue(pattern, pattern.endsWith("%"));
+				String prefix = pattern.substring(0, pattern.length() - 1).replaceAll("\\\\(.)", "$1");
+				return resource -> values(resource, property).anyMatch(value -> value.toString().startsWith(prefix));
+			}
+			return resource -> values(resource, property)
+					.anyMatch(value -> matches(operator, compare(value, literal)));
+		}
+
+		private String selectorAndPath() {
+			expect("(");
+			expect("s");
+			expect(",");
+			String path = string(next());
+			expect(")");
+			return path;
+		}
+
+		private boolean accept(String token) {
+			if (position < tokens.size() && tokens.get(position).equals(token)) {
+				position++;
+				return true;
+			}
+			return false;
+		}
+
+		private void expect(String token) {
+			assertEquals(tokens.toString(), token, next());
+		}
+
+		private String next() {
+			assertTrue(tokens.toString(), position < tokens.size());
+			return tokens.get(position++);
+		}
+
+		private static String string(String literal) {
+			assertTrue(literal, literal.startsWith("'"));
+			return literal.substring(1, literal.length() - 1).replace("''", "'");
+		}
+
+		private static Stream<Object> values(Resource resource, String property) {
+			Object value = resource.getValueMap().get(property);
+			if (value == null) {
+				return Stream.empty();
+			}
+			if (value instanceof Object[]) {
+				return Arrays.stream((Object[]) value);
+			}
+			return Collections.singletonList(value).stream();
+		}
+
+		/*
+		 * Compares the value with the literal converted to the type of the value
+		 */
+		private static int compare(Object value, String literal) {
+			String text = literal.startsWith("'") ? string(literal) : literal;
+			if (value instanceof Number) {
+				return new BigDecimal(value.toString()).compareTo(new BigDecimal(text));
+			}
+			if (value instanceof Boolean) {
+				return Boolean.compare((Boolean) value, Boolean.parseBoolean(text));
+			}
+			return value.toString().compareTo(text);
+		}
+
+		private static boolean matches(String operator, int comparison) {
+			switch (operator) {
+			case "=":
+				return comparison == 0;
+			case "<>":
+				return comparison != 0;
+			case "<":
+				return comparison < 0;
+			case "<=":
+				return comparison <= 0;
+			case ">":
+				return comparison > 0;
+			case ">=":
+				return comparison >= 0;
+			default:
+				throw new AssertionError(operator);
+			}
+		}
+	}
+}
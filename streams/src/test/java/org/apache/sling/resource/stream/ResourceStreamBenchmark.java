@@ -0,0 +1,182 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.resource.stream;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.sling.api.resource.AbstractResource;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceMetadata;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ValueMap;
+import org.apache.sling.api.wrappers.ValueMapDecorator;
+import org.apache.sling.resource.stream.parser.ParseException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares sequential and parallel traversal of a wide, in memory resource
+ * tree, as well as the traversal against the former LinkedList based work
+ * queue.
+ *
+ * Run with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.openjdk.jmh.Main -Dexec.args=ResourceStreamBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ResourceStreamBenchmark {
+
+	@Param({ "1000", "20000" })
+	public int width;
+
+	private Resource root;
+
+	private ResourceFilter selector;
+
+	private ResourceStream resourceStream;
+
+	@Setup
+	public void setUp() throws ParseException {
+		root = new TreeResource("", null);
+		for (int i = 0; i < width; ++i) {
+			TreeResource page = ((TreeResource) root).add("page" + i);
+			for (int j = 0; j < 10; ++j) {
+				page.add("item" + j).properties.put("title", "Title " + i + " " + j);
+			}
+		}
+		selector = new ResourceFilter("[title] like 'Title [0-9]*5 .*'");
+		resourceStream = ResourceStream.from(root).setResourceSelector(selector);
+	}
+
+	@Benchmark
+	public long sequential() {
+		return resourceStream.stream().count();
+	}
+
+	@Benchmark
+	public long parallel() {
+		return resourceStream.stream().parallel().count();
+	}
+
+	@Benchmark
+	public long linkedListQueue() {
+		LinkedList<Resource> resourcesToCheck = new LinkedList<>();
+		AtomicInteger index = new AtomicInteger(0);
+		resourcesToCheck.addFirst(root);
+		long count = 0;
+		while (!resourcesToCheck.isEmpty()) {
+			Resource current = resourcesToCheck.removeFirst();
+			current.listChildren().forEachRemaining(child -> {
+				resourcesToCheck.add(index.getAndIncrement(), child);
+			});
+			index.set(0);
+			if (selector.test(current)) {
+				++count;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Minimal resource which holds its children and properties in memory
+	 */
+	static class TreeResource extends AbstractResource {
+
+		private final String path;
+
+		private final List<Resource> children = new ArrayList<>();
+
+		private final Map<String, Object> properties = new HashMap<>();
+
+		TreeResource(String name, TreeResource parent) {
+			this.path = parent == null ? name : parent.path + "/" + name;
+		}
+
+		TreeResource add(String name) {
+			TreeResource child = new TreeResource(name, this);
+			children.add(child);
+			return child;
+		}
+
+		@Override
+		public String getPath() {
+			return path.isEmpty() ? "/" : path;
+		}
+
+		@Override
+		public Iterator<Resource> listChildren() {
+			return children.iterator();
+		}
+
+		@Override
+		public Iterable<Resource> getChildren() {
+			return Collections.unmodifiableList(children);
+		}
+
+		@Override
+		public ValueMap getValueMap() {
+			return new ValueMapDecorator(properties);
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public <AdapterType> AdapterType adaptTo(Class<AdapterType> type) {
+			if (type == ValueMap.class) {
+				return (AdapterType) getValueMap();
+			}
+			return super.adaptTo(type);
+		}
+
+		@Override
+		public String getResourceType() {
+			return "benchmark/tree";
+		}
+
+		@Override
+		public String getResourceSuperType() {
+			return null;
+		}
+
+		@Override
+		public ResourceMetadata getResourceMetadata() {
+			return new ResourceMetadata();
+		}
+
+		@Override
+		public ResourceResolver getResourceResolver() {
+			return null;
+		}
+	}
+}
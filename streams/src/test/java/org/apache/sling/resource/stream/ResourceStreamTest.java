@@ -0,0 +1,136 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.resource.stream;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.resource.stream.parser.ParseException;
+import org.apache.sling.resource.stream.parser.visitor.ImpliedBranchVisitor;
+import org.apache.sling.resource.stream.predicates.ResourcePredicates;
+import org.apache.sling.testing.mock.sling.junit.SlingContext;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class ResourceStreamTest {
+
+	@Rule
+	public final SlingContext context = new SlingContext();
+
+	private static String START_PATH = "/content/sample/en";
+
+	private Resource resource;
+
+	@Before
+	public void setUp() {
+		context.load().json("/data.json", START_PATH);
+		resource = context.resourceResolver().getResource(START_PATH);
+	}
+
+	@Test
+	public void testDepthFirstOrder() {
+		List<String> found = paths(ResourceStream.from(resource));
+		assertEquals(20, found.size());
+		assertEquals(START_PATH, found.get(0));
+		for (int i = 1; i < found.size(); ++i) {
+			String parent = found.get(i).substring(0, found.get(i).lastIndexOf('/'));
+			assertEquals(true, found.subList(0, i).contains(parent));
+		}
+	}
+
+	@Test
+	public void testParallelKeepsOrder() throws ParseException {
+		ResourceStream stream = ResourceStream.from(resource).setBranchSelector("name() != 'testpage3'")
+				.setResourceSelector("[jcr:content/foo] == null");
+		assertEquals(paths(stream), parallelPaths(stream));
+	}
+
+	@Test
+	public void testParallelLimit() {
+		ResourceStream stream = ResourceStream.from(resource).limit(7);
+		List<String> found = parallelPaths(stream);
+		assertEquals(7, found.size());
+		assertEquals(paths(stream), found);
+	}
+
+	@Test
+	public void testParallelRange() {
+		ResourceStream stream = ResourceStream.from(resource).range(5, 4);
+		List<String> found = parallelPaths(stream);
+		assertEquals(4, found.size());
+		assertEquals(paths(stream), found);
+		assertEquals(paths(ResourceStream.from(resource)).subList(4, 8), found);
+	}
+
+	@Test
+	public void testStreamIsRepeatable() {
+		ResourceStream stream = ResourceStream.from(resource).range(3, 2);
+		assertEquals(paths(stream), paths(stream));
+	}
+
+	@Test
+	public void testPathPrefixPrunesBranches() throws ParseException {
+		AtomicInteger traversed = new AtomicInteger();
+		ResourceStream stream = ResourceStream.from(resource).setBranchSelector(child -> {
+			traversed.incrementAndGet();
+			return true;
+		}).setResourceSelector("path() like '/content/sample/en/testpage1.*' and [jcr:primaryType] == 'app:Page'");
+		List<String> found = paths(stream);
+		assertEquals(1, found.size());
+		assertEquals(4, traversed.get());
+		// a limit counts traversed resources and disables pruning
+		assertEquals(found, paths(stream.limit(100)));
+		assertEquals(4 + 19, traversed.get());
+	}
+
+	@Test
+	public void testDepthPrunesBranches() {
+		AtomicInteger traversed = new AtomicInteger();
+		ResourceStream stream = ResourceStream.from(resource).setBranchSelector(child -> {
+			traversed.incrementAndGet();
+			return true;
+		}).setResourceSelector(ResourcePredicates.depthIsLessThan(6));
+		List<String> found = paths(stream);
+		assertEquals(found, paths(ResourceStream.from(resource).stream()
+				.filter(ResourcePredicates.depthIsLessThan(6))));
+		assertEquals(found.size() - 1, traversed.get());
+	}
+
+	@Test
+	public void testLiteralPrefix() {
+		assertEquals("/content/site/en/", ImpliedBranchVisitor.literalPrefix("/content/site/en/.*"));
+		assertEquals("/content/sit", ImpliedBranchVisitor.literalPrefix("/content/site?/en"));
+		assertEquals("/content/site", ImpliedBranchVisitor.literalPrefix("/content/site+/en"));
+		assertEquals("", ImpliedBranchVisitor.literalPrefix("/content/a|/content/b"));
+		assertEquals("", ImpliedBranchVisitor.literalPrefix(".*/jcr:content"));
+	}
+
+	private static List<String> paths(ResourceStream stream) {
+		return paths(stream.stream());
+	}
+
+	private static List<String> paths(Stream<Resource> stream) {
+		return stream.map(Resource::getPath).collect(Collectors.toList());
+	}
+
+	private static List<String> parallelPaths(ResourceStream stream) {
+		return stream.stream().parallel().map(Resource::getPath).collect(Collectors.toList());
+	}
+}